@@ -0,0 +1,25 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import org.ligoj.app.plugin.bt.model.ChangeItem;
+
+/**
+ * Listener of the bug tracker events, notified by the bug tracker implementations. The listeners are Spring beans,
+ * such as {@link SlaMonitor}: an implementation notifies all of them, for instance with an autowired
+ * <code>List&lt;BugTrackerListener&gt;</code>, each time it reads or receives a status change.
+ */
+public interface BugTrackerListener {
+
+	/**
+	 * Notify a status change of an issue.
+	 * 
+	 * @param subscription
+	 *            the subscription's identifier.
+	 * @param change
+	 *            the status change, with the details of the issue. The changes of a subscription are notified in the
+	 *            order of their creation.
+	 */
+	void onStatusChange(int subscription, ChangeItem change);
+}
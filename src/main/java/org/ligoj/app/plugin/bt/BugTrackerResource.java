@@ -3,26 +3,35 @@
  */
 package org.ligoj.app.plugin.bt;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.Stream;
 
 import jakarta.transaction.Transactional;
 import jakarta.transaction.Transactional.TxType;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 
 import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.function.FailableSupplier;
 import org.apache.commons.lang3.time.DateUtils;
 import org.ligoj.app.model.Node;
 import org.ligoj.app.plugin.bt.dao.BugTrackerConfigurationRepository;
@@ -33,17 +42,22 @@ import org.ligoj.app.plugin.bt.dao.SlaRepository;
 import org.ligoj.app.plugin.bt.model.BugTrackerConfiguration;
 import org.ligoj.app.plugin.bt.model.BusinessHours;
 import org.ligoj.app.plugin.bt.model.Calendar;
+import org.ligoj.app.plugin.bt.model.ChangeItem;
 import org.ligoj.app.plugin.bt.model.Holiday;
 import org.ligoj.app.plugin.bt.model.Sla;
 import org.ligoj.app.resource.ServicePluginLocator;
 import org.ligoj.app.resource.plugin.AbstractConfiguredServicePlugin;
+import org.ligoj.app.resource.plugin.AbstractToolPluginResource;
 import org.ligoj.app.resource.subscription.SubscriptionResource;
 import org.ligoj.bootstrap.core.DescribedBean;
+import org.ligoj.bootstrap.core.json.TableItem;
 import org.ligoj.bootstrap.core.resource.BusinessException;
 import org.ligoj.bootstrap.core.validation.ValidationJsonException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * The bug tracker service.
@@ -79,6 +93,21 @@ public class BugTrackerResource extends AbstractConfiguredServicePlugin<BugTrack
 	@Autowired
 	private SlaProcessor slaProcessor;
 
+	@Autowired
+	private BusinessCalendarCache calendarCache;
+
+	@Autowired
+	private SlaComputationsCache computationsCache;
+
+	@Autowired
+	private SlaJobRunner jobRunner;
+
+	@Autowired
+	private SlaMonitor slaMonitor;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
 	@Autowired
 	private CalendarRepository calendarRepository;
 
@@ -100,6 +129,7 @@ public class BugTrackerResource extends AbstractConfiguredServicePlugin<BugTrack
 	@Override
 	public void delete(final int subscription, final boolean deleteRemoteData) {
 		repository.delete(repository.findByExpected("subscription.id", subscription));
+		slaMonitor.unmonitor(subscription);
 	}
 
 	@Override
@@ -351,6 +381,399 @@ public class BugTrackerResource extends AbstractConfiguredServicePlugin<BugTrack
 		return calendarRepository.findAll(Sort.by("name"));
 	}
 
+	/**
+	 * Export the SLA computations of all issues of the given subscription. The header is written immediately, then the
+	 * changes are read in a read-only transaction while writing, and each issue is written once all changes are read.
+	 * 
+	 * @param subscription
+	 *            The subscription identifier.
+	 * @param format
+	 *            The format: <code>csv</code> or <code>json</code>.
+	 * @return The streamed file.
+	 * @throws IOException
+	 *             When changes cannot read.
+	 */
+	@GET
+	@Path("sla/{subscription:\\d+}/{format:csv|json}")
+	@Produces(MediaType.APPLICATION_OCTET_STREAM)
+	public Response exportSla(@PathParam("subscription") final int subscription,
+			@PathParam("format") final String format) throws IOException {
+		final BugTrackerConfiguration configuration = getConfigurationBySubscription(subscription);
+		final List<Sla> slas = new ArrayList<>(configuration.getSlas());
+		final BusinessCalendar calendar = calendarCache.get(configuration);
+
+		// Provider data, the changes are only read while writing, out of this transaction
+		final BugTrackerServicePlugin provider = getProvider(configuration);
+		final SlaExport export = new SlaExport(slaProcessor.toSlaConfiguration(slas), () -> {
+			final Stream<ChangeItem> changes = getChanges(provider, subscription, slas);
+			return slaProcessor.stream(calendar, changes.iterator(), slas).onClose(changes::close);
+		}, format);
+		return AbstractToolPluginResource.download(output -> inReadOnlyTransaction(() -> {
+			export.write(output);
+			return null;
+		}), "sla-" + subscription + "." + format).build();
+	}
+
+	/**
+	 * Return the changes of the given provider, wrapping the read failure.
+	 */
+	private Stream<ChangeItem> getChanges(final BugTrackerServicePlugin provider, final int subscription,
+			final List<Sla> slas) {
+		try {
+			return provider.getChanges(subscription, slas);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Run the given supplier in a read-only transaction, joining the current one if any.
+	 */
+	private <T> T inReadOnlyTransaction(final FailableSupplier<T, IOException> supplier) throws IOException {
+		final TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(true);
+		try {
+			return template.execute(s -> {
+				try {
+					return supplier.get();
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (final UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Return the SLA computations of all issues of the given subscription. While neither the configuration nor the
+	 * changes have changed, the computations are cached and only the elapsed times until now are updated.
+	 * 
+	 * @param subscription
+	 *            The subscription identifier.
+	 * @return The SLA computations.
+	 * @throws IOException
+	 *             When changes cannot read.
+	 */
+	@GET
+	@Path("sla/{subscription:\\d+}/computations")
+	public SlaComputations getSlaComputations(@PathParam("subscription") final int subscription) throws IOException {
+		final BugTrackerConfiguration configuration = getConfigurationBySubscription(subscription);
+		final ChangeItem last = getProvider(configuration).getLastChange(subscription);
+		return computationsCache.get(configuration, calendarCache.get(configuration), last,
+				slas -> getChanges(configuration, slas));
+	}
+
+	/**
+	 * Return the open issues of the given subscription having the least business time left before the threshold of
+	 * a SLA. The computations are cached as for {@link #getSlaComputations(int)}.
+	 * 
+	 * @param subscription
+	 *            The subscription identifier.
+	 * @param sla
+	 *            The SLA index, within the SLA configurations.
+	 * @param limit
+	 *            The maximal amount of returned issues.
+	 * @return The issues closest to the breach, the already breached ones first.
+	 * @throws IOException
+	 *             When changes cannot read.
+	 */
+	@GET
+	@Path("sla/{subscription:\\d+}/breach")
+	public List<IssueSla> getClosestToBreach(@PathParam("subscription") final int subscription,
+			@DefaultValue("0") @QueryParam("sla") final int sla,
+			@DefaultValue("10") @QueryParam("limit") final int limit) throws IOException {
+		return slaProcessor.getClosestToBreach(getSlaComputations(subscription), sla, limit);
+	}
+
+	/**
+	 * Return a page of the filtered and sorted issues of the given subscription. The computations are cached as for
+	 * {@link #getSlaComputations(int)}.
+	 * 
+	 * @param subscription
+	 *            The subscription identifier.
+	 * @param offset
+	 *            Index of the first returned issue, within the filtered and sorted issues.
+	 * @param limit
+	 *            Maximal amount of returned issues.
+	 * @param sort
+	 *            The sorted column. When <code>null</code>, the issues are sorted by identifier.
+	 * @param descending
+	 *            When <code>true</code>, the order is descending.
+	 * @param sla
+	 *            The SLA index of the sorted SLA data attribute and of the breach filter. May be <code>null</code>.
+	 * @param statuses
+	 *            The accepted statuses. When empty, all statuses are accepted.
+	 * @param types
+	 *            The accepted types. When empty, all types are accepted.
+	 * @param priorities
+	 *            The accepted priorities. When empty, all priorities are accepted.
+	 * @param assignees
+	 *            The accepted assignees. When empty, all assignees are accepted.
+	 * @param breached
+	 *            When not <code>null</code>, only the breached issues or the other ones are accepted.
+	 * @return The page of issues.
+	 * @throws IOException
+	 *             When changes cannot read.
+	 * @see SlaQuery
+	 */
+	@GET
+	@Path("sla/{subscription:\\d+}/query")
+	public TableItem<IssueSla> querySla(@PathParam("subscription") final int subscription,
+			@DefaultValue("0") @QueryParam("offset") final int offset,
+			@DefaultValue("50") @QueryParam("limit") final int limit, @QueryParam("sort") final String sort,
+			@QueryParam("descending") final boolean descending, @QueryParam("sla") final Integer sla,
+			@QueryParam("status") final List<Integer> statuses, @QueryParam("type") final List<Integer> types,
+			@QueryParam("priority") final List<Integer> priorities,
+			@QueryParam("assignee") final List<String> assignees, @QueryParam("breached") final Boolean breached)
+			throws IOException {
+		final SlaQuery query = new SlaQuery();
+		query.setOffset(offset);
+		query.setLimit(limit);
+		query.setSort(sort);
+		query.setDescending(descending);
+		query.setSla(sla);
+		query.setStatuses(toFilter(statuses));
+		query.setTypes(toFilter(types));
+		query.setPriorities(toFilter(priorities));
+		query.setAssignees(toFilter(assignees));
+		query.setBreached(breached);
+		return slaProcessor.query(getSlaComputations(subscription), query);
+	}
+
+	/**
+	 * Return the filter of the given query parameter values: <code>null</code> when empty, so all values are accepted.
+	 */
+	private <T> Set<T> toFilter(final List<T> values) {
+		return values == null || values.isEmpty() ? null : new HashSet<>(values);
+	}
+
+	/**
+	 * Start the real-time monitoring of the SLA of the given subscription. The subscription is registered first, so the
+	 * changes notified while the changes are read to build the state of the issues are not lost. Then the bug tracker
+	 * notifies the next changes to the {@link SlaMonitor}. The previous monitoring of this subscription is replaced.
+	 * 
+	 * @param subscription
+	 *            The subscription identifier.
+	 * @throws IOException
+	 *             When changes cannot read.
+	 */
+	@POST
+	@Path("sla/{subscription:\\d+}/monitor")
+	public void monitorSla(@PathParam("subscription") final int subscription) throws IOException {
+		final BugTrackerConfiguration configuration = getConfigurationBySubscription(subscription);
+		final List<Sla> slas = new ArrayList<>(configuration.getSlas());
+		final BusinessCalendar calendar = calendarCache.get(configuration);
+		final SlaCheckpoint checkpoint = new SlaCheckpoint();
+		slaMonitor.register(subscription, calendar);
+		try (Stream<ChangeItem> changes = getChanges(configuration, slas)) {
+			slaProcessor.process(calendar, changes.iterator(), slas, checkpoint);
+		} catch (final IOException | RuntimeException e) {
+			slaMonitor.unmonitor(subscription);
+			throw e;
+		}
+		slaMonitor.monitor(subscription, calendar, slas, checkpoint);
+	}
+
+	/**
+	 * Stop the real-time monitoring of the SLA of the given subscription.
+	 * 
+	 * @param subscription
+	 *            The subscription identifier.
+	 */
+	@DELETE
+	@Path("sla/{subscription:\\d+}/monitor")
+	public void unmonitorSla(@PathParam("subscription") final int subscription) {
+		getConfigurationBySubscription(subscription);
+		slaMonitor.unmonitor(subscription);
+	}
+
+	/**
+	 * Return the statistics of each SLA of the given subscription, grouped by priority and type.
+	 * 
+	 * @param subscription
+	 *            The subscription identifier.
+	 * @return The SLA configurations and the statistics, without issue.
+	 * @throws IOException
+	 *             When changes cannot read.
+	 */
+	@GET
+	@Path("sla/{subscription:\\d+}/aggregate")
+	public SlaComputations aggregateSla(@PathParam("subscription") final int subscription) throws IOException {
+		final BugTrackerConfiguration configuration = getConfigurationBySubscription(subscription);
+		final List<Sla> slas = new ArrayList<>(configuration.getSlas());
+		try (Stream<ChangeItem> changes = getChanges(configuration, slas)) {
+			return slaProcessor.aggregate(calendarCache.get(configuration), changes.iterator(), slas);
+		}
+	}
+
+	/**
+	 * Return the open issues of the given subscription having spent the most business time in their current status,
+	 * for each status.
+	 * 
+	 * @param subscription
+	 *            The subscription identifier.
+	 * @param limit
+	 *            The maximal amount of returned issues by status, from 1 to {@value IssueAging#MAX_LIMIT}.
+	 * @return The SLA configurations and the aging, without issue.
+	 * @throws IOException
+	 *             When changes cannot read.
+	 */
+	@GET
+	@Path("sla/{subscription:\\d+}/aging")
+	public SlaComputations agingSla(@PathParam("subscription") final int subscription,
+			@DefaultValue("10") @QueryParam("limit") final int limit) throws IOException {
+		if (limit < 1 || limit > IssueAging.MAX_LIMIT) {
+			throw ValidationJsonException.newValidationJsonException("Range", "limit");
+		}
+		final BugTrackerConfiguration configuration = getConfigurationBySubscription(subscription);
+		final List<Sla> slas = new ArrayList<>(configuration.getSlas());
+		try (Stream<ChangeItem> changes = getChanges(configuration, slas)) {
+			return slaProcessor.aging(calendarCache.get(configuration), changes.iterator(), slas, limit);
+		}
+	}
+
+	/**
+	 * Return the compliance of each SLA of the given subscription, grouped by one or two dimensions of the issues.
+	 * 
+	 * @param subscription
+	 *            The subscription identifier.
+	 * @param dimensions
+	 *            The grouped dimensions: one or two of <code>priority</code>, <code>status</code>, <code>type</code>,
+	 *            <code>resolution</code>, <code>reporter</code> and <code>assignee</code>.
+	 * @return The SLA configurations and the groups, without issue.
+	 * @throws IOException
+	 *             When changes cannot read.
+	 */
+	@GET
+	@Path("sla/{subscription:\\d+}/group")
+	public SlaComputations groupSla(@PathParam("subscription") final int subscription,
+			@QueryParam("by") final List<String> dimensions) throws IOException {
+		final BugTrackerConfiguration configuration = getConfigurationBySubscription(subscription);
+		final List<Sla> slas = new ArrayList<>(configuration.getSlas());
+		try (Stream<ChangeItem> changes = getChanges(configuration, slas)) {
+			return slaProcessor.groupBy(calendarCache.get(configuration), changes.iterator(), slas, dimensions);
+		}
+	}
+
+	/**
+	 * Return the compliance of each SLA of the given subscription over time: the issues stopped in each time bucket,
+	 * and how many of them within the threshold.
+	 * 
+	 * @param subscription
+	 *            The subscription identifier.
+	 * @param from
+	 *            The start of the range, included, in milliseconds since the epoch.
+	 * @param to
+	 *            The end of the range, excluded, in milliseconds since the epoch.
+	 * @param granularity
+	 *            The bucket granularity: <code>day</code>, <code>week</code> or <code>month</code>.
+	 * @return The SLA configurations and the compliances, without issue.
+	 * @throws IOException
+	 *             When changes cannot read.
+	 */
+	@GET
+	@Path("sla/{subscription:\\d+}/compliance")
+	public SlaComputations complianceSla(@PathParam("subscription") final int subscription,
+			@QueryParam("from") final Long from, @QueryParam("to") final Long to,
+			@DefaultValue(SlaTimeSeries.WEEK) @QueryParam("granularity") final String granularity) throws IOException {
+		final BugTrackerConfiguration configuration = getConfigurationBySubscription(subscription);
+		final List<Sla> slas = new ArrayList<>(configuration.getSlas());
+		try (Stream<ChangeItem> changes = getChanges(configuration, slas)) {
+			return slaProcessor.compliance(calendarCache.get(configuration), changes.iterator(), slas,
+					from == null ? null : new Date(from), to == null ? null : new Date(to), granularity);
+		}
+	}
+
+	/**
+	 * Submit the SLA computations of all issues of the given subscription. The computations run asynchronously in a
+	 * read-only transaction, with the security context of the caller. The returned job is polled until its completion.
+	 * 
+	 * @param subscription
+	 *            The subscription identifier.
+	 * @return The queued job.
+	 */
+	@POST
+	@Path("sla/{subscription:\\d+}/job")
+	public SlaJob submitSlaJob(@PathParam("subscription") final int subscription) {
+		final BugTrackerConfiguration configuration = getConfigurationBySubscription(subscription);
+
+		// The entities are not read by the job
+		final List<Sla> slas = new ArrayList<>(configuration.getSlas());
+		final BusinessCalendar calendar = calendarCache.get(configuration);
+		final BugTrackerServicePlugin provider = getProvider(configuration);
+		return jobRunner.submit(subscription, progress -> inReadOnlyTransaction(() -> {
+			try (Stream<ChangeItem> changes = provider.getChanges(subscription, slas)) {
+				return slaProcessor.process(calendar, changes.iterator(), slas, null, progress);
+			}
+		}));
+	}
+
+	/**
+	 * Return a SLA computation job with its progress. A job removed at the end of its retention is reported as expired,
+	 * not as unknown.
+	 * 
+	 * @param id
+	 *            The job identifier.
+	 * @return The job.
+	 */
+	@GET
+	@Path("sla/job/{id}")
+	public SlaJob getSlaJob(@PathParam("id") final String id) {
+		return checkSlaJob(id);
+	}
+
+	/**
+	 * Cancel a SLA computation job. Has no effect on a completed job.
+	 * 
+	 * @param id
+	 *            The job identifier.
+	 * @return The job.
+	 */
+	@DELETE
+	@Path("sla/job/{id}")
+	public SlaJob cancelSlaJob(@PathParam("id") final String id) {
+		return jobRunner.cancel(checkSlaJob(id).getId());
+	}
+
+	/**
+	 * Return the SLA computations of a successfully completed job.
+	 * 
+	 * @param id
+	 *            The job identifier.
+	 * @return The SLA computations.
+	 */
+	@GET
+	@Path("sla/job/{id}/result")
+	public SlaComputations getSlaJobResult(@PathParam("id") final String id) {
+		return jobRunner.getResult(checkSlaJob(id).getId());
+	}
+
+	/**
+	 * Check and return the SLA computation job of a visible subscription.
+	 */
+	private SlaJob checkSlaJob(final String id) {
+		final SlaJob job = jobRunner.get(id);
+		subscriptionResource.checkVisible(job.getSubscription());
+		return job;
+	}
+
+	/**
+	 * Return the changes of the given configuration from its provider, ordered by date.
+	 */
+	private Stream<ChangeItem> getChanges(final BugTrackerConfiguration configuration, final List<Sla> slas)
+			throws IOException {
+		return getProvider(configuration).getChanges(configuration.getSubscription().getId(), slas);
+	}
+
+	/**
+	 * Return the provider of the given configuration.
+	 */
+	private BugTrackerServicePlugin getProvider(final BugTrackerConfiguration configuration) {
+		return servicePluginLocator.getResourceExpected(configuration.getSubscription().getNode().getId(),
+				BugTrackerServicePlugin.class);
+	}
+
 	/**
 	 * Check business hours overlaps.
 	 */
@@ -4,9 +4,14 @@
 package org.ligoj.app.plugin.bt;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.ligoj.app.api.ServicePlugin;
+import org.ligoj.app.plugin.bt.model.ChangeItem;
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.ligoj.bootstrap.core.resource.BusinessException;
 
 /**
  * Features of bug tracker implementations.
@@ -56,4 +61,34 @@ public interface BugTrackerServicePlugin extends ServicePlugin {
 	 *             When resolutions cannot read.
 	 */
 	Set<String> getResolutions(int subscription) throws IOException;
+
+	/**
+	 * Return the status changes of all issues, read lazily. The identifier sets of the given SLA are resolved with the
+	 * identifiers of this bug tracker.
+	 * 
+	 * @param subscription
+	 *            the subscription's identifier.
+	 * @param slas
+	 *            the SLA of this subscription, to resolve.
+	 * @return the changes of all issues, ordered by date, then by issue identifier. Must be closed once read.
+	 * @throws IOException
+	 *             When changes cannot read.
+	 */
+	default Stream<ChangeItem> getChanges(final int subscription, final List<Sla> slas) throws IOException {
+		throw new BusinessException("service:bt:no-changes");
+	}
+
+	/**
+	 * Return the latest status change of all issues, without reading the other changes.
+	 * 
+	 * @param subscription
+	 *            the subscription's identifier.
+	 * @return the latest change, or <code>null</code> when not supported. In this case, the SLA computations are not
+	 *         cached.
+	 * @throws IOException
+	 *             When the change cannot read.
+	 */
+	default ChangeItem getLastChange(final int subscription) throws IOException {
+		return null;
+	}
 }
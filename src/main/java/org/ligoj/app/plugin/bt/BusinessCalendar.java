@@ -0,0 +1,249 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.ligoj.app.plugin.bt.model.BusinessHours;
+
+/**
+ * A compiled business calendar. The cumulated business time of each day is computed once from the holidays and the
+ * business hours, so the business time between two instants is two lookups and a subtraction. Saturday and Sunday are
+ * not business days.
+ * <p>
+ * The indexed span covers the holidays. Before and after this span, there is no holiday and the cumulated business time
+ * is computed from the amount of business days of week.
+ * <p>
+ * All lookups work on epoch milliseconds and epoch days, and do not allocate any object. This calendar is immutable and
+ * thread safe: it is built once for a {@link org.ligoj.app.plugin.bt.model.Calendar} and a set of business hours, then
+ * shared by the {@link ComputationContext} cursors of many SLA computations.
+ */
+public final class BusinessCalendar {
+
+	/**
+	 * Amount of business days of week within the first days of a week starting with the epoch day <code>0</code>, a
+	 * Thursday.
+	 */
+	private static final int[] BUSINESS_DAYS_OF_EPOCH_WEEK = { 0, 1, 2, 2, 2, 3, 4, 5 };
+
+	/**
+	 * The time zone used to compute the start of each day.
+	 */
+	private final TimeZone timeZone = TimeZone.getDefault();
+
+	/**
+	 * Business hour range starts within a day. Same order as {@link #ends}.
+	 */
+	private final long[] starts;
+
+	/**
+	 * Business hour range ends within a day. Same order as {@link #starts}.
+	 */
+	private final long[] ends;
+
+	/**
+	 * Business time of a whole business day.
+	 */
+	private final long daily;
+
+	/**
+	 * Epoch day of the first indexed day.
+	 */
+	private final long firstDay;
+
+	/**
+	 * The holidays of the indexed span. Bit index is the day from {@link #firstDay}.
+	 */
+	private final BitSet holidays = new BitSet();
+
+	/**
+	 * Cumulated business time from the start of {@link #firstDay} to the start of each indexed day. Contains one more
+	 * entry than the indexed days to store the end of the span.
+	 */
+	private final long[] cumulated;
+
+	/**
+	 * Compile the business calendar.
+	 *
+	 * @param holidays      the holiday list. Each day must be set to start of the day position.
+	 * @param businessHours The business hour ranges. When empty, the whole day is a business range.
+	 */
+	public BusinessCalendar(final List<Date> holidays, final List<BusinessHours> businessHours) {
+		final var ranges = businessHours.stream().filter(r -> r.getStart() < r.getEnd()).toList();
+		if (ranges.isEmpty()) {
+			// Whole day is a working day
+			this.starts = new long[] { 0 };
+			this.ends = new long[] { DateUtils.MILLIS_PER_DAY };
+		} else {
+			this.starts = ranges.stream().mapToLong(BusinessHours::getStart).toArray();
+			this.ends = ranges.stream().mapToLong(BusinessHours::getEnd).toArray();
+		}
+		this.daily = getTimeBusinessTime(DateUtils.MILLIS_PER_DAY);
+
+		// Index the span of the holidays
+		final long[] days = holidays.stream().mapToLong(h -> getDay(h.getTime())).sorted().distinct().toArray();
+		this.firstDay = days.length == 0 ? 0 : days[0];
+		this.cumulated = new long[days.length == 0 ? 1 : (int) (days[days.length - 1] - firstDay + 2)];
+		for (final long day : days) {
+			this.holidays.set((int) (day - firstDay));
+		}
+		for (int i = 1; i < cumulated.length; i++) {
+			cumulated[i] = cumulated[i - 1] + (isBusinessDay(firstDay + i - 1) ? daily : 0);
+		}
+	}
+
+	/**
+	 * Return the cumulated business time from the start of the indexed span to the given instant.
+	 *
+	 * @param instant The instant, in milliseconds since epoch.
+	 * @return The cumulated business time. Negative when the instant is before the indexed span.
+	 */
+	public long getBusinessTime(final long instant) {
+		final long local = instant + timeZone.getOffset(instant);
+		return getBusinessTime(Math.floorDiv(local, DateUtils.MILLIS_PER_DAY), Math.floorMod(local, DateUtils.MILLIS_PER_DAY));
+	}
+
+	/**
+	 * Return the cumulated business time from the start of the indexed span to the given time of the given day.
+	 *
+	 * @param day  The epoch day.
+	 * @param time The time within the day. Between 0 and {@link DateUtils#MILLIS_PER_DAY}.
+	 * @return The cumulated business time. Negative when the day is before the indexed span.
+	 */
+	public long getBusinessTime(final long day, final long time) {
+		final long business = getDayBusinessTime(day);
+		if (isBusinessDay(day)) {
+			// Add the elapsed business hours of this day
+			return business + getTimeBusinessTime(time);
+		}
+		return business;
+	}
+
+	/**
+	 * Return the business time between two instants.
+	 *
+	 * @param start The start date.
+	 * @param end   The end date.
+	 * @return The business time between the two instants. <code>0</code> when the end is before the start.
+	 */
+	public long getBusinessTime(final Date start, final Date end) {
+		return Math.max(0, getBusinessTime(end.getTime()) - getBusinessTime(start.getTime()));
+	}
+
+	/**
+	 * Indicate the given day is a business day : a business day of week and not a holiday.
+	 *
+	 * @param day The epoch day.
+	 * @return <code>true</code> when the given day is a business day.
+	 */
+	public boolean isBusinessDay(final long day) {
+		return isBusinessDayOfWeek(day) && !isHoliday(day);
+	}
+
+	/**
+	 * Indicate the given day is a holiday.
+	 *
+	 * @param day The epoch day.
+	 * @return <code>true</code> when the given day is a holiday.
+	 */
+	public boolean isHoliday(final long day) {
+		final long index = day - firstDay;
+		// No holiday outside the indexed span
+		return index >= 0 && index < cumulated.length - 1 && holidays.get((int) index);
+	}
+
+	/**
+	 * Return the cumulated business time from the start of the indexed span to the start of the given day.
+	 */
+	private long getDayBusinessTime(final long day) {
+		final long index = day - firstDay;
+		if (index < 0) {
+			// Before the first holiday, only the days of week are considered
+			return -daily * (getBusinessDaysOfWeek(firstDay) - getBusinessDaysOfWeek(day));
+		}
+		final int last = cumulated.length - 1;
+		if (index > last) {
+			// After the last holiday, only the days of week are considered
+			return cumulated[last] + daily * (getBusinessDaysOfWeek(day) - getBusinessDaysOfWeek(firstDay + last));
+		}
+		return cumulated[(int) index];
+	}
+
+	/**
+	 * Return the business time from the start of a business day to the given time of this day.
+	 */
+	private long getTimeBusinessTime(final long time) {
+		long business = 0;
+		for (int i = 0; i < starts.length; i++) {
+			business += Math.max(0, Math.min(time, ends[i]) - starts[i]);
+		}
+		return business;
+	}
+
+	/**
+	 * Return the epoch day of the given instant.
+	 *
+	 * @param instant The instant, in milliseconds since epoch.
+	 * @return The epoch day in the time zone of this calendar.
+	 */
+	public long getDay(final long instant) {
+		return Math.floorDiv(instant + timeZone.getOffset(instant), DateUtils.MILLIS_PER_DAY);
+	}
+
+	/**
+	 * Return the time of the day of the given instant. Same value as the hours, minutes, seconds and milliseconds
+	 * fields of a {@link java.util.Calendar}.
+	 *
+	 * @param instant The instant, in milliseconds since epoch.
+	 * @return The time within the day. Between 0 and {@link DateUtils#MILLIS_PER_DAY}.
+	 */
+	public long getTime(final long instant) {
+		return Math.floorMod(instant + timeZone.getOffset(instant), DateUtils.MILLIS_PER_DAY);
+	}
+
+	/**
+	 * Return the start of the given day.
+	 *
+	 * @param day The epoch day.
+	 * @return The instant of the start of the day, in milliseconds since epoch.
+	 */
+	public long getDayStart(final long day) {
+		final long local = day * DateUtils.MILLIS_PER_DAY;
+		return local - timeZone.getOffset(local - timeZone.getOffset(local));
+	}
+
+	/**
+	 * Return the business hour range starts within a day. Same order as {@link #getEnds()}.
+	 */
+	long[] getStarts() {
+		return starts;
+	}
+
+	/**
+	 * Return the business hour range ends within a day. Same order as {@link #getStarts()}.
+	 */
+	long[] getEnds() {
+		return ends;
+	}
+
+	/**
+	 * Indicate the given epoch day is neither a Saturday nor a Sunday.
+	 */
+	private static boolean isBusinessDayOfWeek(final long day) {
+		// Epoch day 0 is a Thursday
+		return Math.floorMod(day + 3, 7) < 5;
+	}
+
+	/**
+	 * Return the amount of business days of week between the epoch day <code>0</code> and the given epoch day,
+	 * excluded.
+	 */
+	private static long getBusinessDaysOfWeek(final long day) {
+		return Math.floorDiv(day, 7) * 5 + BUSINESS_DAYS_OF_EPOCH_WEEK[Math.floorMod(day, 7)];
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.ligoj.app.plugin.bt.model.BugTrackerConfiguration;
+import org.ligoj.app.plugin.bt.model.BusinessHours;
+import org.ligoj.app.plugin.bt.model.Holiday;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Process-wide cache of the compiled business calendars, keyed by calendar and business hours. Many subscriptions
+ * share the same calendar, so the holidays are loaded and compiled once. This class is also the entity listener of
+ * {@link Holiday}, {@link org.ligoj.app.plugin.bt.model.Calendar} and {@link BusinessHours}: any change of these
+ * entities invalidates the whole cache, since they are rarely updated. The listener instances are not managed by
+ * Spring, so the cache is static.
+ */
+@Component
+public class BusinessCalendarCache {
+
+	/**
+	 * The key of a compiled calendar: the calendar identifier and the business hours ranges.
+	 */
+	private record Key(int calendar, List<Long> businessHours) {
+	}
+
+	/**
+	 * A compiled calendar, and the generation of the cache when its compilation started.
+	 */
+	private record Entry(long generation, BusinessCalendar calendar) {
+	}
+
+	/**
+	 * The generation of the cache, incremented by each invalidation.
+	 */
+	private static final AtomicLong GENERATION = new AtomicLong();
+
+	/**
+	 * The compiled calendars.
+	 */
+	private static final Map<Key, Entry> CALENDARS = new ConcurrentHashMap<>();
+
+	/**
+	 * Return the compiled business calendar of the given configuration. The holidays are loaded only when not cached.
+	 *
+	 * @param configuration The bug tracker configuration.
+	 * @return The compiled calendar. May be shared by several computations.
+	 */
+	public BusinessCalendar get(final BugTrackerConfiguration configuration) {
+		final List<BusinessHours> businessHours = new ArrayList<>(configuration.getBusinessHours());
+		final List<Long> ranges = new ArrayList<>(businessHours.size() * 2);
+		businessHours.forEach(h -> {
+			ranges.add(h.getStart());
+			ranges.add(h.getEnd());
+		});
+		final Key key = new Key(configuration.getCalendar().getId(), ranges);
+		final Entry entry = CALENDARS.get(key);
+		if (entry != null && entry.generation() == GENERATION.get()) {
+			return entry.calendar();
+		}
+
+		// Compile this calendar, a concurrent invalidation makes it stale
+		final long generation = GENERATION.get();
+		final BusinessCalendar calendar = new BusinessCalendar(
+				configuration.getCalendar().getHolidays().stream().map(Holiday::getDate).toList(), businessHours);
+		CALENDARS.put(key, new Entry(generation, calendar));
+		return calendar;
+	}
+
+	/**
+	 * Invalidate all compiled calendars, now and at the end of the current transaction. So the calendars compiled from
+	 * uncommitted or rolled back changes are not kept.
+	 */
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	public void invalidate(final Object entity) {
+		invalidate();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(final int status) {
+					invalidate();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Return the generation of the cache, changing with each change of the calendars and of the business hours.
+	 *
+	 * @return The current generation.
+	 */
+	public static long getGeneration() {
+		return GENERATION.get();
+	}
+
+	/**
+	 * Invalidate all compiled calendars.
+	 */
+	public static void invalidate() {
+		GENERATION.incrementAndGet();
+		CALENDARS.clear();
+	}
+}
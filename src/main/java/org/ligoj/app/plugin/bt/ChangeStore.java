@@ -0,0 +1,283 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.ligoj.app.plugin.bt.model.ChangeItem;
+
+/**
+ * A columnar store of status changes. Each change is stored in parallel primitive arrays: issue index, statuses,
+ * creation date, snapshot time and the index of the next change of the same issue. The issue attributes are stored
+ * once per issue, built from the first change of this issue and refreshed by each next one.
+ * <p>
+ * The changes of an issue are chained in the order they have been added, so they can be read issue by issue without
+ * any per issue list. This store is not thread safe while changes are added, but can be read concurrently.
+ */
+public class ChangeStore {
+
+	/**
+	 * No more change.
+	 */
+	public static final int NONE = -1;
+
+	/**
+	 * Issue index of each change.
+	 */
+	private int[] issues;
+
+	/**
+	 * Previous status of each change, as declared by the change. {@link #NONE} when not declared.
+	 */
+	private int[] fromStatuses;
+
+	/**
+	 * New status of each change.
+	 */
+	private int[] toStatuses;
+
+	/**
+	 * Creation date of each change, in milliseconds since epoch.
+	 */
+	private long[] createds;
+
+	/**
+	 * Snapshot time of each change.
+	 */
+	private long[] snapshotTimes;
+
+	/**
+	 * Next change of the same issue, or {@link #NONE}.
+	 */
+	private int[] nexts;
+
+	/**
+	 * Amount of changes.
+	 */
+	private int size;
+
+	/**
+	 * First change of each issue.
+	 */
+	private int[] firsts = new int[16];
+
+	/**
+	 * Last change of each issue.
+	 */
+	private int[] lasts = new int[16];
+
+	/**
+	 * The issue attributes. Index is the issue index.
+	 */
+	private final List<IssueStatus> issueDetails = new ArrayList<>();
+
+	/**
+	 * Issue index of each issue identifier.
+	 */
+	private final Map<Integer, Integer> issueIndexes = new HashMap<>();
+
+	/**
+	 * Build an empty store.
+	 *
+	 * @param capacity The initial capacity, in changes.
+	 */
+	public ChangeStore(final int capacity) {
+		final int initial = Math.max(16, capacity);
+		issues = new int[initial];
+		fromStatuses = new int[initial];
+		toStatuses = new int[initial];
+		createds = new long[initial];
+		snapshotTimes = new long[initial];
+		nexts = new int[initial];
+	}
+
+	/**
+	 * Add a change. The issue attributes are built from the first change of each issue, then refreshed by the next
+	 * changes, so they are the ones of the latest change.
+	 *
+	 * @param change       The change to add.
+	 * @param snapshotTime The snapshot time of this change.
+	 * @param toIssue      The function building the issue attributes from the first change of this issue.
+	 * @param refresh      The function refreshing the issue attributes from a next change of this issue.
+	 * @return The index of the added change.
+	 */
+	public int add(final ChangeItem change, final long snapshotTime, final Function<ChangeItem, IssueStatus> toIssue,
+			final BiConsumer<IssueStatus, ChangeItem> refresh) {
+		if (size == issues.length) {
+			grow();
+		}
+		final int index = size++;
+		final int issueIndex = getIssueIndex(change, toIssue, refresh);
+		issues[index] = issueIndex;
+		fromStatuses[index] = change.getFromStatus() == null ? NONE : change.getFromStatus();
+		toStatuses[index] = change.getToStatus();
+		createds[index] = change.getCreated().getTime();
+		snapshotTimes[index] = snapshotTime;
+		nexts[index] = NONE;
+		if (lasts[issueIndex] == NONE) {
+			// First change of this issue
+			firsts[issueIndex] = index;
+		} else {
+			nexts[lasts[issueIndex]] = index;
+		}
+		lasts[issueIndex] = index;
+		return index;
+	}
+
+	/**
+	 * Return the issue index of the given change, and register this issue when new. The attributes of a known issue
+	 * are refreshed.
+	 */
+	private int getIssueIndex(final ChangeItem change, final Function<ChangeItem, IssueStatus> toIssue,
+			final BiConsumer<IssueStatus, ChangeItem> refresh) {
+		final Integer existing = issueIndexes.get(change.getId());
+		if (existing != null) {
+			refresh.accept(issueDetails.get(existing), change);
+			return existing;
+		}
+		final int issueIndex = issueDetails.size();
+		if (issueIndex == firsts.length) {
+			firsts = Arrays.copyOf(firsts, issueIndex * 2);
+			lasts = Arrays.copyOf(lasts, issueIndex * 2);
+		}
+		firsts[issueIndex] = NONE;
+		lasts[issueIndex] = NONE;
+		issueDetails.add(toIssue.apply(change));
+		issueIndexes.put(change.getId(), issueIndex);
+		return issueIndex;
+	}
+
+	/**
+	 * Double the capacity of the change arrays.
+	 */
+	private void grow() {
+		final int capacity = issues.length * 2;
+		issues = Arrays.copyOf(issues, capacity);
+		fromStatuses = Arrays.copyOf(fromStatuses, capacity);
+		toStatuses = Arrays.copyOf(toStatuses, capacity);
+		createds = Arrays.copyOf(createds, capacity);
+		snapshotTimes = Arrays.copyOf(snapshotTimes, capacity);
+		nexts = Arrays.copyOf(nexts, capacity);
+	}
+
+	/**
+	 * Return the amount of changes.
+	 *
+	 * @return The amount of changes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the amount of issues.
+	 *
+	 * @return The amount of issues.
+	 */
+	public int getIssueCount() {
+		return issueDetails.size();
+	}
+
+	/**
+	 * Return the attributes of the given issue.
+	 *
+	 * @param issue The issue index.
+	 * @return The issue attributes.
+	 */
+	public IssueStatus getIssue(final int issue) {
+		return issueDetails.get(issue);
+	}
+
+	/**
+	 * Return the first change of the given issue.
+	 *
+	 * @param issue The issue index.
+	 * @return The index of the first change of this issue.
+	 */
+	public int getFirst(final int issue) {
+		return firsts[issue];
+	}
+
+	/**
+	 * Return the next change of the same issue.
+	 *
+	 * @param change The change index.
+	 * @return The index of the next change of the same issue, or {@link #NONE}.
+	 */
+	public int getNext(final int change) {
+		return nexts[change];
+	}
+
+	/**
+	 * Return the issue index of the given change.
+	 *
+	 * @param change The change index.
+	 * @return The issue index.
+	 */
+	public int getIssueIndex(final int change) {
+		return issues[change];
+	}
+
+	/**
+	 * Return the previous status of the given change, as declared by the change.
+	 *
+	 * @param change The change index.
+	 * @return The previous status identifier. {@link #NONE} when not declared, such as for the creation of an issue.
+	 */
+	public int getFromStatus(final int change) {
+		return fromStatuses[change];
+	}
+
+	/**
+	 * Return the new status of the given change.
+	 *
+	 * @param change The change index.
+	 * @return The new status identifier.
+	 */
+	public int getStatus(final int change) {
+		return toStatuses[change];
+	}
+
+	/**
+	 * Return the creation date of the given change.
+	 *
+	 * @param change The change index.
+	 * @return The creation date, in milliseconds since epoch.
+	 */
+	public long getCreated(final int change) {
+		return createds[change];
+	}
+
+	/**
+	 * Return the snapshot time of the given change.
+	 *
+	 * @param change The change index.
+	 * @return The snapshot time.
+	 */
+	public long getSnapshotTime(final int change) {
+		return snapshotTimes[change];
+	}
+
+	/**
+	 * Return a new status change from the given change, without elapsed time.
+	 *
+	 * @param change The change index.
+	 * @return A new status change.
+	 */
+	public StatusChange newStatusChange(final int change) {
+		final StatusChange statusChange = new StatusChange();
+		statusChange.setStatus(toStatuses[change]);
+		statusChange.setFromStatus(fromStatuses[change] == NONE ? null : fromStatuses[change]);
+		statusChange.setCreated(new Date(createds[change]));
+		statusChange.setSnapshotTime(snapshotTimes[change]);
+		return statusChange;
+	}
+}
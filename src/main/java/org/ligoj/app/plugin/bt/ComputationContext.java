@@ -3,8 +3,6 @@
  */
 package org.ligoj.app.plugin.bt;
 
-import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -14,37 +12,50 @@ import org.ligoj.app.plugin.bt.model.BusinessHours;
 import lombok.Getter;
 
 /**
- * A computation context for a fixed start and end dates.
+ * A computation context for a fixed start and end dates. All cursors are epoch milliseconds and epoch days, the
+ * day boundaries are computed once per day, and the primitive methods do not allocate any object.
+ * <p>
+ * This context is a lightweight mutable cursor over a shared {@link BusinessCalendar}, and must not be shared between
+ * threads.
  *
  * @author Fabrice Daugan
  */
 public class ComputationContext {
 
 	/**
-	 * The cursor date only, at 0:00 00.000. Truncated to {@link Calendar#DATE}
+	 * The compiled calendar used to compute the business time between two dates.
 	 */
-	@Getter
-	private Date cursor;
+	private final BusinessCalendar calendar;
 
 	/**
-	 * The non-business days. Each day must be set to start of the day position.
+	 * The business hour range starts. Never empty and sorted.
 	 */
-	private final List<Date> holidays;
+	private final long[] starts;
 
 	/**
-	 * The non-business hour ranges. Never empty or must be sorted.
+	 * The business hour range ends. Same order as {@link #starts}.
 	 */
-	private final List<BusinessHours> businessHours;
+	private final long[] ends;
 
 	/**
-	 * Last read holiday index within {@link #holidays}
+	 * Current computed delta value.
 	 */
-	private int holidayCursor;
+	private long delta;
 
 	/**
-	 * Current computed delta value.
+	 * The cursor epoch day. {@link Long#MIN_VALUE} until the first reset.
 	 */
-	private long delta;
+	private long cursorDay = Long.MIN_VALUE;
+
+	/**
+	 * Start of the cursor day, in milliseconds since epoch.
+	 */
+	private long cursorDayStart;
+
+	/**
+	 * Start of the day following the cursor day, in milliseconds since epoch.
+	 */
+	private long cursorDayEnd;
 
 	/**
 	 * Time cursor with a day. Between 0 and {@link DateUtils#MILLIS_PER_DAY}
@@ -53,7 +64,7 @@ public class ComputationContext {
 	private long cursorTime;
 
 	/**
-	 * The current index of time range within {@link #businessHours}..
+	 * The current index of time range within {@link #starts}.
 	 */
 	private int cursorBusinessHour;
 
@@ -66,16 +77,37 @@ public class ComputationContext {
 	 *            The business hour ranges. May be empty or must be sorted, and first range must start with 0:00 00.000.
 	 */
 	public ComputationContext(final List<Date> holidays, final List<BusinessHours> businessHours) {
-		this.holidays = holidays;
-		if (businessHours.isEmpty()) {
-			// Whole day is a working day
-			final BusinessHours businessHour = new BusinessHours();
-			businessHour.setStart(0);
-			businessHour.setEnd(DateUtils.MILLIS_PER_DAY);
-			this.businessHours = Collections.singletonList(businessHour);
-		} else {
-			this.businessHours = businessHours;
-		}
+		this(new BusinessCalendar(holidays, businessHours));
+	}
+
+	/**
+	 * initialize the computation context from a compiled calendar. Nothing is copied.
+	 *
+	 * @param calendar
+	 *            the compiled business calendar. May be shared by several contexts.
+	 */
+	public ComputationContext(final BusinessCalendar calendar) {
+		this.calendar = calendar;
+		this.starts = calendar.getStarts();
+		this.ends = calendar.getEnds();
+	}
+
+	/**
+	 * Return the cursor date only, at 0:00 00.000.
+	 *
+	 * @return The cursor date only, or <code>null</code> before the first reset.
+	 */
+	public Date getCursor() {
+		return isReset() ? new Date(cursorDayStart) : null;
+	}
+
+	/**
+	 * Indicate this context has been reset at least once.
+	 *
+	 * @return <code>true</code> when the cursors are set.
+	 */
+	public boolean isReset() {
+		return cursorDay != Long.MIN_VALUE;
 	}
 
 	/**
@@ -86,9 +118,28 @@ public class ComputationContext {
 	 *            the initial date.
 	 */
 	public void reset(final Date start) {
-		this.cursor = new Date(DateUtils.truncate(start, Calendar.DATE).getTime());
-		this.holidayCursor = 0;
-		this.cursorTime = getTime(start);
+		reset(start.getTime());
+	}
+
+	/**
+	 * Set the initial date. This date will be moved forward until to find the closest opening day and the business
+	 * hour.
+	 *
+	 * @param start
+	 *            the initial date, in milliseconds since epoch.
+	 */
+	public void reset(final long start) {
+		moveTo(start);
+	}
+
+	/**
+	 * Move the cursors to the given date, then the next business time. No updated delta.
+	 */
+	private void moveTo(final long date) {
+		this.cursorDay = calendar.getDay(date);
+		this.cursorDayStart = calendar.getDayStart(cursorDay);
+		this.cursorDayEnd = calendar.getDayStart(cursorDay + 1);
+		this.cursorTime = calendar.getTime(date);
 		moveToNextBusiness();
 	}
 
@@ -104,14 +155,13 @@ public class ComputationContext {
 	 * Move the cursors to the next business hour. No updated delta.
 	 */
 	private void moveToNextBusinessHour() {
-		for (cursorBusinessHour = 0; cursorBusinessHour < businessHours.size(); cursorBusinessHour++) {
-			final BusinessHours range = businessHours.get(cursorBusinessHour);
-			if (cursorTime <= range.getStart()) {
+		for (cursorBusinessHour = 0; cursorBusinessHour < starts.length; cursorBusinessHour++) {
+			if (cursorTime <= starts[cursorBusinessHour]) {
 				// The current range is the closest business hours range
-				cursorTime = range.getStart();
+				cursorTime = starts[cursorBusinessHour];
 				return;
 			}
-			if (cursorTime < range.getEnd()) {
+			if (cursorTime < ends[cursorBusinessHour]) {
 				// The current range is the right business hours range
 				return;
 			}
@@ -125,73 +175,82 @@ public class ComputationContext {
 	 * Return the next business day : business day of week and not a holiday. No updated delta.
 	 */
 	private void moveToNextBusinessDay() {
-		Date previousDate;
-		do {
-			previousDate = cursor;
-			moveToNextBusinessDayOfWeek();
-			moveToNextNotHoliday();
-		} while (!cursor.equals(previousDate));
+		while (!calendar.isBusinessDay(cursorDay)) {
+			// Saturday, Sunday or holiday --> next day 00:00 00.000
+			moveToNextDay();
+			cursorTime = starts[0];
+		}
 	}
 
 	/**
-	 * Move the date to the next day that is not a holiday. No updated delta.
+	 * Move the cursors to tomorrow, then the next business time. No updated delta.
 	 */
-	private void moveToNextNotHoliday() {
-		while (holidayCursor < holidays.size()) {
-			final Date holiday = holidays.get(holidayCursor);
-			if (holiday.getTime() > cursor.getTime()) {
-				// The date is before the first known holiday
-				break;
-			}
-
-			// Either it's a holiday, either we have to skip increase cursor
-			holidayCursor++;
-			if (DateUtils.isSameDay(holiday, cursor)) {
-				// The date is a holiday, go to the next day 00:00 00.000
-				moveToTomorrow();
-			}
-			// The holiday cursor is too old, advance it only
-		}
-
-		// All holidays are before this date
+	private void moveToTomorrow() {
+		moveToNextDay();
+		cursorBusinessHour = 0;
+		cursorTime = starts[0];
+		moveToNextBusiness();
 	}
 
 	/**
-	 * Move the date to the next business day of week. No updated delta.
+	 * Move the day cursors to the next day.
 	 */
-	private void moveToNextBusinessDayOfWeek() {
-		final int dow = DateUtils.toCalendar(cursor).get(Calendar.DAY_OF_WEEK);
-		if (dow == Calendar.SUNDAY || dow == Calendar.SATURDAY) {
-			// Sunday/Saturday --> Monday 00:00 00.000
-			moveToTomorrow();
-		}
+	private void moveToNextDay() {
+		cursorDay++;
+		cursorDayStart = cursorDayEnd;
+		cursorDayEnd = calendar.getDayStart(cursorDay + 1);
 	}
 
 	/**
-	 * Move the cursors to tomorrow, then the next business time. No updated delta.
+	 * Compute time duration in milliseconds between last known (or initial date) and the given date.
+	 *
+	 * @param end
+	 *            The end date for delta computation. This date should be after the last known one or will return
+	 *            <code>0</code>.
+	 * @return time duration in milliseconds between start and end date. The returned value is a positive number.
 	 */
-	private void moveToTomorrow() {
-		cursor = DateUtils.ceiling(cursor, Calendar.DATE);
-		cursorBusinessHour = 0;
-		cursorTime = businessHours.getFirst().getStart();
-		moveToNextBusiness();
+	public long moveForward(final Date end) {
+		return moveForwardTo(end.getTime());
 	}
 
 	/**
 	 * Compute time duration in milliseconds between last known (or initial date) and the given date.
 	 *
 	 * @param end
+	 *            The end date for delta computation, in milliseconds since epoch. This date should be after the last
+	 *            known one or will return <code>0</code>.
+	 * @return time duration in milliseconds between start and end date. The returned value is a positive number.
+	 */
+	public long moveForwardTo(final long end) {
+		if (cursorDayStart + cursorTime >= end) {
+			// The cursor is already after this date
+			return 0;
+		}
+
+		// Two lookups in the compiled calendar, then move the cursors to the next business time of the end date
+		final long result = calendar.getBusinessTime(end) - calendar.getBusinessTime(cursorDay, cursorTime);
+		moveTo(end);
+		return result;
+	}
+
+	/**
+	 * Compute time duration in milliseconds between last known (or initial date) and the given date, walking the
+	 * calendar day by day. This is the reference behavior of {@link #moveForward(Date)}, linear with the amount of
+	 * days.
+	 *
+	 * @param end
 	 *            The end date for delta computation. This date should be after the last known one or will return
 	 *            <code>0</code>.
 	 * @return time duration in milliseconds between start and end date. The returned value is a positive number.
 	 */
-	public long moveForward(final Date end) {
+	public long moveForwardDayByDay(final Date end) {
+		final long time = end.getTime();
 		this.delta = 0;
-		while (cursor.getTime() + cursorTime < end.getTime()) {
+		while (cursorDayStart + cursorTime < time) {
 			// We need to move the cursors
-			if (DateUtils.isSameDay(cursor, end)) {
+			if (time < cursorDayEnd) {
 				// We need to compute the elapsed ranges and hours within the same day
-				computeDelayTodayToTime(getTime(end));
+				computeDelayTodayToTime(calendar.getTime(time));
 			} else {
 				// Move to the end of this day
 				computeDelayTodayToTime(DateUtils.MILLIS_PER_DAY);
@@ -208,6 +267,17 @@ public class ComputationContext {
 	 * @return The new date.
 	 */
 	public Date moveForward(final long duration) {
+		return new Date(advance(duration));
+	}
+
+	/**
+	 * Advance the cursor with the given duration.
+	 *
+	 * @param duration
+	 *            Duration to add to current date. Business hours are considered.
+	 * @return The new date, in milliseconds since epoch.
+	 */
+	public long advance(final long duration) {
 		long remainingDuration = duration;
 		while (remainingDuration > 0) {
 			this.delta = 0;
@@ -218,7 +288,7 @@ public class ComputationContext {
 		}
 
 		// Return the new date
-		return new Date(cursor.getTime() + getCursorTime());
+		return cursorDayStart + cursorTime;
 	}
 
 	/**
@@ -227,14 +297,14 @@ public class ComputationContext {
 	 */
 	private void computeDelayTodayToTime(final long time) {
 		// Move from the position of current index of business hours range
-		while (cursorBusinessHour < businessHours.size()) {
-			final BusinessHours range = businessHours.get(cursorBusinessHour);
-			if (cursorTime < range.getStart()) {
+		while (cursorBusinessHour < starts.length) {
+			if (cursorTime < starts[cursorBusinessHour]) {
 				// Update the time cursor to the start of this closest range, no updated delay
-				cursorTime = range.getStart();
+				cursorTime = starts[cursorBusinessHour];
 				return;
 			}
-			if (time < range.getEnd()) {
+			final long end = ends[cursorBusinessHour];
+			if (time < end) {
 				// target time ends before the end of current business hours range
 				delta += time - cursorTime;
 				cursorTime = time;
@@ -242,8 +312,8 @@ public class ComputationContext {
 			}
 
 			// Current range is completed
-			delta += range.getEnd() - cursorTime;
-			cursorTime = range.getEnd();
+			delta += end - cursorTime;
+			cursorTime = end;
 
 			// Move to the next range
 			cursorBusinessHour++;
@@ -252,14 +322,4 @@ public class ComputationContext {
 		// End of day reached, move to the next business day
 		moveToTomorrow();
 	}
-
-	/**
-	 * Return the milliseconds of given date. Year, month and day fields are ignored.
-	 */
-	private long getTime(final Date date) {
-		final Calendar calendar = DateUtils.toCalendar(date);
-		return calendar.get(Calendar.HOUR_OF_DAY) * DateUtils.MILLIS_PER_HOUR
-				+ calendar.get(Calendar.MINUTE) * DateUtils.MILLIS_PER_MINUTE
-				+ calendar.get(Calendar.SECOND) * DateUtils.MILLIS_PER_SECOND + calendar.get(Calendar.MILLISECOND);
-	}
 }
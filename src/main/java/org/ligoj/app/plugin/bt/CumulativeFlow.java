@@ -0,0 +1,201 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.ligoj.bootstrap.core.DateUtils;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The daily work in progress of each status, built by a single sweep over the changes ordered by date. Each day holds
+ * the amount of issues in each status at the end of this day, so the cost is linear in the amount of changes and days.
+ * The statuses are indexed by a {@link StatusDictionary}, so the rows grow with the amount of distinct statuses, not
+ * with their identifiers. A missing status count is zero.
+ */
+public class CumulativeFlow {
+
+	/**
+	 * First day, at midnight. <code>null</code> when there is no change.
+	 */
+	@Getter
+	@Setter
+	private Date start;
+
+	/**
+	 * The index of the statuses in the rows.
+	 */
+	private final StatusDictionary dictionary = new StatusDictionary();
+
+	/**
+	 * Status counts by day, then by status index. Only the first {@link #days} rows are used.
+	 */
+	private int[][] counts = new int[0][];
+
+	/**
+	 * Amount of days.
+	 */
+	private int days;
+
+	/**
+	 * Start of the day following the last day. <code>null</code> when not yet computed.
+	 */
+	private Date end;
+
+	/**
+	 * Move an issue from a status to another one at the given date. The days between the last change and this date
+	 * are filled with the last counts.
+	 *
+	 * @param date The date of the change. Must not be before the previous change.
+	 * @param from The previous status identifier, or a negative value for a new issue.
+	 * @param to   The new status identifier.
+	 */
+	public void add(final Date date, final int from, final int to) {
+		moveTo(date);
+		increment(from, -1);
+		increment(to, 1);
+	}
+
+	/**
+	 * Add the days until the given date, with the counts of the last day. Without change, nothing is added.
+	 *
+	 * @param date The date included in the last day, such as now or the end of the requested range. When before the
+	 *             last day, nothing is added.
+	 */
+	public void extendTo(final Date date) {
+		if (start != null) {
+			moveTo(date);
+		}
+	}
+
+	/**
+	 * Return the amount of issues in a status at the end of a day.
+	 *
+	 * @param day    The day index, from the {@link #getStart()} day.
+	 * @param status The status identifier.
+	 * @return The amount of issues in this status.
+	 */
+	public int getCount(final int day, final int status) {
+		final int index = dictionary.indexOf(status);
+		return day >= 0 && day < days && index >= 0 && index < counts[day].length ? counts[day][index] : 0;
+	}
+
+	/**
+	 * Return the status identifiers of the rows.
+	 *
+	 * @return The status identifiers by index of the rows.
+	 */
+	public int[] getStatuses() {
+		return dictionary.getStatuses();
+	}
+
+	/**
+	 * Set the status identifiers of the rows.
+	 *
+	 * @param statuses The status identifiers by index of the rows.
+	 */
+	public void setStatuses(final int[] statuses) {
+		dictionary.setStatuses(statuses);
+	}
+
+	/**
+	 * Return the status counts.
+	 *
+	 * @return The status counts by day, then by status index.
+	 */
+	public int[][] getCounts() {
+		return Arrays.copyOf(counts, days);
+	}
+
+	/**
+	 * Set the status counts.
+	 *
+	 * @param counts The status counts by day, then by status index.
+	 */
+	public void setCounts(final int[][] counts) {
+		this.counts = counts;
+		this.days = counts.length;
+		this.end = null;
+	}
+
+	/**
+	 * Return a copy of this flow, updatable without side effect on this one.
+	 *
+	 * @return A copy of this flow.
+	 */
+	public CumulativeFlow copy() {
+		final CumulativeFlow copy = new CumulativeFlow();
+		copy.setStart(start);
+		copy.setStatuses(getStatuses());
+		copy.setCounts(getCounts());
+		if (days > 0) {
+			// Only the last day is updated
+			copy.counts[days - 1] = counts[days - 1].clone();
+		}
+		return copy;
+	}
+
+	/**
+	 * Add the days until the given date, with the counts of the last day.
+	 */
+	private void moveTo(final Date date) {
+		if (start == null) {
+			// First change
+			final Calendar calendar = DateUtils.newCalendar();
+			calendar.setTime(date);
+			calendar.set(Calendar.HOUR_OF_DAY, 0);
+			calendar.set(Calendar.MINUTE, 0);
+			calendar.set(Calendar.SECOND, 0);
+			calendar.set(Calendar.MILLISECOND, 0);
+			start = calendar.getTime();
+			append(new int[0]);
+		}
+		if (end == null) {
+			end = getDay(days);
+		}
+		while (!date.before(end)) {
+			append(counts[days - 1].clone());
+			end = getDay(days);
+		}
+	}
+
+	/**
+	 * Return the start of the given day index, in the application time zone.
+	 */
+	private Date getDay(final int day) {
+		final Calendar calendar = DateUtils.newCalendar();
+		calendar.setTime(start);
+		calendar.add(Calendar.DATE, day);
+		return calendar.getTime();
+	}
+
+	/**
+	 * Append a day.
+	 */
+	private void append(final int[] row) {
+		if (days == counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(16, days * 2));
+		}
+		counts[days++] = row;
+	}
+
+	/**
+	 * Update the count of a status at the last day.
+	 */
+	private void increment(final int status, final int increment) {
+		if (status < 0) {
+			// Not a status identifier
+			return;
+		}
+		final int index = dictionary.add(status);
+		if (index >= counts[days - 1].length) {
+			counts[days - 1] = Arrays.copyOf(counts[days - 1], dictionary.size());
+		}
+		counts[days - 1][index] += increment;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * A mergeable histogram of durations with a bounded memory. The magnitudes are counted in log-linear buckets: each
+ * power of two is split in 32 buckets, so a percentile is accurate to about 3% of its value, whatever the amount of
+ * recorded values. Negative values, such as due date distances, are counted apart.
+ */
+public class DurationHistogram {
+
+	/**
+	 * Bits of the bucket index within a power of two.
+	 */
+	private static final int SUB_BITS = 5;
+
+	/**
+	 * Amount of buckets within a power of two.
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/**
+	 * Amount of buckets covering the positive long values.
+	 */
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+	/**
+	 * Counts of the positive values and zero, allocated on the first value.
+	 */
+	private long[] positives;
+
+	/**
+	 * Counts of the negative values by magnitude, allocated on the first value.
+	 */
+	private long[] negatives;
+
+	/**
+	 * Amount of recorded values.
+	 */
+	@Getter
+	private long count;
+
+	/**
+	 * Lowest recorded value. {@link Long#MAX_VALUE} when empty.
+	 */
+	@Getter
+	private long min = Long.MAX_VALUE;
+
+	/**
+	 * Highest recorded value. {@link Long#MIN_VALUE} when empty.
+	 */
+	@Getter
+	private long max = Long.MIN_VALUE;
+
+	/**
+	 * Record a value.
+	 *
+	 * @param value The value to record.
+	 */
+	public void record(final long value) {
+		if (value < 0) {
+			negatives = increment(negatives, value == Long.MIN_VALUE ? Long.MAX_VALUE : -value, 1);
+		} else {
+			positives = increment(positives, value, 1);
+		}
+		count++;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Add the values of another histogram to this one.
+	 *
+	 * @param other The histogram to merge. Not updated.
+	 */
+	public void add(final DurationHistogram other) {
+		positives = add(positives, other.positives);
+		negatives = add(negatives, other.negatives);
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Return the value at the given percentile.
+	 *
+	 * @param percentile The percentile, from 0 to 100.
+	 * @return The lowest value such as the given percentage of the recorded values are lower or equal to this value.
+	 *         Rounded down to the lowest value of its bucket. <code>null</code> when empty.
+	 */
+	public Long getPercentile(final double percentile) {
+		if (count == 0) {
+			return null;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long cumulated = 0;
+		if (negatives != null) {
+			// Negative values, from the highest magnitude
+			for (int index = BUCKETS - 1; index >= 0; index--) {
+				cumulated += negatives[index];
+				if (cumulated >= rank) {
+					return Math.max(min, -getHighest(index));
+				}
+			}
+		}
+		for (int index = 0; index < BUCKETS; index++) {
+			cumulated += positives[index];
+			if (cumulated >= rank) {
+				return Math.min(max, Math.max(min, getLowest(index)));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Increment the count of the bucket of the given magnitude.
+	 */
+	private static long[] increment(final long[] counts, final long magnitude, final long increment) {
+		final long[] result = counts == null ? new long[BUCKETS] : counts;
+		result[getIndex(magnitude)] += increment;
+		return result;
+	}
+
+	/**
+	 * Return the sum of the given counts.
+	 */
+	private static long[] add(final long[] counts, final long[] others) {
+		if (others == null) {
+			return counts;
+		}
+		if (counts == null) {
+			return Arrays.copyOf(others, BUCKETS);
+		}
+		for (int index = 0; index < BUCKETS; index++) {
+			counts[index] += others[index];
+		}
+		return counts;
+	}
+
+	/**
+	 * Return the bucket index of the given positive magnitude.
+	 */
+	private static int getIndex(final long magnitude) {
+		if (magnitude < SUB_BUCKETS) {
+			// Exact buckets
+			return (int) magnitude;
+		}
+		final int shift = 63 - Long.numberOfLeadingZeros(magnitude) - SUB_BITS;
+		return shift * SUB_BUCKETS + (int) (magnitude >>> shift);
+	}
+
+	/**
+	 * Return the lowest magnitude of the given bucket.
+	 */
+	private static long getLowest(final int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			// Exact buckets
+			return index;
+		}
+		final int shift = index / SUB_BUCKETS - 1;
+		return (long) (index - shift * SUB_BUCKETS) << shift;
+	}
+
+	/**
+	 * Return the highest magnitude of the given bucket.
+	 */
+	private static long getHighest(final int index) {
+		return index == BUCKETS - 1 ? Long.MAX_VALUE : getLowest(index + 1) - 1;
+	}
+}
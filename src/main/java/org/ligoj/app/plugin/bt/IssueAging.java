@@ -0,0 +1,106 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+/**
+ * Keep the open issues having spent the most business time in their current status, for each status. Each status has
+ * a heap bounded to the limit, so the open issues are never sorted. Two agings of the same limit can be merged.
+ */
+public class IssueAging implements Consumer<IssueSla> {
+
+	/**
+	 * The oldest issues first, then by identifier.
+	 */
+	private static final Comparator<IssueSla> COMPARATOR = Comparator.comparingLong(IssueSla::getAge).reversed()
+			.thenComparing(IssueSla::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+	/**
+	 * The greatest accepted limit of kept issues by status.
+	 */
+	public static final int MAX_LIMIT = 1000;
+
+	/**
+	 * The initial capacity of the heap of a status, grown up to the limit when needed.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The maximal amount of kept issues by status.
+	 */
+	private final int limit;
+
+	/**
+	 * The kept issues of each status.
+	 */
+	private final Map<Integer, PriorityQueue<IssueSla>> heaps = new HashMap<>();
+
+	/**
+	 * Build an empty aging.
+	 *
+	 * @param limit The maximal amount of kept issues by status.
+	 */
+	public IssueAging(final int limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Return a collector folding the issues into a new aging.
+	 *
+	 * @param limit The maximal amount of kept issues by status.
+	 * @return The collector, supporting the parallel streams.
+	 */
+	public static Collector<IssueSla, ?, IssueAging> collector(final int limit) {
+		return Collector.of(() -> new IssueAging(limit), IssueAging::accept, IssueAging::add);
+	}
+
+	/**
+	 * Keep the given issue when open and older than the kept issues of its current status. The resolved issues are
+	 * ignored.
+	 */
+	@Override
+	public void accept(final IssueSla issue) {
+		if (issue.getResolution() == null) {
+			offer(issue);
+		}
+	}
+
+	/**
+	 * Merge the given aging into this one.
+	 *
+	 * @param other The aging of the same limit. Not updated.
+	 * @return This aging.
+	 */
+	public IssueAging add(final IssueAging other) {
+		other.heaps.values().forEach(heap -> heap.forEach(this::offer));
+		return this;
+	}
+
+	/**
+	 * Return the oldest open issues of each status.
+	 *
+	 * @return The oldest open issues, ordered by descending age. Key is the current status identifier.
+	 */
+	public Map<Integer, List<IssueSla>> getOldest() {
+		final Map<Integer, List<IssueSla>> result = new TreeMap<>();
+		heaps.forEach((status, heap) -> result.put(status, SlaProcessor.toSorted(heap, COMPARATOR)));
+		return result;
+	}
+
+	/**
+	 * Add the issue to the heap of its current status.
+	 */
+	private void offer(final IssueSla issue) {
+		SlaProcessor.offer(heaps.computeIfAbsent(issue.getCurrentStatus(), s -> SlaProcessor.newHeap(COMPARATOR, limit,
+				INITIAL_CAPACITY)), issue, COMPARATOR, limit);
+	}
+}
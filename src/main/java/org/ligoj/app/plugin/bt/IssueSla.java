@@ -27,4 +27,24 @@ public class IssueSla extends IssueDetails {
 	 * Statuses counter.Key is the status identifier.
 	 */
 	private Map<Integer, Integer> statusCounter;
+
+	/**
+	 * Business time spent in each status, until now for the current status. Key is the status identifier.
+	 */
+	private Map<Integer, Long> timeInStatus;
+
+	/**
+	 * Amount of changes going back to an already visited status, such as a reopening.
+	 */
+	private int loops;
+
+	/**
+	 * Status of the last change.
+	 */
+	private int currentStatus;
+
+	/**
+	 * Business time spent in the current status, until now.
+	 */
+	private long age;
 }
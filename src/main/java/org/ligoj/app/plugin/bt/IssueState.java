@@ -0,0 +1,71 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The state of an issue and its SLA, advanced change after change. A change is folded into this state once its
+ * elapsed time is known, so only the last change of the issue is kept. This state can be persisted within a
+ * {@link SlaCheckpoint}.
+ */
+@Getter
+@Setter
+public class IssueState {
+
+	/**
+	 * The issue details.
+	 */
+	private IssueStatus issue;
+
+	/**
+	 * The SLA states, same order than the SLA configurations. The applicability of each SLA is checked with the
+	 * latest issue details on completion.
+	 */
+	private SlaState[] slas;
+
+	/**
+	 * The paused SLA states. Not persisted, built from {@link #slas}.
+	 */
+	@JsonIgnore
+	private List<SlaState> paused = new ArrayList<>();
+
+	/**
+	 * The last change of this issue, not yet folded.
+	 */
+	private StatusChange last;
+
+	/**
+	 * Index of the next folded change.
+	 */
+	private int index;
+
+	/**
+	 * Cumulated elapsed time of the folded changes.
+	 */
+	private long cumulatedElapsed;
+
+	/**
+	 * Amount of folded changes by status.
+	 */
+	private Map<Integer, Integer> statusCounter = new HashMap<>();
+
+	/**
+	 * Business time spent in each status by the folded changes. Key is the status identifier.
+	 */
+	private Map<Integer, Long> timeInStatus = new HashMap<>();
+
+	/**
+	 * Amount of folded changes going back to an already visited status.
+	 */
+	private int loops;
+}
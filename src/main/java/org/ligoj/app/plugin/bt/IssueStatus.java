@@ -3,23 +3,11 @@
  */
 package org.ligoj.app.plugin.bt;
 
-import java.util.List;
-
 import org.ligoj.app.plugin.bt.model.IssueDetails;
 
-import lombok.Getter;
-import lombok.Setter;
-
 /**
  * An issue status change
  */
-@Getter
-@Setter
 public class IssueStatus extends IssueDetails {
-
-	/**
-	 * Ordered status changes.
-	 */
-	private List<StatusChange> changes;
-
+	// Details only, the status changes are folded into the issue state
 }
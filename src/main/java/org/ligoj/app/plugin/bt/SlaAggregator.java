@@ -0,0 +1,138 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+import org.ligoj.app.plugin.bt.model.Sla;
+
+/**
+ * Fold the SLA data of issues into statistics grouped by SLA, priority and type. The durations and the revised due
+ * date distances are counted in {@link DurationHistogram}, so the memory is bounded by the amount of groups, whatever
+ * the amount of issues. Two aggregators of the same SLA configurations can be merged.
+ */
+public class SlaAggregator implements Consumer<IssueSla> {
+
+	/**
+	 * The group of an issue.
+	 */
+	private record Group(int sla, Integer priority, int type) {
+	}
+
+	/**
+	 * The folded SLA data of a group.
+	 */
+	private static class Accumulator {
+		private final DurationHistogram durations = new DurationHistogram();
+		private final DurationHistogram distances = new DurationHistogram();
+		private long breached;
+	}
+
+	/**
+	 * Threshold of each SLA. <code>0</code> means none.
+	 */
+	private final long[] thresholds;
+
+	/**
+	 * The accumulators of each group.
+	 */
+	private final Map<Group, Accumulator> groups = new HashMap<>();
+
+	/**
+	 * Build an empty aggregator.
+	 *
+	 * @param slas the SLA configurations, in the order of the SLA data of each issue.
+	 */
+	public SlaAggregator(final List<Sla> slas) {
+		this.thresholds = slas.stream().mapToLong(Sla::getThreshold).toArray();
+	}
+
+	/**
+	 * Return a collector folding the issues into a new aggregator.
+	 *
+	 * @param slas the SLA configurations, in the order of the SLA data of each issue.
+	 * @return The collector, supporting the parallel streams.
+	 */
+	public static Collector<IssueSla, ?, SlaAggregator> collector(final List<Sla> slas) {
+		return Collector.of(() -> new SlaAggregator(slas), SlaAggregator::accept, SlaAggregator::add);
+	}
+
+	/**
+	 * Fold the SLA data of the given issue. The SLA not applicable or not started are ignored.
+	 */
+	@Override
+	public void accept(final IssueSla issue) {
+		final List<SlaData> data = issue.getData();
+		for (int sla = 0; sla < data.size(); sla++) {
+			final SlaData slaData = data.get(sla);
+			if (slaData != null && slaData.getStart() != null) {
+				final Accumulator accumulator = groups.computeIfAbsent(
+						new Group(sla, issue.getPriority(), issue.getType()), g -> new Accumulator());
+				accumulator.durations.record(slaData.getDuration());
+				if (slaData.getRevisedDueDateDistance() != null) {
+					accumulator.distances.record(slaData.getRevisedDueDateDistance());
+				}
+				if (thresholds[sla] > 0 && slaData.getDuration() > thresholds[sla]) {
+					accumulator.breached++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merge the given aggregator into this one.
+	 *
+	 * @param other The aggregator of the same SLA configurations. Not updated.
+	 * @return This aggregator.
+	 */
+	public SlaAggregator add(final SlaAggregator other) {
+		other.groups.forEach((group, source) -> {
+			final Accumulator accumulator = groups.computeIfAbsent(group, g -> new Accumulator());
+			accumulator.durations.add(source.durations);
+			accumulator.distances.add(source.distances);
+			accumulator.breached += source.breached;
+		});
+		return this;
+	}
+
+	/**
+	 * Return the statistics of each group.
+	 *
+	 * @return The statistics ordered by SLA, priority and type.
+	 */
+	public List<SlaStatistics> getStatistics() {
+		return groups.entrySet().stream()
+				.sorted(Map.Entry.comparingByKey(Comparator.comparingInt(Group::sla)
+						.thenComparing(Group::priority, Comparator.nullsFirst(Comparator.naturalOrder()))
+						.thenComparingInt(Group::type)))
+				.map(e -> toStatistics(e.getKey(), e.getValue())).toList();
+	}
+
+	/**
+	 * Return the statistics of a group.
+	 */
+	private SlaStatistics toStatistics(final Group group, final Accumulator accumulator) {
+		final SlaStatistics statistics = new SlaStatistics();
+		statistics.setSla(group.sla());
+		statistics.setPriority(group.priority());
+		statistics.setType(group.type());
+		statistics.setCount(accumulator.durations.getCount());
+		statistics.setDurationP50(accumulator.durations.getPercentile(50));
+		statistics.setDurationP90(accumulator.durations.getPercentile(90));
+		statistics.setDurationP99(accumulator.durations.getPercentile(99));
+		statistics.setDistanceCount(accumulator.distances.getCount());
+		statistics.setDistanceP50(accumulator.distances.getPercentile(50));
+		statistics.setDistanceP90(accumulator.distances.getPercentile(90));
+		statistics.setDistanceP99(accumulator.distances.getPercentile(99));
+		if (thresholds[group.sla()] > 0) {
+			statistics.setBreachRatio((double) accumulator.breached / statistics.getCount());
+		}
+		return statistics;
+	}
+}
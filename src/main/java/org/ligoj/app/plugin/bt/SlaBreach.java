@@ -0,0 +1,43 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Date;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A SLA threshold breach of an issue.
+ */
+@Getter
+@Setter
+public class SlaBreach {
+
+	/**
+	 * The subscription's identifier.
+	 */
+	private int subscription;
+
+	/**
+	 * The issue identifier.
+	 */
+	private int id;
+
+	/**
+	 * The issue key.
+	 */
+	private String pkey;
+
+	/**
+	 * The SLA index, within the monitored SLA configurations.
+	 */
+	private int sla;
+
+	/**
+	 * The breach date.
+	 */
+	private Date breach;
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The persisted state of a SLA computation, used to resume it with the changes created after the watermark. Only
+ * valid for the same SLA configurations and the same business calendar.
+ */
+@Getter
+@Setter
+public class SlaCheckpoint {
+
+	/**
+	 * Creation date of the last processed change. <code>null</code> when no change has been processed.
+	 */
+	private Date watermark;
+
+	/**
+	 * Issue identifier of the last processed change. The changes created at the watermark are ordered by issue
+	 * identifier, so only the ones of a greater issue identifier are processed when resumed.
+	 */
+	private Integer watermarkIssue;
+
+	/**
+	 * Cumulated elapsed time from the first processed change to the watermark.
+	 */
+	private long cumulatedElapsed;
+
+	/**
+	 * The issue states, in the order of their first change.
+	 */
+	private List<IssueState> issues = new ArrayList<>();
+
+	/**
+	 * Status transitions of the processed changes.
+	 */
+	private TransitionMatrix transitions = new TransitionMatrix();
+
+	/**
+	 * Daily work in progress of each status, until the watermark.
+	 */
+	private CumulativeFlow flow = new CumulativeFlow();
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Date;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Compliance of a SLA over time: the issues stopped in each time bucket, and how many of them within the threshold.
+ */
+@Getter
+@Setter
+public class SlaCompliance {
+
+	/**
+	 * The SLA index, within the SLA configurations.
+	 */
+	private int sla;
+
+	/**
+	 * Start of each bucket, in the application time zone.
+	 */
+	private List<Date> starts;
+
+	/**
+	 * Amount of issues having this SLA stopped within each bucket.
+	 */
+	private long[] stopped;
+
+	/**
+	 * Amount of issues having this SLA stopped within each bucket, with a duration lower or equal to the threshold.
+	 */
+	private long[] compliant;
+
+	/**
+	 * Ratio of the compliant issues within each bucket. A ratio is <code>null</code> when there is no stopped issue in
+	 * this bucket, or when there is no threshold.
+	 */
+	private Double[] ratios;
+}
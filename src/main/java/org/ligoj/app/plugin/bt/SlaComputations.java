@@ -4,6 +4,7 @@
 package org.ligoj.app.plugin.bt;
 
 import java.util.List;
+import java.util.Map;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -21,4 +22,39 @@ public class SlaComputations {
 	private List<SlaConfiguration> slaConfigurations;
 
 	private List<IssueSla> issues;
+
+	/**
+	 * Statistics grouped by SLA, priority and type. Only computed by the aggregation mode, without issue.
+	 */
+	private List<SlaStatistics> statistics;
+
+	/**
+	 * Business time spent in each status by all issues. Key is the status identifier.
+	 */
+	private Map<Integer, Long> timeInStatus;
+
+	/**
+	 * Status transitions of all issues.
+	 */
+	private TransitionMatrix transitions;
+
+	/**
+	 * Daily work in progress of each status, from the first change until now.
+	 */
+	private CumulativeFlow flow;
+
+	/**
+	 * Oldest open issues of each status. Key is the current status identifier.
+	 */
+	private Map<Integer, List<IssueSla>> aging;
+
+	/**
+	 * Compliance of each SLA, grouped by the requested dimensions.
+	 */
+	private List<SlaGroup> groups;
+
+	/**
+	 * Compliance of each SLA over time.
+	 */
+	private List<SlaCompliance> compliances;
 }
@@ -0,0 +1,258 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.function.FailableFunction;
+import org.ligoj.app.plugin.bt.model.BugTrackerConfiguration;
+import org.ligoj.app.plugin.bt.model.ChangeItem;
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Bounded cache of the SLA computations of the subscriptions, the least recently used ones are evicted first. There
+ * is a single entry by subscription, holding the version of its configuration and the latest change. The state of the
+ * issues before the elapsed time until now is cached, not the computations: a hit only completes each issue until
+ * now, without reading nor folding the changes. A newer latest change with the same configuration advances the entry
+ * from its watermark, another configuration replaces it. The concurrent misses of the same key share a single
+ * computation.
+ */
+@Component
+public class SlaComputationsCache {
+
+	/**
+	 * Default maximal amount of cached subscriptions.
+	 */
+	public static final int DEFAULT_SIZE = 32;
+
+	/**
+	 * The key of computations.
+	 */
+	private record Key(int subscription, List<Object> version, Integer change, Date changed) {
+	}
+
+	/**
+	 * The state of cached computations, and the key it has been computed for.
+	 */
+	private record Entry(Key key, BusinessCalendar calendar, List<Sla> slas, SlaCheckpoint checkpoint) {
+	}
+
+	@Autowired
+	protected SlaProcessor processor;
+
+	/**
+	 * Maximal amount of cached subscriptions.
+	 */
+	@Getter
+	@Setter
+	private int maxSize = DEFAULT_SIZE;
+
+	/**
+	 * The cached states by subscription, in access order.
+	 */
+	private final Map<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Integer, Entry> eldest) {
+			return size() > maxSize;
+		}
+	};
+
+	/**
+	 * The running computations. The concurrent callers of the same key wait for the same computation.
+	 */
+	private final Map<Key, CompletableFuture<Entry>> computations = new ConcurrentHashMap<>();
+
+	/**
+	 * Return the SLA computations of a subscription, from the cache when neither its configuration nor its changes
+	 * have changed. When the same computation is already running, its result is awaited instead of being computed
+	 * again.
+	 *
+	 * @param configuration The bug tracker configuration of the subscription.
+	 * @param calendar      The compiled business calendar of this configuration.
+	 * @param last          The latest change of all issues. When <code>null</code>, the computations are not cached.
+	 * @param changes       The function reading the changes of all issues, with the SLA to resolve. Called only when
+	 *                      not cached. The returned stream is closed once read.
+	 * @return The SLA computations, with the elapsed times until now.
+	 * @throws IOException When changes cannot read.
+	 */
+	public SlaComputations get(final BugTrackerConfiguration configuration, final BusinessCalendar calendar,
+			final ChangeItem last, final FailableFunction<List<Sla>, Stream<ChangeItem>, IOException> changes)
+			throws IOException {
+		final List<Sla> slas = new ArrayList<>(configuration.getSlas());
+		final Key key = new Key(configuration.getSubscription().getId(), getVersion(configuration),
+				last == null ? null : last.getId(), last == null ? null : last.getCreated());
+		final Entry entry = getEntry(key);
+		if (entry != null) {
+			return complete(entry);
+		}
+		final CompletableFuture<Entry> future = new CompletableFuture<>();
+		final CompletableFuture<Entry> running = computations.putIfAbsent(key, future);
+		if (running != null) {
+			// Share the running computation of the same key
+			return complete(join(running));
+		}
+		try {
+			final Entry completed = getEntry(key);
+			if (completed != null) {
+				// Computation completed meanwhile
+				future.complete(completed);
+				return complete(completed);
+			}
+			final Entry previous = getAdvanceable(key);
+			final SlaComputations result;
+			final Entry newEntry;
+			if (previous == null) {
+				newEntry = new Entry(key, calendar, slas, new SlaCheckpoint());
+				result = compute(calendar, slas, newEntry.checkpoint(), changes);
+			} else {
+				// Same configuration, only fold the changes after the watermark
+				newEntry = new Entry(key, previous.calendar(), previous.slas(), previous.checkpoint());
+				synchronized (newEntry.checkpoint()) {
+					result = compute(newEntry.calendar(), newEntry.slas(), newEntry.checkpoint(), changes);
+				}
+			}
+			if (last != null) {
+				synchronized (entries) {
+					entries.put(key.subscription(), newEntry);
+				}
+			}
+			future.complete(newEntry);
+			return result;
+		} catch (final Throwable e) {
+			// Also fail the waiting callers
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			computations.remove(key, future);
+		}
+	}
+
+	/**
+	 * Remove all cached computations.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Return the amount of cached subscriptions.
+	 *
+	 * @return The amount of cached subscriptions.
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Return the cached state of the given key. <code>null</code> when not cached.
+	 */
+	private Entry getEntry(final Key key) {
+		if (key.change() == null) {
+			// The latest change is unknown, not cached
+			return null;
+		}
+		synchronized (entries) {
+			final Entry entry = entries.get(key.subscription());
+			return entry != null && entry.key().equals(key) ? entry : null;
+		}
+	}
+
+	/**
+	 * Return the cached state of the subscription of the given key that can be advanced to this key: same
+	 * configuration and a latest change created after the cached one. <code>null</code> when it has to be replaced.
+	 */
+	private Entry getAdvanceable(final Key key) {
+		if (key.change() == null || key.changed() == null) {
+			return null;
+		}
+		synchronized (entries) {
+			final Entry entry = entries.get(key.subscription());
+			return entry != null && entry.key().version().equals(key.version())
+					&& entry.key().changed() != null && key.changed().after(entry.key().changed()) ? entry : null;
+		}
+	}
+
+	/**
+	 * Return the SLA computations of a state: only complete its issues until now.
+	 */
+	private SlaComputations complete(final Entry entry) {
+		synchronized (entry.checkpoint()) {
+			return processor.process(entry.calendar(), Collections.emptyIterator(), entry.slas(), entry.checkpoint());
+		}
+	}
+
+	/**
+	 * Wait for a running computation, and throw its failure.
+	 */
+	private static Entry join(final CompletableFuture<Entry> future) throws IOException {
+		try {
+			return future.join();
+		} catch (final CompletionException e) {
+			if (e.getCause() instanceof IOException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Compute the SLA of all changes.
+	 */
+	private SlaComputations compute(final BusinessCalendar calendar, final List<Sla> slas,
+			final SlaCheckpoint checkpoint, final FailableFunction<List<Sla>, Stream<ChangeItem>, IOException> changes)
+			throws IOException {
+		try (Stream<ChangeItem> stream = changes.apply(slas)) {
+			return processor.process(calendar, stream.iterator(), slas, checkpoint);
+		}
+	}
+
+	/**
+	 * Return the version of the configuration: the SLA definitions, the calendar and the business hours.
+	 */
+	private List<Object> getVersion(final BugTrackerConfiguration configuration) {
+		final List<Object> version = new ArrayList<>();
+		version.add(BusinessCalendarCache.getGeneration());
+		version.add(configuration.getCalendar().getId());
+		configuration.getBusinessHours().forEach(h -> {
+			version.add(h.getStart());
+			version.add(h.getEnd());
+		});
+		configuration.getSlas().forEach(s -> {
+			version.add(s.getId());
+			version.add(s.getStart());
+			version.add(s.getStop());
+			version.add(s.getPause());
+			version.add(s.getTypes());
+			version.add(s.getPriorities());
+			version.add(s.getResolutions());
+			version.add(s.getThreshold());
+		});
+		return version;
+	}
+}
@@ -41,4 +41,16 @@ public class SlaData {
 	 * The first time the workflow stopped. May be <code>null</code>.
 	 */
 	private Date stop;
+
+	/**
+	 * Business time, in milliseconds, left before the threshold of the SLA. Negative when the threshold is already
+	 * breached. <code>null</code> when the SLA has no threshold, is not started or is stopped.
+	 */
+	private Long remaining;
+
+	/**
+	 * The forecast date of the threshold breach, considering the business hours and holidays. <code>null</code> when
+	 * the SLA is not running or when the threshold is already breached.
+	 */
+	private Date breach;
 }
@@ -0,0 +1,212 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import jakarta.ws.rs.core.StreamingOutput;
+
+/**
+ * Write the issues of SLA computations as soon as they are completed, in CSV or JSON format. The JSON document has
+ * the same structure than {@link SlaComputations}. The header is written before the changes are read, and the whole
+ * computations are never kept in memory.
+ */
+public class SlaExport implements StreamingOutput {
+
+	/**
+	 * CSV format.
+	 */
+	public static final String CSV = "csv";
+
+	/**
+	 * JSON format.
+	 */
+	public static final String JSON = "json";
+
+	/**
+	 * CSV separator.
+	 */
+	private static final char SEPARATOR = ';';
+
+	/**
+	 * Issue columns of CSV.
+	 */
+	private static final String HEADER = "id;pkey;created;status;type;priority;resolution;reporter;assignee;dueDate";
+
+	/**
+	 * SLA data columns of CSV, prefixed by the SLA name.
+	 */
+	private static final String[] DATA_HEADER = { "start", "stop", "duration", "revisedDueDate",
+			"revisedDueDateDistance", "remaining", "breach" };
+
+	private final List<SlaConfiguration> slaConfigurations;
+
+	private final Supplier<Stream<IssueSla>> issues;
+
+	private final String format;
+
+	/**
+	 * JSON mapper, not flushing each issue.
+	 */
+	private final ObjectMapper mapper = new ObjectMapper().disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+			.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+	/**
+	 * Date format of CSV, not shared since not thread safe.
+	 */
+	private final DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
+
+	/**
+	 * Build an export of the given issues.
+	 *
+	 * @param slaConfigurations The SLA configurations, in the order of the SLA data of each issue.
+	 * @param issues            The supplier of the issues to write, called when the header is written. The stream
+	 *                          is closed once written.
+	 * @param format            The format: {@link #CSV} or {@link #JSON}.
+	 */
+	public SlaExport(final List<SlaConfiguration> slaConfigurations, final Supplier<Stream<IssueSla>> issues,
+			final String format) {
+		this.slaConfigurations = slaConfigurations;
+		this.issues = issues;
+		this.format = format;
+	}
+
+	@Override
+	public void write(final OutputStream output) throws IOException {
+		try {
+			if (JSON.equals(format)) {
+				writeJson(output);
+			} else {
+				writeCsv(output);
+			}
+		} catch (final UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Write the SLA configurations, then each issue.
+	 */
+	private void writeJson(final OutputStream output) throws IOException {
+		final JsonGenerator generator = mapper.getFactory().createGenerator(output);
+		generator.writeStartObject();
+		generator.writeFieldName("slaConfigurations");
+		mapper.writeValue(generator, slaConfigurations);
+		generator.writeArrayFieldStart("issues");
+		generator.flush();
+		try (Stream<IssueSla> stream = issues.get()) {
+			stream.forEach(issue -> {
+				try {
+					mapper.writeValue(generator, issue);
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+		generator.close();
+	}
+
+	/**
+	 * Write the header, then a row for each issue.
+	 */
+	private void writeCsv(final OutputStream output) throws IOException {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+		writer.write(HEADER);
+		for (final SlaConfiguration sla : slaConfigurations) {
+			for (final String column : DATA_HEADER) {
+				writer.write(SEPARATOR);
+				writer.write(escape(sla.getName() + "." + column));
+			}
+		}
+		writer.write('\n');
+		writer.flush();
+		try (Stream<IssueSla> stream = issues.get()) {
+			stream.forEach(issue -> {
+				try {
+					writeCsv(writer, issue);
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Write the row of an issue.
+	 */
+	private void writeCsv(final Writer writer, final IssueSla issue) throws IOException {
+		final StringBuilder row = new StringBuilder();
+		row.append(issue.getId());
+		append(row, escape(issue.getPkey()));
+		append(row, issue.getCreated());
+		append(row, issue.getStatus());
+		append(row, issue.getType());
+		append(row, issue.getPriority());
+		append(row, issue.getResolution());
+		append(row, escape(issue.getReporter()));
+		append(row, escape(issue.getAssignee()));
+		append(row, issue.getDueDate());
+		for (final SlaData data : issue.getData()) {
+			if (data == null) {
+				// Not applicable SLA
+				row.append(StringUtils.repeat(SEPARATOR, DATA_HEADER.length));
+			} else {
+				append(row, data.getStart());
+				append(row, data.getStop());
+				append(row, data.getDuration());
+				append(row, data.getRevisedDueDate());
+				append(row, data.getRevisedDueDateDistance());
+				append(row, data.getRemaining());
+				append(row, data.getBreach());
+			}
+		}
+		writer.append(row).append('\n');
+	}
+
+	/**
+	 * Append a separator and the value. <code>null</code> value is empty.
+	 */
+	private void append(final StringBuilder row, final Object value) {
+		row.append(SEPARATOR);
+		if (value instanceof Date date) {
+			row.append(dateFormat.format(date));
+		} else if (value != null) {
+			row.append(value);
+		}
+	}
+
+	/**
+	 * Quote the text when it contains a separator, a quote or a new line.
+	 */
+	private String escape(final String text) {
+		if (text == null) {
+			return null;
+		}
+		if (StringUtils.containsAny(text, SEPARATOR, '"', '\n', '\r')) {
+			return '"' + text.replace("\"", "\"\"") + '"';
+		}
+		return text;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Compliance of a SLA for the issues sharing the same values of the grouped dimensions.
+ */
+@Getter
+@Setter
+public class SlaGroup {
+
+	/**
+	 * The SLA index, within the SLA configurations.
+	 */
+	private int sla;
+
+	/**
+	 * The values of the grouped dimensions, in the requested order. A value may be <code>null</code>.
+	 */
+	private List<Object> keys;
+
+	/**
+	 * Amount of issues of this group, with or without this SLA.
+	 */
+	private long issues;
+
+	/**
+	 * Amount of issues having this SLA started.
+	 */
+	private long count;
+
+	/**
+	 * Lowest duration.
+	 */
+	private long durationMin;
+
+	/**
+	 * Highest duration.
+	 */
+	private long durationMax;
+
+	/**
+	 * Average duration, rounded down.
+	 */
+	private long durationAverage;
+
+	/**
+	 * Amount of issues having a duration greater than the threshold.
+	 */
+	private long breached;
+
+	/**
+	 * Ratio of the issues having a duration greater than the threshold. <code>null</code> when there is no threshold.
+	 */
+	private Double breachRatio;
+}
@@ -0,0 +1,371 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+
+/**
+ * Fold the SLA data of issues into groups sharing the same values of one or two dimensions, such as the assignee or
+ * the priority. The values are encoded in a dictionary of each dimension, so a group is a primitive key of an open
+ * addressing table, and its accumulators are primitive arrays. The memory is bounded by the amount of groups, whatever
+ * the amount of issues. Two groupings of the same configuration can be merged.
+ */
+public class SlaGroupBy implements Consumer<IssueSla> {
+
+	/**
+	 * The grouping dimensions.
+	 */
+	private static final Map<String, Function<IssueSla, Object>> DIMENSIONS = Map.of("priority", IssueSla::getPriority,
+			"status", IssueSla::getStatus, "type", IssueSla::getType, "resolution", IssueSla::getResolution,
+			"reporter", IssueSla::getReporter, "assignee", IssueSla::getAssignee);
+
+	/**
+	 * Maximal amount of grouped dimensions.
+	 */
+	private static final int MAX_DIMENSIONS = 2;
+
+	/**
+	 * Marker of a free slot of the table.
+	 */
+	private static final int FREE = -1;
+
+	/**
+	 * Threshold of each SLA. <code>0</code> means none.
+	 */
+	private final long[] thresholds;
+
+	/**
+	 * The requested dimensions.
+	 */
+	private final List<String> dimensions;
+
+	/**
+	 * The value getter of each dimension.
+	 */
+	private final List<Function<IssueSla, Object>> getters;
+
+	/**
+	 * The code of each value, for each dimension.
+	 */
+	private final List<Map<Object, Integer>> dictionaries = new ArrayList<>();
+
+	/**
+	 * The value of each code, for each dimension.
+	 */
+	private final List<List<Object>> values = new ArrayList<>();
+
+	/**
+	 * The encoded key of each slot of the table.
+	 */
+	private long[] slotKeys = new long[16];
+
+	/**
+	 * The group index of each slot of the table, or {@link #FREE}.
+	 */
+	private int[] slotGroups = newSlotGroups(16);
+
+	/**
+	 * The encoded key of each group.
+	 */
+	private long[] keys = new long[16];
+
+	/**
+	 * Amount of groups.
+	 */
+	private int size;
+
+	/**
+	 * Amount of issues by group.
+	 */
+	private long[] issues = new long[16];
+
+	/**
+	 * Amount of started SLA by group, then by SLA.
+	 */
+	private long[] counts;
+
+	/**
+	 * Sum of the durations by group, then by SLA.
+	 */
+	private long[] sums;
+
+	/**
+	 * Lowest duration by group, then by SLA.
+	 */
+	private long[] mins;
+
+	/**
+	 * Highest duration by group, then by SLA.
+	 */
+	private long[] maxs;
+
+	/**
+	 * Amount of durations greater than the threshold by group, then by SLA.
+	 */
+	private long[] breached;
+
+	/**
+	 * Build an empty grouping.
+	 *
+	 * @param slas       the SLA configurations, in the order of the SLA data of each issue.
+	 * @param dimensions The grouped dimensions: one or two of <code>priority</code>, <code>status</code>,
+	 *                   <code>type</code>, <code>resolution</code>, <code>reporter</code> and <code>assignee</code>.
+	 */
+	public SlaGroupBy(final List<Sla> slas, final List<String> dimensions) {
+		if (dimensions == null || dimensions.isEmpty() || dimensions.size() > MAX_DIMENSIONS) {
+			throw ValidationJsonException.newValidationJsonException("Size", "by");
+		}
+		this.thresholds = slas.stream().mapToLong(Sla::getThreshold).toArray();
+		this.dimensions = dimensions;
+		this.getters = dimensions.stream().map(d -> {
+			final Function<IssueSla, Object> getter = DIMENSIONS.get(d);
+			if (getter == null) {
+				throw ValidationJsonException.newValidationJsonException("NotSupported", "by");
+			}
+			return getter;
+		}).toList();
+		dimensions.forEach(d -> {
+			dictionaries.add(new HashMap<>());
+			values.add(new ArrayList<>());
+		});
+		final int capacity = 16 * Math.max(1, thresholds.length);
+		counts = new long[capacity];
+		sums = new long[capacity];
+		mins = new long[capacity];
+		maxs = new long[capacity];
+		breached = new long[capacity];
+	}
+
+	/**
+	 * Return a collector folding the issues into a new grouping.
+	 *
+	 * @param slas       the SLA configurations, in the order of the SLA data of each issue.
+	 * @param dimensions The grouped dimensions.
+	 * @return The collector, supporting the parallel streams.
+	 */
+	public static Collector<IssueSla, ?, SlaGroupBy> collector(final List<Sla> slas, final List<String> dimensions) {
+		return Collector.of(() -> new SlaGroupBy(slas, dimensions), SlaGroupBy::accept, SlaGroupBy::add);
+	}
+
+	/**
+	 * Fold the SLA data of the given issue into its group. The SLA not applicable or not started are ignored.
+	 */
+	@Override
+	public void accept(final IssueSla issue) {
+		long key = 0;
+		for (int dimension = 0; dimension < getters.size(); dimension++) {
+			key |= (long) encode(dimension, getters.get(dimension).apply(issue)) << (32 * dimension);
+		}
+		final int group = getGroup(key);
+		issues[group]++;
+		final List<SlaData> data = issue.getData();
+		for (int sla = 0; sla < data.size(); sla++) {
+			final SlaData slaData = data.get(sla);
+			if (slaData != null && slaData.getStart() != null) {
+				final long duration = slaData.getDuration();
+				final boolean breach = thresholds[sla] > 0 && duration > thresholds[sla];
+				accumulate(group * thresholds.length + sla, 1, duration, duration, duration, breach ? 1 : 0);
+			}
+		}
+	}
+
+	/**
+	 * Merge the given grouping into this one.
+	 *
+	 * @param other The grouping of the same SLA configurations and dimensions. Not updated.
+	 * @return This grouping.
+	 */
+	public SlaGroupBy add(final SlaGroupBy other) {
+		for (int source = 0; source < other.size; source++) {
+			long key = 0;
+			for (int dimension = 0; dimension < getters.size(); dimension++) {
+				key |= (long) encode(dimension, other.getValue(dimension, other.keys[source])) << (32 * dimension);
+			}
+			final int group = getGroup(key);
+			issues[group] += other.issues[source];
+			for (int sla = 0; sla < thresholds.length; sla++) {
+				final int from = source * thresholds.length + sla;
+				accumulate(group * thresholds.length + sla, other.counts[from], other.sums[from], other.mins[from],
+						other.maxs[from], other.breached[from]);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Return the compliance of each group and SLA.
+	 *
+	 * @return The groups having a started SLA, ordered by SLA then by values. The <code>null</code> values come first.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<SlaGroup> getGroups() {
+		final List<SlaGroup> result = new ArrayList<>();
+		for (int group = 0; group < size; group++) {
+			for (int sla = 0; sla < thresholds.length; sla++) {
+				final int index = group * thresholds.length + sla;
+				if (counts[index] > 0) {
+					result.add(toGroup(group, sla, index));
+				}
+			}
+		}
+		Comparator<SlaGroup> comparator = Comparator.comparingInt(SlaGroup::getSla);
+		for (int dimension = 0; dimension < dimensions.size(); dimension++) {
+			final int position = dimension;
+			comparator = comparator.thenComparing(g -> (Comparable<Object>) g.getKeys().get(position),
+					Comparator.nullsFirst(Comparator.naturalOrder()));
+		}
+		result.sort(comparator);
+		return result;
+	}
+
+	/**
+	 * Return the compliance of a group and a SLA.
+	 */
+	private SlaGroup toGroup(final int group, final int sla, final int index) {
+		final SlaGroup result = new SlaGroup();
+		result.setSla(sla);
+		final List<Object> groupKeys = new ArrayList<>(dimensions.size());
+		for (int dimension = 0; dimension < dimensions.size(); dimension++) {
+			groupKeys.add(getValue(dimension, keys[group]));
+		}
+		result.setKeys(groupKeys);
+		result.setIssues(issues[group]);
+		result.setCount(counts[index]);
+		result.setDurationMin(mins[index]);
+		result.setDurationMax(maxs[index]);
+		result.setDurationAverage(sums[index] / counts[index]);
+		result.setBreached(breached[index]);
+		if (thresholds[sla] > 0) {
+			result.setBreachRatio((double) breached[index] / counts[index]);
+		}
+		return result;
+	}
+
+	/**
+	 * Add the given values to the accumulators of a group and a SLA.
+	 */
+	private void accumulate(final int index, final long count, final long sum, final long min, final long max,
+			final long breach) {
+		if (count == 0) {
+			// Nothing to merge
+			return;
+		}
+		if (counts[index] == 0) {
+			mins[index] = min;
+			maxs[index] = max;
+		} else {
+			mins[index] = Math.min(mins[index], min);
+			maxs[index] = Math.max(maxs[index], max);
+		}
+		counts[index] += count;
+		sums[index] += sum;
+		breached[index] += breach;
+	}
+
+	/**
+	 * Return the code of a value, and register this value when new.
+	 */
+	private int encode(final int dimension, final Object value) {
+		final Map<Object, Integer> dictionary = dictionaries.get(dimension);
+		final Integer code = dictionary.get(value);
+		if (code != null) {
+			return code;
+		}
+		final int newCode = dictionary.size();
+		dictionary.put(value, newCode);
+		values.get(dimension).add(value);
+		return newCode;
+	}
+
+	/**
+	 * Return the value of a dimension from an encoded key.
+	 */
+	private Object getValue(final int dimension, final long key) {
+		return values.get(dimension).get((int) (key >>> (32 * dimension)));
+	}
+
+	/**
+	 * Return the group index of an encoded key, and register this group when new.
+	 */
+	private int getGroup(final long key) {
+		int slot = getSlot(slotKeys, slotGroups, key);
+		if (slotGroups[slot] != FREE) {
+			return slotGroups[slot];
+		}
+		if (size == keys.length) {
+			growGroups();
+		}
+		final int group = size++;
+		keys[group] = key;
+		slotKeys[slot] = key;
+		slotGroups[slot] = group;
+		if (size * 2 > slotKeys.length) {
+			// Keep the load factor under one half
+			growSlots();
+		}
+		return group;
+	}
+
+	/**
+	 * Return the slot of the given key: either its slot, either the free slot where it would be.
+	 */
+	private static int getSlot(final long[] slotKeys, final int[] slotGroups, final long key) {
+		final int mask = slotKeys.length - 1;
+		int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+		while (slotGroups[slot] != FREE && slotKeys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Double the capacity of the table.
+	 */
+	private void growSlots() {
+		final long[] newKeys = new long[slotKeys.length * 2];
+		final int[] newGroups = newSlotGroups(newKeys.length);
+		for (int group = 0; group < size; group++) {
+			final int slot = getSlot(newKeys, newGroups, keys[group]);
+			newKeys[slot] = keys[group];
+			newGroups[slot] = group;
+		}
+		slotKeys = newKeys;
+		slotGroups = newGroups;
+	}
+
+	/**
+	 * Double the capacity of the group accumulators.
+	 */
+	private void growGroups() {
+		final int capacity = keys.length * 2;
+		keys = Arrays.copyOf(keys, capacity);
+		issues = Arrays.copyOf(issues, capacity);
+		final int slaCapacity = capacity * Math.max(1, thresholds.length);
+		counts = Arrays.copyOf(counts, slaCapacity);
+		sums = Arrays.copyOf(sums, slaCapacity);
+		mins = Arrays.copyOf(mins, slaCapacity);
+		maxs = Arrays.copyOf(maxs, slaCapacity);
+		breached = Arrays.copyOf(breached, slaCapacity);
+	}
+
+	/**
+	 * Return new free slots.
+	 */
+	private static int[] newSlotGroups(final int capacity) {
+		final int[] result = new int[capacity];
+		Arrays.fill(result, FREE);
+		return result;
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * An asynchronous SLA computation of a subscription, polled until its completion. The result is not serialized with
+ * the job.
+ */
+@Getter
+@Setter
+public class SlaJob {
+
+	/**
+	 * The job status.
+	 */
+	public enum Status {
+		/**
+		 * Waiting for a thread.
+		 */
+		QUEUED,
+
+		/**
+		 * Computing.
+		 */
+		RUNNING,
+
+		/**
+		 * Computing, the cancellation is requested and the job stops at the next issue or change.
+		 */
+		CANCELLING,
+
+		/**
+		 * Completed, the result is available.
+		 */
+		DONE,
+
+		/**
+		 * Failed, the error is available.
+		 */
+		FAILED,
+
+		/**
+		 * Cancelled before its completion.
+		 */
+		CANCELLED
+	}
+
+	/**
+	 * The job identifier.
+	 */
+	private String id;
+
+	/**
+	 * The subscription identifier.
+	 */
+	private int subscription;
+
+	/**
+	 * The current status.
+	 */
+	private volatile Status status = Status.QUEUED;
+
+	/**
+	 * The submission date.
+	 */
+	private Date submitted;
+
+	/**
+	 * The completion date. <code>null</code> while not completed.
+	 */
+	private volatile Date completed;
+
+	/**
+	 * The error message of a failed job.
+	 */
+	private volatile String error;
+
+	/**
+	 * The progress of the computation.
+	 */
+	@JsonIgnore
+	private final SlaProgress progress = new SlaProgress();
+
+	/**
+	 * The computations of a completed job.
+	 */
+	@JsonIgnore
+	private volatile SlaComputations result;
+
+	/**
+	 * Indicates the result of this job has been returned at least once.
+	 */
+	@JsonIgnore
+	private volatile boolean fetched;
+
+	/**
+	 * Return the amount of folded changes.
+	 *
+	 * @return The amount of folded changes.
+	 */
+	public long getChanges() {
+		return progress.getChanges();
+	}
+
+	/**
+	 * Return the amount of completed issues.
+	 *
+	 * @return The amount of completed issues.
+	 */
+	public long getIssues() {
+		return progress.getIssues();
+	}
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.function.FailableFunction;
+import org.ligoj.bootstrap.core.resource.BusinessException;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runner of the asynchronous SLA computations. Each job runs on its own virtual thread, but only a bounded amount of
+ * them computes at once, the other ones are queued. The amount of queued and running jobs is limited too. A
+ * cancelled job stops at the next issue or change, and the completed jobs are kept until the end of the retention.
+ * Beyond a bounded amount by subscription, the completed jobs without result or with an already fetched result are
+ * removed earlier. A removed job is reported as expired during another retention period. The jobs run with the
+ * security context of their submitter.
+ */
+@Component
+@Slf4j
+public class SlaJobRunner {
+
+	/**
+	 * Maximal amount of running jobs.
+	 */
+	public static final int THREADS = 4;
+
+	/**
+	 * Maximal amount of queued and running jobs.
+	 */
+	public static final int MAX_PENDING = 32;
+
+	/**
+	 * Maximal amount of completed jobs kept by subscription, the oldest ones are removed first. The not yet fetched
+	 * results are only removed at the end of the retention.
+	 */
+	public static final int MAX_RETAINED = 4;
+
+	/**
+	 * Retention of the completed jobs, in milliseconds.
+	 */
+	public static final long RETENTION = TimeUnit.HOURS.toMillis(1);
+
+	/**
+	 * The submitted jobs.
+	 */
+	private final Map<String, SlaJob> jobs = new ConcurrentHashMap<>();
+
+	/**
+	 * The identifiers of the removed jobs, with their removal time in milliseconds.
+	 */
+	private final Map<String, Long> expired = new ConcurrentHashMap<>();
+
+	/**
+	 * The tasks of the queued and running jobs.
+	 */
+	private final Map<String, Future<?>> tasks = new ConcurrentHashMap<>();
+
+	/**
+	 * The permits of the running jobs.
+	 */
+	private final Semaphore permits = new Semaphore(THREADS, true);
+
+	/**
+	 * The executor running the jobs.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * Start the executor.
+	 */
+	@PostConstruct
+	public void start() {
+		executor = Executors.newVirtualThreadPerTaskExecutor();
+	}
+
+	/**
+	 * Stop the executor, the running jobs are interrupted.
+	 */
+	@PreDestroy
+	public void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Submit a SLA computation, run with the security context of the current thread. The completed jobs out of the
+	 * retention are removed.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param computation  The SLA computation, updating the given progress.
+	 * @return The queued job.
+	 * @throws BusinessException When the maximal amount of queued and running jobs is reached.
+	 */
+	public SlaJob submit(final int subscription,
+			final FailableFunction<SlaProgress, SlaComputations, IOException> computation) {
+		purge(System.currentTimeMillis() - RETENTION);
+		final SlaJob job = new SlaJob();
+		job.setId(UUID.randomUUID().toString());
+		job.setSubscription(subscription);
+		job.setSubmitted(new Date());
+		synchronized (tasks) {
+			if (tasks.size() >= MAX_PENDING) {
+				throw new BusinessException("service:bt:sla-job-limit", MAX_PENDING);
+			}
+			jobs.put(job.getId(), job);
+			tasks.put(job.getId(), executor.submit(new DelegatingSecurityContextRunnable(() -> run(job, computation))));
+		}
+		return job;
+	}
+
+	/**
+	 * Return a submitted job.
+	 *
+	 * @param id The job identifier.
+	 * @return The job.
+	 * @throws BusinessException       When the job has been removed.
+	 * @throws EntityNotFoundException When the job is unknown.
+	 */
+	public SlaJob get(final String id) {
+		final SlaJob job = jobs.get(id);
+		if (job == null) {
+			if (expired.containsKey(id)) {
+				throw new BusinessException("service:bt:sla-job-expired", id);
+			}
+			throw new EntityNotFoundException(id);
+		}
+		return job;
+	}
+
+	/**
+	 * Return the computations of a completed job.
+	 *
+	 * @param id The job identifier.
+	 * @return The computations.
+	 * @throws BusinessException When the job is not successfully completed.
+	 */
+	public SlaComputations getResult(final String id) {
+		final SlaJob job = get(id);
+		if (job.getStatus() != SlaJob.Status.DONE) {
+			throw new BusinessException("service:bt:sla-job-not-done", id, job.getStatus());
+		}
+		job.setFetched(true);
+		return job.getResult();
+	}
+
+	/**
+	 * Cancel a job. A queued job is cancelled and never started. A running job is cancelling until it stops at the
+	 * next issue or change, then cancelled. Has no effect on a completed job.
+	 *
+	 * @param id The job identifier.
+	 * @return The job.
+	 */
+	public SlaJob cancel(final String id) {
+		final SlaJob job = get(id);
+		job.getProgress().cancel();
+		synchronized (job) {
+			if (job.getStatus() == SlaJob.Status.QUEUED) {
+				// Not started, release the waiting thread
+				complete(job, SlaJob.Status.CANCELLED, null, null);
+				final Future<?> task = tasks.remove(id);
+				if (task != null) {
+					task.cancel(true);
+				}
+			} else if (job.getStatus() == SlaJob.Status.RUNNING) {
+				job.setStatus(SlaJob.Status.CANCELLING);
+			}
+		}
+		return job;
+	}
+
+	/**
+	 * Remove the jobs completed before the given time, and forget the jobs removed before this time.
+	 *
+	 * @param before The time in milliseconds.
+	 */
+	public void purge(final long before) {
+		expired.values().removeIf(removed -> removed < before);
+		jobs.values().stream().filter(j -> j.getCompleted() != null && j.getCompleted().getTime() < before)
+				.map(SlaJob::getId).toList().forEach(this::remove);
+	}
+
+	/**
+	 * Remove the oldest completed jobs of a subscription beyond the given amount. The successfully completed jobs whose
+	 * result has not been fetched are counted, but kept.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param max          The maximal amount of kept completed jobs.
+	 */
+	public void evict(final int subscription, final int max) {
+		jobs.values().stream().filter(j -> j.getSubscription() == subscription && j.getCompleted() != null)
+				.sorted(Comparator.comparing(SlaJob::getCompleted).reversed()).skip(max)
+				.filter(j -> j.getStatus() != SlaJob.Status.DONE || j.isFetched()).map(SlaJob::getId).toList()
+				.forEach(this::remove);
+	}
+
+	/**
+	 * Remove a job, and remember its identifier as expired.
+	 */
+	private void remove(final String id) {
+		if (jobs.remove(id) != null) {
+			expired.put(id, System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Run the computation of a job, once a permit is available.
+	 */
+	private void run(final SlaJob job, final FailableFunction<SlaProgress, SlaComputations, IOException> computation) {
+		try {
+			permits.acquire();
+		} catch (final InterruptedException e) {
+			// Cancelled while queued, or stopped runner
+			Thread.currentThread().interrupt();
+			complete(job, SlaJob.Status.CANCELLED, null, null);
+			tasks.remove(job.getId());
+			return;
+		}
+		try {
+			synchronized (job) {
+				if (job.getCompleted() != null) {
+					// Cancelled while queued
+					return;
+				}
+				job.setStatus(SlaJob.Status.RUNNING);
+			}
+			complete(job, SlaJob.Status.DONE, computation.apply(job.getProgress()), null);
+		} catch (final CancellationException e) {
+			complete(job, SlaJob.Status.CANCELLED, null, null);
+		} catch (final IOException | RuntimeException e) {
+			log.warn("SLA job {} of subscription {} failed", job.getId(), job.getSubscription(), e);
+			complete(job, SlaJob.Status.FAILED, null, e.getMessage());
+		} finally {
+			permits.release();
+			tasks.remove(job.getId());
+		}
+	}
+
+	/**
+	 * Complete a job. Only the first completion is kept, and the oldest completed jobs of its subscription beyond the
+	 * retained amount are removed.
+	 */
+	private void complete(final SlaJob job, final SlaJob.Status status, final SlaComputations result,
+			final String error) {
+		synchronized (job) {
+			if (job.getCompleted() == null) {
+				job.setResult(result);
+				job.setError(error);
+				job.setStatus(status);
+				job.setCompleted(new Date());
+			}
+		}
+		evict(job.getSubscription(), MAX_RETAINED);
+	}
+}
@@ -0,0 +1,396 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.ligoj.app.plugin.bt.model.ChangeItem;
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Real-time SLA monitor. The state of each issue of the monitored subscriptions is kept in memory and updated with
+ * the notified status changes. The forecast breaches of the running SLA are scheduled in a {@link TimerWheel}, and
+ * the breach listeners are notified when the breach date is reached. Only the issue of a notified change is
+ * computed again.
+ * <p>
+ * The resolved issues are not monitored anymore: a change of a resolved issue drops its state, and a later change
+ * of this issue starts a new state. The fired breaches are forgotten.
+ * <p>
+ * A subscription can be registered before its initial state is computed: the changes notified meanwhile are buffered,
+ * then the ones after the watermark of this state are replayed, so no change is lost between the computation and the
+ * monitoring.
+ */
+@Component
+@Slf4j
+public class SlaMonitor implements BugTrackerListener {
+
+	/**
+	 * Precision of the breach notifications, in milliseconds.
+	 */
+	public static final long TICK = 1000;
+
+	@Autowired
+	protected SlaProcessor processor;
+
+	/**
+	 * The monitored subscriptions.
+	 */
+	private final Map<Integer, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+	/**
+	 * The scheduled breaches of all subscriptions.
+	 */
+	private final TimerWheel<SlaBreach> wheel = new TimerWheel<>(TICK, System.currentTimeMillis());
+
+	/**
+	 * The breach listeners.
+	 */
+	private final List<Consumer<SlaBreach>> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * The scheduler advancing the wheel.
+	 */
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * The monitored state of a subscription. Updates are synchronized on this instance.
+	 */
+	private static class Subscription {
+		private BusinessCalendar calendar;
+		private List<SlaRule> rules;
+		private int[][] triggers;
+		private ComputationContext cursor;
+		private long cumulatedElapsed;
+		private Date watermark;
+		private List<ChangeItem> pending;
+		private final Map<Integer, IssueState> issues = new LinkedHashMap<>();
+		private final Map<Integer, List<TimerWheel.Timer<SlaBreach>>> timers = new HashMap<>();
+	}
+
+	/**
+	 * Start the scheduler advancing the wheel at each tick.
+	 */
+	@PostConstruct
+	public void start() {
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread thread = new Thread(r, "sla-monitor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(() -> advance(System.currentTimeMillis()), TICK, TICK, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop the scheduler.
+	 */
+	@PreDestroy
+	public void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * Add a breach listener. Listeners are notified from the scheduler thread.
+	 *
+	 * @param listener The breach listener.
+	 */
+	public void addListener(final Consumer<SlaBreach> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Register a subscription before its initial state is computed. The changes notified until this subscription is
+	 * monitored are buffered. The previous monitoring of this subscription is replaced.
+	 *
+	 * @param subscription the subscription's identifier.
+	 * @param calendar     The compiled business calendar.
+	 * @see #monitor(int, BusinessCalendar, List, SlaCheckpoint)
+	 */
+	public void register(final int subscription, final BusinessCalendar calendar) {
+		final Subscription monitored = newSubscription(calendar);
+		monitored.pending = new ArrayList<>();
+		unmonitor(subscription);
+		subscriptions.put(subscription, monitored);
+	}
+
+	/**
+	 * Start the monitoring of a subscription. When this subscription has been registered with the same calendar, the
+	 * buffered changes created after the watermark of the checkpoint are replayed. Otherwise, the previous monitoring
+	 * of this subscription is replaced.
+	 *
+	 * @param subscription the subscription's identifier.
+	 * @param calendar     The compiled business calendar.
+	 * @param slas         the SLA configurations, with the resolved statuses.
+	 * @param checkpoint   The state of a previous computation of this subscription, so the changes created before its
+	 *                     watermark do not need to be notified. May be <code>null</code>.
+	 * @see #register(int, BusinessCalendar)
+	 */
+	public void monitor(final int subscription, final BusinessCalendar calendar, final List<Sla> slas,
+			final SlaCheckpoint checkpoint) {
+		final Subscription registered = subscriptions.get(subscription);
+		final Subscription monitored;
+		if (registered != null && registered.pending != null && registered.calendar == calendar) {
+			monitored = registered;
+		} else {
+			monitored = newSubscription(calendar);
+			unmonitor(subscription);
+			subscriptions.put(subscription, monitored);
+		}
+		synchronized (monitored) {
+			monitored.rules = slas.stream().map(SlaRule::new).toList();
+			monitored.triggers = processor.getTriggers(monitored.rules);
+			Date watermark = null;
+			Integer watermarkIssue = null;
+			if (checkpoint != null && checkpoint.getWatermark() != null) {
+				// Resume the previous computation
+				watermark = checkpoint.getWatermark();
+				watermarkIssue = checkpoint.getWatermarkIssue();
+				monitored.watermark = watermark;
+				monitored.cursor.reset(monitored.watermark);
+				monitored.cumulatedElapsed = checkpoint.getCumulatedElapsed();
+				checkpoint.getIssues().stream().filter(s -> s.getIssue().getResolution() == null).forEach(
+						s -> monitored.issues.put(s.getIssue().getId(), processor.copyIssueState(s, calendar)));
+			}
+			if (monitored.pending != null) {
+				// Replay the changes notified since the registration and not included in the checkpoint
+				for (final ChangeItem change : monitored.pending) {
+					if (watermark == null || SlaProcessor.isAfter(change, watermark, watermarkIssue)) {
+						apply(monitored, change);
+					}
+				}
+				monitored.pending = null;
+			}
+			final long now = System.currentTimeMillis();
+			monitored.issues.values().forEach(state -> schedule(subscription, monitored, state, now));
+		}
+	}
+
+	/**
+	 * Return a new monitored state without issue nor SLA.
+	 */
+	private Subscription newSubscription(final BusinessCalendar calendar) {
+		final Subscription monitored = new Subscription();
+		monitored.calendar = calendar;
+		monitored.cursor = new ComputationContext(calendar);
+		return monitored;
+	}
+
+	/**
+	 * Stop the monitoring of a subscription. The scheduled breaches of this subscription are cancelled.
+	 *
+	 * @param subscription the subscription's identifier.
+	 */
+	public void unmonitor(final int subscription) {
+		final Subscription monitored = subscriptions.remove(subscription);
+		if (monitored != null) {
+			synchronized (monitored) {
+				monitored.timers.values().forEach(this::cancel);
+				monitored.timers.clear();
+			}
+		}
+	}
+
+	/**
+	 * Indicates the given subscription is monitored.
+	 *
+	 * @param subscription the subscription's identifier.
+	 * @return <code>true</code> when the given subscription is monitored.
+	 */
+	public boolean isMonitored(final int subscription) {
+		return subscriptions.containsKey(subscription);
+	}
+
+	/**
+	 * Return the amount of monitored issues of a subscription.
+	 *
+	 * @param subscription the subscription's identifier.
+	 * @return The amount of monitored issues, <code>0</code> when the subscription is not monitored.
+	 */
+	public int getIssueCount(final int subscription) {
+		final Subscription monitored = subscriptions.get(subscription);
+		if (monitored == null) {
+			return 0;
+		}
+		synchronized (monitored) {
+			return monitored.issues.size();
+		}
+	}
+
+	/**
+	 * Return the amount of scheduled breaches of a subscription.
+	 *
+	 * @param subscription the subscription's identifier.
+	 * @return The amount of scheduled and not yet fired breaches, <code>0</code> when the subscription is not
+	 *         monitored.
+	 */
+	public int getBreachCount(final int subscription) {
+		final Subscription monitored = subscriptions.get(subscription);
+		if (monitored == null) {
+			return 0;
+		}
+		synchronized (monitored) {
+			return monitored.timers.values().stream().mapToInt(List::size).sum();
+		}
+	}
+
+	/**
+	 * Update the state of the issue, and reschedule the breaches of this issue only. A change created before the last
+	 * notified one is considered as created at the same time. The changes of non monitored subscriptions are ignored,
+	 * the ones of a registered and not yet monitored subscription are buffered. The state of a resolved issue is
+	 * dropped.
+	 */
+	@Override
+	public void onStatusChange(final int subscription, final ChangeItem change) {
+		final Subscription monitored = subscriptions.get(subscription);
+		if (monitored == null) {
+			// Not monitored subscription
+			return;
+		}
+		synchronized (monitored) {
+			if (monitored.pending != null) {
+				// Initial state not yet computed
+				monitored.pending.add(change);
+				return;
+			}
+			final IssueState state = apply(monitored, change);
+			if (state != null) {
+				schedule(subscription, monitored, state, System.currentTimeMillis());
+			}
+		}
+	}
+
+	/**
+	 * Update the state of the issue of a change, without scheduling its breaches.
+	 *
+	 * @return The updated state of the issue, <code>null</code> when resolved.
+	 */
+	private IssueState apply(final Subscription monitored, final ChangeItem change) {
+		if (monitored.watermark == null) {
+			// First change
+			monitored.cursor.reset(change.getCreated().getTime());
+		}
+		if (monitored.watermark == null || change.getCreated().after(monitored.watermark)) {
+			monitored.watermark = change.getCreated();
+		}
+		monitored.cumulatedElapsed += monitored.cursor.moveForwardTo(change.getCreated().getTime());
+		if (change.getResolution() != null) {
+			// Resolved issue, not monitored anymore
+			monitored.issues.remove(change.getId());
+			cancel(monitored.timers.remove(change.getId()));
+			return null;
+		}
+		IssueState state = monitored.issues.get(change.getId());
+		if (state == null) {
+			state = processor.newIssueState(processor.newIssueStatus(change), monitored.rules, monitored.calendar);
+			monitored.issues.put(change.getId(), state);
+		} else {
+			processor.setDetails(state.getIssue(), change);
+		}
+		processor.addChange(state, processor.newStatusChange(change, monitored.cumulatedElapsed), monitored.rules,
+				monitored.triggers);
+		return state;
+	}
+
+	/**
+	 * Forecast the breaches of the issue from a copy of its state, and replace its scheduled breaches.
+	 */
+	private void schedule(final int subscription, final Subscription monitored, final IssueState state,
+			final long now) {
+		final int id = state.getIssue().getId();
+		cancel(monitored.timers.remove(id));
+
+		// Complete a copy of the issue state until now, the shared cursor stays at the watermark
+		final ComputationContext tail = new ComputationContext(monitored.calendar);
+		tail.reset(monitored.watermark);
+		final long cumulatedElapsed = monitored.cumulatedElapsed + tail.moveForwardTo(now);
+		final IssueSla issueSla = processor.getIssueSlas(processor.copyIssueState(state, monitored.calendar),
+				cumulatedElapsed, new Date(now), monitored.rules, monitored.triggers);
+
+		final List<TimerWheel.Timer<SlaBreach>> timers = new ArrayList<>();
+		final List<SlaData> data = issueSla.getData();
+		for (int index = 0; index < data.size(); index++) {
+			if (data.get(index) != null && data.get(index).getBreach() != null) {
+				final SlaBreach breach = new SlaBreach();
+				breach.setSubscription(subscription);
+				breach.setId(id);
+				breach.setPkey(issueSla.getPkey());
+				breach.setSla(index);
+				breach.setBreach(data.get(index).getBreach());
+				synchronized (wheel) {
+					timers.add(wheel.schedule(breach.getBreach().getTime(), breach));
+				}
+			}
+		}
+		if (!timers.isEmpty()) {
+			monitored.timers.put(id, timers);
+		}
+	}
+
+	/**
+	 * Remove the timer of a fired breach from the scheduled breaches of its issue.
+	 */
+	private void forget(final SlaBreach breach) {
+		final Subscription monitored = subscriptions.get(breach.getSubscription());
+		if (monitored != null) {
+			synchronized (monitored) {
+				final List<TimerWheel.Timer<SlaBreach>> timers = monitored.timers.get(breach.getId());
+				if (timers != null) {
+					timers.removeIf(t -> t.getValue() == breach);
+					if (timers.isEmpty()) {
+						monitored.timers.remove(breach.getId());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Cancel the given timers.
+	 */
+	private void cancel(final List<TimerWheel.Timer<SlaBreach>> timers) {
+		if (timers != null) {
+			synchronized (wheel) {
+				timers.forEach(TimerWheel.Timer::cancel);
+			}
+		}
+	}
+
+	/**
+	 * Advance the time and notify the listeners of the reached breaches. Called at each tick by the scheduler.
+	 *
+	 * @param now The current time, in milliseconds since epoch.
+	 */
+	public void advance(final long now) {
+		final List<SlaBreach> breaches = new ArrayList<>();
+		synchronized (wheel) {
+			wheel.advance(now, breaches::add);
+		}
+
+		// Notify outside the lock, listeners may notify changes
+		for (final SlaBreach breach : breaches) {
+			forget(breach);
+			log.info("SLA {} of issue {} ({}) of subscription {} is breached at {}", breach.getSla(),
+					breach.getPkey(), breach.getId(), breach.getSubscription(), breach.getBreach());
+			listeners.forEach(l -> l.accept(breach));
+		}
+	}
+}
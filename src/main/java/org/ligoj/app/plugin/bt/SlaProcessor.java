@@ -4,19 +4,30 @@
 package org.ligoj.app.plugin.bt;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.ObjectUtils;
 import org.ligoj.app.plugin.bt.model.BusinessHours;
 import org.ligoj.app.plugin.bt.model.ChangeItem;
+import org.ligoj.app.plugin.bt.model.IssueDetails;
 import org.ligoj.app.plugin.bt.model.Sla;
 import org.ligoj.bootstrap.core.DateUtils;
 import org.ligoj.bootstrap.core.DescribedBean;
+import org.ligoj.bootstrap.core.json.TableItem;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -29,6 +40,33 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class SlaProcessor {
 
+	/**
+	 * No triggered SLA.
+	 */
+	private static final int[] NO_TRIGGER = new int[0];
+
+	/**
+	 * The sortable issue attributes.
+	 */
+	private static final Map<String, Comparator<IssueSla>> ISSUE_COLUMNS = Map.ofEntries(
+			Map.entry("id", by(IssueSla::getId)), Map.entry("pkey", by(IssueSla::getPkey)),
+			Map.entry("created", by(IssueSla::getCreated)), Map.entry("priority", by(IssueSla::getPriority)),
+			Map.entry("status", by(IssueSla::getStatus)), Map.entry("type", by(IssueSla::getType)),
+			Map.entry("resolution", by(IssueSla::getResolution)), Map.entry("reporter", by(IssueSla::getReporter)),
+			Map.entry("assignee", by(IssueSla::getAssignee)), Map.entry("timeSpent", by(IssueSla::getTimeSpent)),
+			Map.entry("timeEstimate", by(IssueSla::getTimeEstimate)),
+			Map.entry("timeEstimateInit", by(IssueSla::getTimeEstimateInit)),
+			Map.entry("dueDate", by(IssueSla::getDueDate)));
+
+	/**
+	 * The sortable SLA data attributes.
+	 */
+	private static final Map<String, Function<Integer, Comparator<IssueSla>>> DATA_COLUMNS = Map.of("duration",
+			byData(SlaData::getDuration), "start", byData(SlaData::getStart), "stop", byData(SlaData::getStop),
+			"revisedDueDate", byData(SlaData::getRevisedDueDate), "revisedDueDateDistance",
+			byData(SlaData::getRevisedDueDateDistance), "remaining", byData(SlaData::getRemaining), "breach",
+			byData(SlaData::getBreach));
+
 	@Autowired
 	protected IdentifierHelper identifierHelper;
 
@@ -44,25 +82,371 @@ public class SlaProcessor {
 	public SlaComputations process(final List<BusinessHours> businessHours, final List<ChangeItem> changes,
 			final List<Date> holidays, final List<Sla> slas) {
 
-		// Compute elapsed times
-		final Map<Integer, IssueStatus> groupChanges = computedElapsedTimes(changes, holidays, businessHours);
+		return process(new BusinessCalendar(holidays, businessHours), changes, slas);
+	}
+
+	/**
+	 * Return SLA computations.
+	 *
+	 * @param calendar The compiled business calendar. May be shared by several computations.
+	 * @param changes  the changes of all issues. Ordered by date.
+	 * @param slas     the SLA configurations.
+	 * @return the SLA configuration
+	 */
+	public SlaComputations process(final BusinessCalendar calendar, final List<ChangeItem> changes,
+			final List<Sla> slas) {
+		return process(calendar, changes, slas, null);
+	}
+
+	/**
+	 * Return SLA computations. The business time cursor is advanced once over all changes, then the elapsed times and
+	 * the SLA of each issue are computed independently, in parallel when a pool is given. The issues are returned in
+	 * the same order in both cases.
+	 *
+	 * @param calendar The compiled business calendar. May be shared by several computations.
+	 * @param changes  the changes of all issues. Ordered by date.
+	 * @param slas     the SLA configurations.
+	 * @param pool     The pool computing the issues in parallel. When <code>null</code>, the issues are computed by the
+	 *                 current thread.
+	 * @return the SLA configuration
+	 */
+	public SlaComputations process(final BusinessCalendar calendar, final List<ChangeItem> changes,
+			final List<Sla> slas, final ForkJoinPool pool) {
+		if (pool == null) {
+			// Fold the changes as they come
+			return process(calendar, changes.iterator(), slas);
+		}
+
+		// Compute the position of each change, the same time is used until now for all issues
+		final Date now = DateUtils.newCalendar().getTime();
+		final ChangeStore store = new ChangeStore(changes.size());
+		final SlaComputations result = newSlaComputations(slas);
+		final long cumulatedElapsed = computeSnapshotTimes(changes, store, result, calendar, now);
+
+		// Compute elapsed times and SLAs, issues are independent and the encounter order is kept
+		final List<SlaRule> rules = slas.stream().map(SlaRule::new).toList();
+		final int[][] triggers = getTriggers(rules);
+		setIssues(pool.submit(() -> IntStream.range(0, store.getIssueCount()).parallel().mapToObj(issue -> {
+			final IssueState state = newIssueState(store.getIssue(issue), rules, calendar);
+			for (int change = store.getFirst(issue); change != ChangeStore.NONE; change = store.getNext(change)) {
+				addChange(state, store.newStatusChange(change), rules, triggers);
+			}
+			return getIssueSlas(state, cumulatedElapsed, now, rules, triggers);
+		}).toList()).join(), result);
+		return result;
+	}
 
-		// Compute SLAs
-		return computeSlas(groupChanges, slas, holidays, businessHours);
+	/**
+	 * Return SLA computations from a stream of changes.
+	 *
+	 * @param calendar The compiled business calendar. May be shared by several computations.
+	 * @param changes  the changes of all issues. Ordered by date.
+	 * @param slas     the SLA configurations.
+	 * @return the SLA configuration
+	 * @see #process(BusinessCalendar, Iterator, List)
+	 */
+	public SlaComputations process(final BusinessCalendar calendar, final Stream<ChangeItem> changes,
+			final List<Sla> slas) {
+		return process(calendar, changes.iterator(), slas);
 	}
 
 	/**
-	 * Compute SLA for each issue, based on the given status changes.
+	 * Return SLA computations from an iterator of changes. Each change is folded into the state of its issue as soon
+	 * as the next change of this issue is read, and is not referenced anymore. So the retained memory depends on the
+	 * amount of issues, not on the amount of changes.
+	 *
+	 * @param calendar The compiled business calendar. May be shared by several computations.
+	 * @param changes  the changes of all issues. Ordered by date.
+	 * @param slas     the SLA configurations.
+	 * @return the SLA configuration
+	 */
+	public SlaComputations process(final BusinessCalendar calendar, final Iterator<ChangeItem> changes,
+			final List<Sla> slas) {
+		return process(calendar, changes, slas, null);
+	}
+
+	/**
+	 * Return SLA computations from an iterator of changes, resuming the given checkpoint. Only the changes created
+	 * from the watermark of this checkpoint have to be given, the returned computations include the issues of the
+	 * checkpoint. The changes created at the watermark and already processed are skipped.
+	 *
+	 * @param calendar   The compiled business calendar. Must be the same than the one of the checkpoint.
+	 * @param changes    the changes of all issues created from the watermark. Ordered by date, then by issue.
+	 * @param slas       the SLA configurations. Must be the same than the ones of the checkpoint.
+	 * @param checkpoint The state of the previous computation. Updated with the state of this computation, before the
+	 *                   elapsed time until now is added. May be <code>null</code>.
+	 * @return the SLA configuration
+	 * @see #process(BusinessCalendar, Iterator, List)
+	 */
+	public SlaComputations process(final BusinessCalendar calendar, final Iterator<ChangeItem> changes,
+			final List<Sla> slas, final SlaCheckpoint checkpoint) {
+		return process(calendar, changes, slas, checkpoint, new SlaProgress());
+	}
+
+	/**
+	 * Return SLA computations from an iterator of changes, resuming the given checkpoint and reporting the progress.
+	 * The cancellation is checked between the changes and between the issues.
+	 *
+	 * @param calendar   The compiled business calendar. Must be the same than the one of the checkpoint.
+	 * @param changes    the changes of all issues created after the watermark. Ordered by date.
+	 * @param slas       the SLA configurations. Must be the same than the ones of the checkpoint.
+	 * @param checkpoint The state of the previous computation. May be <code>null</code>.
+	 * @param progress   The progress updated by this computation, and holding the cancellation request.
+	 * @return the SLA configuration
+	 * @throws java.util.concurrent.CancellationException When the cancellation is requested.
+	 * @see #process(BusinessCalendar, Iterator, List, SlaCheckpoint)
+	 */
+	public SlaComputations process(final BusinessCalendar calendar, final Iterator<ChangeItem> changes,
+			final List<Sla> slas, final SlaCheckpoint checkpoint, final SlaProgress progress) {
+		final SlaComputations result = newSlaComputations(slas);
+		setIssues(processIssues(calendar, changes, slas, checkpoint, result, progress).toList(), result);
+		return result;
+	}
+
+	/**
+	 * Return the statistics of the SLA computations, grouped by SLA, priority and type. The SLA data of each issue is
+	 * folded once completed, so the issues are not returned.
+	 *
+	 * @param calendar The compiled business calendar. May be shared by several computations.
+	 * @param changes  the changes of all issues. Ordered by date.
+	 * @param slas     the SLA configurations.
+	 * @return the SLA configuration with the statistics and without issue.
+	 * @see SlaAggregator
+	 */
+	public SlaComputations aggregate(final BusinessCalendar calendar, final Iterator<ChangeItem> changes,
+			final List<Sla> slas) {
+		final SlaComputations result = newSlaComputations(slas);
+		result.setStatistics(processIssues(calendar, changes, slas, null, result, new SlaProgress())
+				.collect(SlaAggregator.collector(slas)).getStatistics());
+		return result;
+	}
+
+	/**
+	 * Return the open issues having spent the most business time in their current status, for each status. Each issue
+	 * is folded once completed, so the issues are not returned.
+	 *
+	 * @param calendar The compiled business calendar. May be shared by several computations.
+	 * @param changes  the changes of all issues. Ordered by date.
+	 * @param slas     the SLA configurations.
+	 * @param limit    The maximal amount of returned issues by status.
+	 * @return the SLA configuration with the aging and without issue.
+	 * @see IssueAging
+	 */
+	public SlaComputations aging(final BusinessCalendar calendar, final Iterator<ChangeItem> changes,
+			final List<Sla> slas, final int limit) {
+		final SlaComputations result = newSlaComputations(slas);
+		result.setAging(processIssues(calendar, changes, slas, null, result, new SlaProgress())
+				.collect(IssueAging.collector(limit)).getOldest());
+		return result;
+	}
+
+	/**
+	 * Return the compliance of each SLA, grouped by one or two dimensions of the issues. Each issue is folded once
+	 * completed, so the issues are not returned.
+	 *
+	 * @param calendar   The compiled business calendar. May be shared by several computations.
+	 * @param changes    the changes of all issues. Ordered by date.
+	 * @param slas       the SLA configurations.
+	 * @param dimensions The grouped dimensions, such as <code>assignee</code> or <code>priority</code>.
+	 * @return the SLA configuration with the groups and without issue.
+	 * @see SlaGroupBy
+	 */
+	public SlaComputations groupBy(final BusinessCalendar calendar, final Iterator<ChangeItem> changes,
+			final List<Sla> slas, final List<String> dimensions) {
+		final SlaComputations result = newSlaComputations(slas);
+		final SlaGroupBy groupBy = new SlaGroupBy(slas, dimensions);
+		processIssues(calendar, changes, slas, null, result, new SlaProgress()).forEach(groupBy);
+		result.setGroups(groupBy.getGroups());
+		return result;
+	}
+
+	/**
+	 * Return the compliance of each SLA over time: the issues stopped in each time bucket of the range, and how many of
+	 * them within the threshold. Each issue is folded once completed, so the issues are not returned.
+	 *
+	 * @param calendar    The compiled business calendar. May be shared by several computations.
+	 * @param changes     the changes of all issues. Ordered by date.
+	 * @param slas        the SLA configurations.
+	 * @param from        The start of the range, included. Rounded down to the start of its bucket.
+	 * @param to          The end of the range, excluded.
+	 * @param granularity The bucket granularity: <code>day</code>, <code>week</code> or <code>month</code>.
+	 * @return the SLA configuration with the compliances and without issue.
+	 * @see SlaTimeSeries
 	 */
-	private SlaComputations computeSlas(final Map<Integer, IssueStatus> groupChanges, final List<Sla> slas,
-			final List<Date> holidays, final List<BusinessHours> nonBusinessHours) {
+	public SlaComputations compliance(final BusinessCalendar calendar, final Iterator<ChangeItem> changes,
+			final List<Sla> slas, final Date from, final Date to, final String granularity) {
+		final SlaComputations result = newSlaComputations(slas);
+		final SlaTimeSeries series = new SlaTimeSeries(slas, from, to, granularity);
+		processIssues(calendar, changes, slas, null, result, new SlaProgress()).forEach(series);
+		result.setCompliances(series.getCompliances());
+		return result;
+	}
+
+	/**
+	 * Return the SLA computations of each issue, completed lazily. Since the last change of an issue is only known once
+	 * all changes are read, the changes are all folded before the first issue is returned. Only the state of each
+	 * issue is kept in memory, and the issues can be written one by one.
+	 *
+	 * @param calendar The compiled business calendar. May be shared by several computations.
+	 * @param changes  the changes of all issues. Ordered by date.
+	 * @param slas     the SLA configurations.
+	 * @return the stream of issues with all computed SLA, in the order of their first change.
+	 */
+	public Stream<IssueSla> stream(final BusinessCalendar calendar, final Iterator<ChangeItem> changes,
+			final List<Sla> slas) {
+		return processIssues(calendar, changes, slas, null, newSlaComputations(slas), new SlaProgress());
+	}
+
+	/**
+	 * Fold the changes, and return the stream completing the SLA of each issue. The transitions and the cumulative
+	 * flow are set in the given result, and the progress is updated.
+	 */
+	private Stream<IssueSla> processIssues(final BusinessCalendar calendar, final Iterator<ChangeItem> changes,
+			final List<Sla> slas, final SlaCheckpoint checkpoint, final SlaComputations result,
+			final SlaProgress progress) {
+		final List<SlaRule> rules = slas.stream().map(SlaRule::new).toList();
+		final int[][] triggers = getTriggers(rules);
+		final Map<Integer, IssueState> states = new LinkedHashMap<>();
+		final ComputationContext computationContext = new ComputationContext(calendar);
+		final TransitionMatrix transitions = new TransitionMatrix();
+		CumulativeFlow flow = new CumulativeFlow();
+		long cumulatedElapsed = 0;
+		Date watermark = null;
+		Integer watermarkIssue = null;
+		Date resumed = null;
+		if (checkpoint != null && checkpoint.getWatermark() != null) {
+			// Resume the previous computation
+			watermark = checkpoint.getWatermark();
+			watermarkIssue = checkpoint.getWatermarkIssue();
+			resumed = watermark;
+			computationContext.reset(watermark);
+			cumulatedElapsed = checkpoint.getCumulatedElapsed();
+			checkpoint.getIssues().forEach(s -> states.put(s.getIssue().getId(), copyIssueState(s, calendar)));
+			transitions.add(checkpoint.getTransitions());
+			flow = checkpoint.getFlow().copy();
+		}
+		final Integer resumedIssue = watermarkIssue;
+		while (changes.hasNext()) {
+			progress.checkCancelled();
+			final ChangeItem change = changes.next();
+			if (resumed != null && !isAfter(change, resumed, resumedIssue)) {
+				// Already folded by the resumed computation
+				continue;
+			}
+			if (watermark == null) {
+				// First change
+				computationContext.reset(change.getCreated().getTime());
+			}
+			if (watermark == null || isAfter(change, watermark, watermarkIssue)) {
+				watermark = change.getCreated();
+				watermarkIssue = change.getId();
+			}
+
+			// Compute the elapsed time for the last cursor to the creation of this change
+			cumulatedElapsed += computationContext.moveForwardTo(change.getCreated().getTime());
+			IssueState state = states.get(change.getId());
+			if (state == null) {
+				state = newIssueState(newIssueStatus(change), rules, calendar);
+				states.put(change.getId(), state);
+			} else {
+				// The attributes of the issue may have changed since its first change
+				setDetails(state.getIssue(), change);
+			}
+			final StatusChange last = state.getLast();
+			if (last != null) {
+				// The previous status is aligned to the origin of this transition by the transition check
+				transitions.add(ObjectUtils.defaultIfNull(change.getFromStatus(), last.getStatus()),
+						change.getToStatus());
+			}
+			flow.add(change.getCreated(), last == null ? ChangeStore.NONE : last.getStatus(), change.getToStatus());
+			addChange(state, newStatusChange(change, cumulatedElapsed), rules, triggers);
+			progress.addChange();
+		}
+
+		if (checkpoint != null) {
+			// Save the state before the completion
+			checkpoint.setWatermark(watermark);
+			checkpoint.setWatermarkIssue(watermarkIssue);
+			checkpoint.setCumulatedElapsed(cumulatedElapsed);
+			checkpoint.setIssues(states.values().stream().map(s -> copyIssueState(s, calendar)).toList());
+			checkpoint.setTransitions(new TransitionMatrix());
+			checkpoint.getTransitions().add(transitions);
+			checkpoint.setFlow(flow.copy());
+		}
+		result.setTransitions(transitions);
+		result.setFlow(flow);
+
+		final Date now = DateUtils.newCalendar().getTime();
+		if (watermark != null) {
+			// Add elapsed time and days until now
+			cumulatedElapsed += computationContext.moveForwardTo(now.getTime());
+			flow.extendTo(now);
+		}
+
+		// Complete the SLA of each issue
+		final long tail = cumulatedElapsed;
+		return states.values().stream().map(state -> {
+			progress.checkCancelled();
+			final IssueSla issue = getIssueSlas(state, tail, now, rules, triggers);
+			progress.addIssue();
+			return issue;
+		});
+	}
+
+	/**
+	 * Indicate the change is after the given watermark: created after its date, or at the same date for a greater
+	 * issue identifier.
+	 */
+	static boolean isAfter(final ChangeItem change, final Date watermark, final Integer watermarkIssue) {
+		final int compare = change.getCreated().compareTo(watermark);
+		return compare > 0 || compare == 0 && watermarkIssue != null && change.getId() > watermarkIssue;
+	}
+
+	/**
+	 * Return a new SLA computation result without issue.
+	 */
+	private SlaComputations newSlaComputations(final List<Sla> slas) {
 		final SlaComputations result = new SlaComputations();
 		result.setSlaConfigurations(toSlaConfiguration(slas));
-		result.setIssues(groupChanges.values().stream()
-				.map(issue -> getIssueSlas(issue, slas, holidays, nonBusinessHours)).toList());
 		return result;
 	}
 
+	/**
+	 * Set the issues of the SLA computations, and the business time spent in each status by all issues.
+	 */
+	private void setIssues(final List<IssueSla> issues, final SlaComputations result) {
+		final Map<Integer, Long> timeInStatus = new HashMap<>();
+		for (final IssueSla issue : issues) {
+			issue.getTimeInStatus().forEach((status, time) -> timeInStatus.merge(status, time, Long::sum));
+		}
+		result.setIssues(issues);
+		result.setTimeInStatus(timeInStatus);
+	}
+
+	/**
+	 * Return the SLA triggered by each status: the SLA having this status in its start, stop or pause statuses.
+	 *
+	 * @param rules the compiled SLA configurations.
+	 * @return The ordered SLA indexes triggered by each status. Index is the status identifier.
+	 */
+	int[][] getTriggers(final List<SlaRule> rules) {
+		final int max = rules.stream().mapToInt(SlaRule::getMaxStatus).max().orElse(-1);
+		final int[][] triggers = new int[max + 1][];
+		for (int status = 0; status <= max; status++) {
+			final int trigger = status;
+			triggers[status] = IntStream.range(0, rules.size())
+					.filter(index -> rules.get(index).getActions(trigger) != SlaRule.NONE).toArray();
+		}
+		return triggers;
+	}
+
+	/**
+	 * Return the SLA indexes triggered by the given status.
+	 */
+	private int[] getTriggers(final int[][] triggers, final int status) {
+		return status >= 0 && status < triggers.length ? triggers[status] : NO_TRIGGER;
+	}
+
 	/**
 	 * Prepare SLA configuration to optimize the computations.
 	 *
@@ -90,10 +474,11 @@ public class SlaProcessor {
 	}
 
 	/**
-	 * Return the issue with all computed SLA.
+	 * Return the issue with all computed SLA. The last change of this issue is folded there.
 	 */
-	private IssueSla getIssueSlas(final IssueStatus issue, final List<Sla> slas, final List<Date> holidays,
-			final List<BusinessHours> nonBusinessHours) {
+	IssueSla getIssueSlas(final IssueState state, final long cumulatedElapsed, final Date now,
+			final List<SlaRule> rules, final int[][] triggers) {
+		final IssueStatus issue = state.getIssue();
 		final IssueSla issueSla = new IssueSla();
 		issueSla.setId(issue.getId());
 		issueSla.setPriority(issue.getPriority());
@@ -111,113 +496,243 @@ public class SlaProcessor {
 		issueSla.setCreated(issue.getCreated());
 		issueSla.setDueDate(issue.getDueDate());
 
+		// Update elapsed time for the tail
+		final StatusChange last = state.getLast();
+		updateElapsedTime(cumulatedElapsed, last);
+		foldChange(state, last, rules, triggers);
+		issueSla.setCurrentStatus(last.getStatus());
+		issueSla.setAge(last.getElapsedtime());
+
 		// Add elapsed times for all relevant statuses for each SLA
-		issueSla.setData(getSlaDurations(issue, slas, holidays, nonBusinessHours));
+		issueSla.setData(getSlaDurations(state, now, rules));
 
-		// Add status counter
-		issueSla.setStatusCounter(getStatusCounter(issue));
+		// Add status counter and time in status
+		issueSla.setStatusCounter(state.getStatusCounter());
+		issueSla.setTimeInStatus(state.getTimeInStatus());
+		issueSla.setLoops(state.getLoops());
 
 		return issueSla;
 	}
 
 	/**
-	 * For each change, increment the status counter.
+	 * Return a new issue state, with a state for each SLA. The applicability of the SLA is checked on completion, with
+	 * the latest attributes of the issue.
+	 */
+	IssueState newIssueState(final IssueStatus issue, final List<SlaRule> rules,
+			final BusinessCalendar calendar) {
+		final IssueState state = new IssueState();
+		state.setIssue(issue);
+		final SlaState[] slas = new SlaState[rules.size()];
+		for (int index = 0; index < slas.length; index++) {
+			slas[index] = newSlaState(issue, calendar);
+		}
+		state.setSlas(slas);
+		return state;
+	}
+
+	/**
+	 * Return a copy of the given issue state. The issue details, the status change and SLA states are copied.
+	 */
+	IssueState copyIssueState(final IssueState source, final BusinessCalendar calendar) {
+		final IssueState state = new IssueState();
+		state.setIssue(newIssueStatus(source.getIssue()));
+		state.setIndex(source.getIndex());
+		state.setCumulatedElapsed(source.getCumulatedElapsed());
+		state.setStatusCounter(new HashMap<>(source.getStatusCounter()));
+		state.setTimeInStatus(new HashMap<>(source.getTimeInStatus()));
+		state.setLoops(source.getLoops());
+		final StatusChange last = new StatusChange();
+		last.setStatus(source.getLast().getStatus());
+		last.setFromStatus(source.getLast().getFromStatus());
+		last.setCreated(source.getLast().getCreated());
+		last.setSnapshotTime(source.getLast().getSnapshotTime());
+		last.setElapsedtime(source.getLast().getElapsedtime());
+		state.setLast(last);
+		final SlaState[] slas = new SlaState[source.getSlas().length];
+		for (int index = 0; index < slas.length; index++) {
+			final SlaState sla = source.getSlas()[index];
+			if (sla != null) {
+				slas[index] = copySlaState(sla, calendar);
+				if (sla.isPaused()) {
+					state.getPaused().add(slas[index]);
+				}
+			}
+		}
+		state.setSlas(slas);
+		return state;
+	}
+
+	/**
+	 * Return a copy of the given SLA state. The context is not copied: when reset, its cursor is the revised due date,
+	 * and a new context is reset to this date when needed.
+	 */
+	private SlaState copySlaState(final SlaState source, final BusinessCalendar calendar) {
+		final SlaState state = new SlaState();
+		state.setContext(new ComputationContext(calendar));
+		state.setStarted(source.isStarted());
+		state.setPaused(source.isPaused());
+		state.setRunningSince(source.getRunningSince());
+		state.setTrigger(source.getTrigger());
+		final SlaData data = state.getData();
+		data.setDuration(source.getData().getDuration());
+		data.setRevisedDueDate(source.getData().getRevisedDueDate());
+		data.setRevisedDueDateDistance(source.getData().getRevisedDueDateDistance());
+		data.setStart(source.getData().getStart());
+		data.setStop(source.getData().getStop());
+		return state;
+	}
+
+	/**
+	 * Add a status change to the issue. The previous change of this issue is validated and folded, since its elapsed
+	 * time is now known.
+	 */
+	void addChange(final IssueState state, final StatusChange change, final List<SlaRule> rules,
+			final int[][] triggers) {
+		final StatusChange last = state.getLast();
+		if (last != null) {
+			// Update the elapsed time of previous state
+			updateElapsedTime(change.getSnapshotTime(), last);
+			checkTransition(change, last, state.getIssue(), state.getIndex() == 0);
+			foldChange(state, last, rules, triggers);
+		}
+		state.setLast(change);
+	}
+
+	/**
+	 * Increment the status counter and advance the SLA of the issue with a change having a known elapsed time. Only
+	 * the SLA triggered by the status of the change and the paused ones are updated.
+	 */
+	private void foldChange(final IssueState state, final StatusChange change, final List<SlaRule> rules,
+			final int[][] triggers) {
+		// Increment the counter for this status
+		final int status = change.getStatus();
+		final Map<Integer, Integer> statusCounter = state.getStatusCounter();
+		if (statusCounter.containsKey(status)) {
+			// Back to an already visited status
+			state.setLoops(state.getLoops() + 1);
+		}
+		statusCounter.put(status, ObjectUtils.defaultIfNull(statusCounter.get(status), 0) + 1);
+		addTimeInStatus(state, status, change.getElapsedtime());
+
+		final SlaState[] slas = state.getSlas();
+		final int index = state.getIndex();
+		final long cumulatedElapsed = state.getCumulatedElapsed();
+		for (final int sla : getTriggers(triggers, status)) {
+			if (slas[sla] != null) {
+				// Look the SLA triggers
+				slas[sla].setTrigger(index);
+				applyTrigger(rules.get(sla).getActions(status), slas[sla], change, cumulatedElapsed, state.getPaused());
+			}
+		}
+		for (final SlaState sla : state.getPaused()) {
+			if (sla.getTrigger() != index) {
+				// Non managed state, continue the pause time
+				updatePause(sla, change);
+			}
+		}
+		state.setCumulatedElapsed(cumulatedElapsed + change.getElapsedtime());
+		state.setIndex(index + 1);
+	}
+
+	/**
+	 * Add the elapsed time of a change to the time spent in its status. Only the visited statuses are stored, whatever
+	 * the range of the status identifiers.
 	 */
-	private Map<Integer, Integer> getStatusCounter(final IssueStatus issue) {
-		final Map<Integer, Integer> statusCounter = new HashMap<>();
-		for (final StatusChange change : issue.getChanges()) {
-			// Increment the counter for this status
-			final int status = change.getStatus();
-			statusCounter.put(status, ObjectUtils.defaultIfNull(statusCounter.get(status), 0) + 1);
+	private void addTimeInStatus(final IssueState state, final int status, final long elapsed) {
+		if (status < 0) {
+			// Not a status identifier
+			return;
 		}
-		return statusCounter;
+		state.getTimeInStatus().merge(status, elapsed, Long::sum);
 	}
 
 	/**
-	 * For each SLA, get the elapsed time for given issue.
+	 * For each SLA, get the elapsed time for given issue once all changes have been folded.
 	 */
-	private List<SlaData> getSlaDurations(final IssueStatus issue, final List<Sla> slas, final List<Date> holidays,
-			final List<BusinessHours> nonBusinessHours) {
+	private List<SlaData> getSlaDurations(final IssueState state, final Date now, final List<SlaRule> rules) {
 		final List<SlaData> data = new ArrayList<>();
-		final Date now = DateUtils.newCalendar().getTime();
-		for (final Sla sla : slas) {
-			if (checkAppliance(issue, sla)) {
-				data.add(getSlaDuration(issue, sla, holidays, nonBusinessHours, now));
-			} else {
+		final SlaState[] slas = state.getSlas();
+		for (int index = 0; index < slas.length; index++) {
+			if (slas[index] == null || !rules.get(index).isApplicable(state.getIssue())) {
 				// Not applicable -> null
 				data.add(null);
+			} else {
+				data.add(getSlaDuration(slas[index], state.getCumulatedElapsed(), now,
+						rules.get(index).getSla().getThreshold()));
 			}
 		}
 		return data;
 	}
 
 	/**
-	 * Check the SLA can be applied for this issue.
-	 *
-	 * @param issue the current issue to check.
-	 * @param sla   the SLA to compute.
-	 * @return <code>true</code> if SLA can be applied to this issue.
+	 * Return a new SLA state for the given issue.
 	 */
-	private boolean checkAppliance(final IssueStatus issue, final Sla sla) {
-		return checkAppliance(issue.getType(), sla.getTypesAsSet())
-				&& checkAppliance(issue.getPriority(), sla.getPrioritiesAsSet())
-				&& checkAppliance(issue.getResolution(), sla.getResolutionsAsSet());
+	private SlaState newSlaState(final IssueStatus issue, final BusinessCalendar calendar) {
+		final SlaState state = new SlaState();
+		state.setContext(new ComputationContext(calendar));
+		state.getData().setRevisedDueDate(issue.getDueDate());
+		return state;
 	}
 
 	/**
-	 * Check the value against the filtered ones.
-	 *
-	 * @param identifier          the current issue to check.
-	 * @param filteredIdentifiers the filtered identifiers.
-	 * @return <code>true</code> there is no filtered identifiers or when the given identifier is in the filtered
-	 * identifiers.
-	 */
-	private boolean checkAppliance(final Integer identifier, final Set<Integer> filteredIdentifiers) {
-		return filteredIdentifiers.isEmpty() || filteredIdentifiers.contains(identifier);
-	}
-
-	/**
-	 * Return the elapsed time for the given SLA and issue or <code>null</code> if SLA cannot be applied for this issue.
-	 */
-	private SlaData getSlaDuration(final IssueStatus issue, final Sla sla, final List<Date> holidays,
-			final List<BusinessHours> nonBusinessHours, final Date now) {
-		boolean started = false;
-		boolean paused = false;
-		final ComputationContext computationContext = new ComputationContext(holidays, nonBusinessHours);
-		final SlaData result = new SlaData();
-		result.setRevisedDueDate(issue.getDueDate());
-
-		for (final StatusChange change : issue.getChanges()) {
-			// Look the SLA triggers
-			if (sla.getStopAsSet().contains(change.getStatus())) {
-				// SLA is completed
-				started = false;
-				paused = false;
-				if (result.getStop() == null) {
-					// First encounter of stopped workflow
-					result.setStop(change.getChange().getCreated());
-				}
-			} else if (started && sla.getPausedAsSet().contains(change.getStatus())) {
-				// Paused SLA, update the revised due date only if the pause is before the current revised due date
-				paused = true;
-				updatePause(result, change, computationContext);
-			} else if (sla.getStartAsSet().contains(change.getStatus())) {
-				// Add time of the current status of the not ended SLA
-				started = true;
-				paused = false;
-				result.setDuration(result.getDuration() + change.getElapsedtime());
-				if (result.getStart() == null) {
-					// First encounter of started workflow
-					result.setStart(change.getChange().getCreated());
-				}
-			} else if (paused) {
-				// Non managed state, continue the pause time
-				updatePause(result, change, computationContext);
-			} else if (started) {
-				// Non managed state, continue the timer
-				result.setDuration(result.getDuration() + change.getElapsedtime());
+	 * Update the SLA state with a change having one of its start, stop or pause statuses.
+	 */
+	private void applyTrigger(final int actions, final SlaState state, final StatusChange change,
+			final long cumulatedElapsed, final List<SlaState> paused) {
+		final SlaData result = state.getData();
+		if ((actions & SlaRule.STOP) != 0) {
+			// SLA is completed
+			stopTimer(state, cumulatedElapsed, paused);
+			state.setStarted(false);
+			if (result.getStop() == null) {
+				// First encounter of stopped workflow
+				result.setStop(change.getCreated());
+			}
+		} else if (state.isStarted() && (actions & SlaRule.PAUSE) != 0) {
+			// Paused SLA, update the revised due date only if the pause is before the current revised due date
+			if (!state.isPaused()) {
+				stopTimer(state, cumulatedElapsed, paused);
+				state.setPaused(true);
+				paused.add(state);
+			}
+			updatePause(state, change);
+		} else if ((actions & SlaRule.START) != 0) {
+			// Add time of the current status of the not ended SLA
+			if (!state.isRunning()) {
+				stopTimer(state, cumulatedElapsed, paused);
+				state.setRunningSince(cumulatedElapsed);
+			}
+			state.setStarted(true);
+			if (result.getStart() == null) {
+				// First encounter of started workflow
+				result.setStart(change.getCreated());
 			}
 		}
+	}
+
+	/**
+	 * Add the running time to the SLA duration, and leave the pause.
+	 */
+	private void stopTimer(final SlaState state, final long cumulatedElapsed, final List<SlaState> paused) {
+		if (state.isRunning()) {
+			// Add the elapsed time since the start of the timer
+			state.getData().setDuration(state.getData().getDuration() + cumulatedElapsed - state.getRunningSince());
+		} else if (state.isPaused()) {
+			state.setPaused(false);
+			paused.remove(state);
+		}
+	}
+
+	/**
+	 * Return the elapsed time for the given SLA state once all changes have been applied.
+	 */
+	private SlaData getSlaDuration(final SlaState state, final long cumulatedElapsed, final Date now,
+			final long threshold) {
+		final SlaData result = state.getData();
+		if (state.isRunning()) {
+			// Not ended SLA, add the time of the current status
+			result.setDuration(result.getDuration() + cumulatedElapsed - state.getRunningSince());
+		}
 
 		if (result.getRevisedDueDate() != null) {
 			// Compute the distance between the revised due date and the stopped workflow date
@@ -227,155 +742,344 @@ public class SlaProcessor {
 				stop = now;
 			}
 
+			final ComputationContext computationContext = state.getContext();
 			if (stop.after(result.getRevisedDueDate())) {
 				// The SLA is invalid, the workflow stopped after the revised due date --> negative distance
 				resetRevisedDueDate(computationContext, result);
-				result.setRevisedDueDateDistance(-computationContext.moveForward(stop));
+				result.setRevisedDueDateDistance(-computationContext.moveForwardTo(stop.getTime()));
 			} else {
 				// The SLA is valid, the workflow stopped before the revised due date --> positive distance
 				computationContext.reset(stop);
-				result.setRevisedDueDateDistance(-computationContext.moveForward(result.getRevisedDueDate()));
+				result.setRevisedDueDateDistance(-computationContext.moveForwardTo(result.getRevisedDueDate().getTime()));
 			}
 		}
 
+		if (threshold > 0 && state.isStarted()) {
+			// Open SLA, forecast the threshold breach
+			forecastBreach(state, now, threshold);
+		}
+
 		return result;
 	}
 
 	/**
-	 * Reset computation context to due date as needed.
+	 * Compute the business time left before the threshold, and the breach date when the SLA is running.
 	 */
-	private void resetRevisedDueDate(final ComputationContext computationContext, final SlaData result) {
-		if (computationContext.getCursor() == null) {
-			// First shift
-			computationContext.reset(result.getRevisedDueDate());
+	private void forecastBreach(final SlaState state, final Date now, final long threshold) {
+		final SlaData result = state.getData();
+		final long remaining = threshold - result.getDuration();
+		result.setRemaining(remaining);
+		if (state.isRunning() && remaining > 0) {
+			// The context is not used anymore for the revised due date
+			final ComputationContext computationContext = state.getContext();
+			computationContext.reset(now);
+			result.setBreach(new Date(computationContext.advance(remaining)));
 		}
 	}
 
 	/**
-	 * Update the pause context.
+	 * Return the issues having the least business time left before the threshold of the given SLA. Only the open
+	 * issues of an SLA having a threshold are considered. The ranking uses a heap bounded to the limit, so the whole
+	 * issues are not sorted.
+	 *
+	 * @param computations The SLA computations.
+	 * @param sla          The SLA index, within the SLA configurations.
+	 * @param limit        The maximal amount of returned issues.
+	 * @return The issues closest to the breach, ordered by ascending remaining time. The already breached issues come
+	 *         first.
 	 */
-	private void updatePause(final SlaData result, final StatusChange change,
-			final ComputationContext computationContext) {
-		if (result.getRevisedDueDate() != null && result.getRevisedDueDate().after(change.getChange().getCreated())) {
-			resetRevisedDueDate(computationContext, result);
+	public List<IssueSla> getClosestToBreach(final SlaComputations computations, final int sla, final int limit) {
+		checkSla(computations, sla);
+		final Comparator<IssueSla> comparator = Comparator
+				.comparingLong((IssueSla i) -> i.getData().get(sla).getRemaining())
+				.thenComparing(IssueSla::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+		final PriorityQueue<IssueSla> heap = newHeap(comparator, limit, computations.getIssues().size());
+		for (final IssueSla issue : computations.getIssues()) {
+			final SlaData data = issue.getData().get(sla);
+			if (data != null && data.getRemaining() != null) {
+				offer(heap, issue, comparator, limit);
+			}
+		}
+		return toSorted(heap, comparator);
+	}
 
-			// Update the revised due date
-			result.setRevisedDueDate(computationContext.moveForward(change.getElapsedtime()));
+	/**
+	 * Check the SLA index is within the SLA configurations.
+	 */
+	private void checkSla(final SlaComputations computations, final int sla) {
+		if (sla < 0 || sla >= computations.getSlaConfigurations().size()) {
+			throw ValidationJsonException.newValidationJsonException("Range", "sla");
 		}
 	}
 
 	/**
-	 * Compute elapsed time for each related issues.
+	 * Return a page of the filtered and sorted issues of SLA computations. The ranking uses a heap bounded to the end
+	 * of the page, so the whole issues are not sorted.
+	 *
+	 * @param computations The SLA computations.
+	 * @param query        The filters, sort and range.
+	 * @return The page of issues. The total amount of issues and the amount of filtered issues are included.
 	 */
-	private Map<Integer, IssueStatus> computedElapsedTimes(final List<ChangeItem> changes, final List<Date> holidays,
-			final List<BusinessHours> nonBusinessHours) {
-		final Map<Integer, IssueStatus> groupChanges = new LinkedHashMap<>();
-		if (changes.isEmpty()) {
-			// Save some useless computations
-			return groupChanges;
+	public TableItem<IssueSla> query(final SlaComputations computations, final SlaQuery query) {
+		if (query.getSla() != null) {
+			checkSla(computations, query.getSla());
+		}
+		final Comparator<IssueSla> comparator = getComparator(query);
+		final long[] thresholds = computations.getSlaConfigurations().stream()
+				.mapToLong(SlaConfiguration::getThreshold).toArray();
+		final int limit = (int) Math.min(Integer.MAX_VALUE, (long) query.getOffset() + query.getLimit());
+		final PriorityQueue<IssueSla> heap = newHeap(comparator, limit, computations.getIssues().size());
+		long filtered = 0;
+		for (final IssueSla issue : computations.getIssues()) {
+			if (isAccepted(issue, query, thresholds)) {
+				filtered++;
+				offer(heap, issue, comparator, limit);
+			}
 		}
-		final ComputationContext computationContext = new ComputationContext(holidays, nonBusinessHours);
-		computationContext.reset(changes.getFirst().getCreated());
-		long cumulatedElapsed = computeElapsedTimes(changes, groupChanges, computationContext);
+		final List<IssueSla> sorted = toSorted(heap, comparator);
+		final TableItem<IssueSla> result = new TableItem<>();
+		result.setRecordsTotal(computations.getIssues().size());
+		result.setRecordsFiltered(filtered);
+		result.setData(sorted.subList(Math.min(query.getOffset(), sorted.size()), sorted.size()));
+		return result;
+	}
 
-		// Add elapsed time until now
-		cumulatedElapsed += computationContext.moveForward(new Date());
+	/**
+	 * Return the comparator of the sorted column, then by identifier.
+	 */
+	private Comparator<IssueSla> getComparator(final SlaQuery query) {
+		final Comparator<IssueSla> byId = Comparator.comparing(IssueSla::getId,
+				Comparator.nullsFirst(Comparator.naturalOrder()));
+		if (query.getSort() == null) {
+			return query.isDescending() ? byId.reversed() : byId;
+		}
+		Comparator<IssueSla> comparator = ISSUE_COLUMNS.get(query.getSort());
+		if (comparator == null) {
+			final Function<Integer, Comparator<IssueSla>> dataComparator = DATA_COLUMNS.get(query.getSort());
+			if (dataComparator == null) {
+				throw ValidationJsonException.newValidationJsonException("NotSupported", "sort");
+			}
+			ValidationJsonException.assertNotnull(query.getSla(), "sla");
+			comparator = dataComparator.apply(query.getSla());
+		}
+		return (query.isDescending() ? comparator.reversed() : comparator).thenComparing(byId);
+	}
 
-		// Update elapsed time for the tail
-		for (final IssueStatus value : groupChanges.values()) {
-			updatePreviousStatus(cumulatedElapsed, null, value);
+	/**
+	 * Indicates the issue is accepted by the filters of the query.
+	 */
+	private boolean isAccepted(final IssueSla issue, final SlaQuery query, final long[] thresholds) {
+		return isAccepted(query.getStatuses(), issue.getStatus()) && isAccepted(query.getTypes(), issue.getType())
+				&& isAccepted(query.getPriorities(), issue.getPriority())
+				&& isAccepted(query.getAssignees(), issue.getAssignee())
+				&& (query.getBreached() == null || query.getBreached() == isBreached(issue, query.getSla(), thresholds));
+	}
+
+	/**
+	 * Indicates the value is accepted by the filter. A <code>null</code> filter accepts all values, a
+	 * <code>null</code> value is only accepted by a <code>null</code> filter.
+	 */
+	private <T> boolean isAccepted(final Set<T> filter, final T value) {
+		return filter == null || value != null && filter.contains(value);
+	}
+
+	/**
+	 * Indicates the duration of the given SLA, or of any SLA when <code>null</code>, is greater than its threshold.
+	 */
+	private boolean isBreached(final IssueSla issue, final Integer sla, final long[] thresholds) {
+		if (sla != null) {
+			return isBreached(issue.getData().get(sla), thresholds[sla]);
 		}
-		return groupChanges;
+		return IntStream.range(0, thresholds.length).anyMatch(i -> isBreached(issue.getData().get(i), thresholds[i]));
 	}
 
 	/**
-	 * Compute elapsed time for each related issues. Unfinished workflows are not computed there.
+	 * Indicates the duration is greater than the threshold.
 	 */
-	private long computeElapsedTimes(final List<ChangeItem> changes, final Map<Integer, IssueStatus> groupChanges,
-			final ComputationContext computationContext) {
-		long cumulatedElapsed = 0;
-		for (final ChangeItem change : changes) {
+	private boolean isBreached(final SlaData data, final long threshold) {
+		return data != null && threshold > 0 && data.getDuration() > threshold;
+	}
 
-			// Compute the elapsed time for the last cursor to the creation of this change
-			final long elapsed = computationContext.moveForward(change.getCreated());
-			cumulatedElapsed += elapsed;
-			final IssueStatus value = getIssueStatus(groupChanges, change);
+	/**
+	 * Return a heap keeping the lowest issues, the highest kept one on top.
+	 */
+	static PriorityQueue<IssueSla> newHeap(final Comparator<IssueSla> comparator, final int limit,
+			final int size) {
+		return new PriorityQueue<>(Math.max(1, Math.min(limit, size) + 1), comparator.reversed());
+	}
 
-			// Update the elapsed time in the previous status
-			updatePreviousStatus(cumulatedElapsed, change, value);
+	/**
+	 * Add the issue to the heap when lower than the highest kept issue, and keep at most the limit.
+	 */
+	static void offer(final PriorityQueue<IssueSla> heap, final IssueSla issue,
+			final Comparator<IssueSla> comparator, final int limit) {
+		if (limit > 0 && (heap.size() < limit || comparator.compare(issue, heap.peek()) < 0)) {
+			// Lower than the highest kept issue
+			heap.add(issue);
+			if (heap.size() > limit) {
+				heap.poll();
+			}
+		}
+	}
 
-			// Add the new status, even for a creation
-			final StatusChange statusChange = new StatusChange();
-			statusChange.setStatus(change.getToStatus());
-			statusChange.setSnapshotTime(cumulatedElapsed);
-			statusChange.setChange(change);
-			value.getChanges().add(statusChange);
+	/**
+	 * Return the kept issues, sorted.
+	 */
+	static List<IssueSla> toSorted(final PriorityQueue<IssueSla> heap, final Comparator<IssueSla> comparator) {
+		final List<IssueSla> result = new ArrayList<>(heap);
+		result.sort(comparator);
+		return result;
+	}
+
+	/**
+	 * Return the comparator of an issue attribute, <code>null</code> values last.
+	 */
+	private static <U extends Comparable<? super U>> Comparator<IssueSla> by(final Function<IssueSla, U> key) {
+		return Comparator.comparing(key, Comparator.nullsLast(Comparator.naturalOrder()));
+	}
+
+	/**
+	 * Return the comparator of a SLA data attribute for a SLA index, <code>null</code> values last.
+	 */
+	private static <U extends Comparable<? super U>> Function<Integer, Comparator<IssueSla>> byData(
+			final Function<SlaData, U> key) {
+		return sla -> Comparator.comparing((IssueSla i) -> i.getData().get(sla),
+				Comparator.nullsLast(Comparator.comparing(key, Comparator.nullsLast(Comparator.naturalOrder()))));
+	}
+
+	/**
+	 * Reset computation context to due date as needed.
+	 */
+	private void resetRevisedDueDate(final ComputationContext computationContext, final SlaData result) {
+		if (!computationContext.isReset()) {
+			// First shift
+			computationContext.reset(result.getRevisedDueDate());
 		}
-		return cumulatedElapsed;
 	}
 
 	/**
-	 * Update the elapsed time of previous status.
+	 * Update the pause context.
 	 */
-	private void updatePreviousStatus(final long cumulatedElapsed, final ChangeItem change, final IssueStatus value) {
-		if (!value.getChanges().isEmpty()) {
-			// Check previous state
-			final StatusChange statusChange = value.getChanges().getLast();
+	private void updatePause(final SlaState state, final StatusChange change) {
+		final SlaData result = state.getData();
+		if (result.getRevisedDueDate() != null && result.getRevisedDueDate().after(change.getCreated())) {
+			resetRevisedDueDate(state.getContext(), result);
 
-			// Update the elapsed time of previous state
-			updateElapsedTime(cumulatedElapsed, statusChange);
+			// Update the revised due date
+			result.setRevisedDueDate(state.getContext().moveForward(change.getElapsedtime()));
+		}
+	}
+
+	/**
+	 * Compute the snapshot time of each change and store them, and set the transitions and the cumulative flow in the
+	 * given result. The elapsed times are not computed there.
+	 *
+	 * @param now The time the SLA are computed until, shared with the completion of the issues.
+	 * @return The cumulated elapsed time until now.
+	 */
+	private long computeSnapshotTimes(final List<ChangeItem> changes, final ChangeStore store,
+			final SlaComputations result, final BusinessCalendar calendar, final Date now) {
+		final TransitionMatrix transitions = new TransitionMatrix();
+		final CumulativeFlow flow = new CumulativeFlow();
+		result.setTransitions(transitions);
+		result.setFlow(flow);
+		if (changes.isEmpty()) {
+			// Save some useless computations
+			return 0;
+		}
+		final ComputationContext computationContext = new ComputationContext(calendar);
+		computationContext.reset(changes.getFirst().getCreated().getTime());
+		long cumulatedElapsed = 0;
+		int[] statuses = new int[16];
+		for (final ChangeItem change : changes) {
+
+			// Compute the elapsed time for the last cursor to the creation of this change
+			cumulatedElapsed += computationContext.moveForwardTo(change.getCreated().getTime());
 
-			// Check the flow, change==null in tail creation case
-			if (change != null) {
-				checkTransition(change, statusChange, value);
+			// Add the new status, even for a creation
+			final int index = store.add(change, cumulatedElapsed, this::newIssueStatus, this::setDetails);
+			final int issue = store.getIssueIndex(index);
+			if (issue == statuses.length) {
+				statuses = Arrays.copyOf(statuses, issue * 2);
+			}
+			if (store.getFirst(issue) == index) {
+				// Creation
+				statuses[issue] = ChangeStore.NONE;
+			} else {
+				// The previous status is aligned to the origin of this transition by the transition check
+				transitions.add(ObjectUtils.defaultIfNull(change.getFromStatus(), statuses[issue]),
+						change.getToStatus());
 			}
+			flow.add(change.getCreated(), statuses[issue], change.getToStatus());
+			statuses[issue] = change.getToStatus();
 		}
+
+		// Add elapsed time and days until now
+		flow.extendTo(now);
+		return cumulatedElapsed + computationContext.moveForwardTo(now.getTime());
 	}
 
 	/**
-	 * Validate the transition.
+	 * Return a new status change from the given change, without elapsed time.
 	 */
-	private void checkTransition(final ChangeItem change, final StatusChange statusChange, final IssueStatus value) {
-		if (change.getFromStatus() != statusChange.getStatus()) {
-			if (value.getChanges().size() == 1) {
+	StatusChange newStatusChange(final ChangeItem change, final long cumulatedElapsed) {
+		final StatusChange statusChange = new StatusChange();
+		statusChange.setStatus(change.getToStatus());
+		statusChange.setFromStatus(change.getFromStatus());
+		statusChange.setCreated(change.getCreated());
+		statusChange.setSnapshotTime(cumulatedElapsed);
+		return statusChange;
+	}
+
+	/**
+	 * Validate the transition. A change without origin status is accepted from any status.
+	 */
+	private void checkTransition(final StatusChange change, final StatusChange statusChange, final IssueStatus value,
+			final boolean initial) {
+		if (change.getFromStatus() != null && change.getFromStatus() != statusChange.getStatus()) {
+			if (initial) {
 				// The initial state was not correct, fix it
-				log.info("Initial state of issue {} ({}) has been updated: {} -> {}", value.getPkey(), change.getId(), statusChange.getStatus(), change.getFromStatus());
+				log.info("Initial state of issue {} ({}) has been updated: {} -> {}", value.getPkey(), value.getId(), statusChange.getStatus(), change.getFromStatus());
 				statusChange.setStatus(change.getFromStatus());
 			} else {
 				// The initial state was not correct, fix it
 				log.info("Broken state of issue {} ({}) has been updated: {} -> {} to match the transition {} -> {}",
-						value.getPkey(), change.getId(), statusChange.getStatus(),
-						change.getFromStatus(), change.getFromStatus(), change.getToStatus());
+						value.getPkey(), value.getId(), statusChange.getStatus(),
+						change.getFromStatus(), change.getFromStatus(), change.getStatus());
 				statusChange.setStatus(change.getFromStatus());
 			}
 		}
 	}
 
-	private IssueStatus getIssueStatus(final Map<Integer, IssueStatus> groupChanges, final ChangeItem change) {
-		IssueStatus value = groupChanges.get(change.getId());
-		if (value == null) {
-			// Issue creation case
-			value = new IssueStatus();
-			value.setChanges(new ArrayList<>());
-			value.setCreated(change.getCreated());
-			value.setPkey(change.getPkey());
-			value.setId(change.getId());
-			value.setPriority(change.getPriority());
-			value.setStatus(change.getStatus());
-			value.setType(change.getType());
-			value.setAssignee(change.getAssignee());
-			value.setResolution(change.getResolution());
-			value.setReporter(change.getReporter());
+	/**
+	 * Return a new issue from the details of its first change, or a copy of issue details.
+	 */
+	IssueStatus newIssueStatus(final IssueDetails change) {
+		final IssueStatus value = new IssueStatus();
+		value.setCreated(change.getCreated());
+		value.setPkey(change.getPkey());
+		value.setId(change.getId());
+		setDetails(value, change);
+		return value;
+	}
 
-			// Timing
-			value.setTimeSpent(change.getTimeSpent());
-			value.setTimeEstimateInit(change.getTimeEstimateInit());
-			value.setTimeEstimate(change.getTimeEstimate());
-			value.setDueDate(change.getDueDate());
+	/**
+	 * Update the attributes of an issue from the details of one of its changes: the status, the assignment, the
+	 * classification and the timing.
+	 */
+	void setDetails(final IssueDetails value, final IssueDetails change) {
+		value.setPriority(change.getPriority());
+		value.setStatus(change.getStatus());
+		value.setType(change.getType());
+		value.setAssignee(change.getAssignee());
+		value.setResolution(change.getResolution());
+		value.setReporter(change.getReporter());
 
-			groupChanges.put(change.getId(), value);
-		}
-		return value;
+		// Timing
+		value.setTimeSpent(change.getTimeSpent());
+		value.setTimeEstimateInit(change.getTimeEstimateInit());
+		value.setTimeEstimate(change.getTimeEstimate());
+		value.setDueDate(change.getDueDate());
 	}
 
 	/**
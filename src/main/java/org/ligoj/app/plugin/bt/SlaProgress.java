@@ -0,0 +1,63 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.concurrent.CancellationException;
+
+import lombok.Getter;
+
+/**
+ * Progress of a running SLA computation, updated by the computing thread and read by the other ones. The computation
+ * checks the cancellation between the changes and between the issues.
+ */
+@Getter
+public class SlaProgress {
+
+	/**
+	 * Amount of folded changes.
+	 */
+	private volatile long changes;
+
+	/**
+	 * Amount of completed issues.
+	 */
+	private volatile long issues;
+
+	/**
+	 * When <code>true</code>, the computation stops at the next check.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Request the cancellation of the computation.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Count a folded change. Only called by the computing thread.
+	 */
+	void addChange() {
+		changes++;
+	}
+
+	/**
+	 * Count a completed issue. Only called by the computing thread.
+	 */
+	void addIssue() {
+		issues++;
+	}
+
+	/**
+	 * Stop the computation when cancelled.
+	 *
+	 * @throws CancellationException When the cancellation is requested.
+	 */
+	void checkCancelled() {
+		if (cancelled) {
+			throw new CancellationException("SLA computation cancelled");
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A page request over the issues of SLA computations: filters, sort and range.
+ */
+@Getter
+@Setter
+public class SlaQuery {
+
+	/**
+	 * Index of the first returned issue, within the filtered and sorted issues.
+	 */
+	private int offset;
+
+	/**
+	 * Maximal amount of returned issues.
+	 */
+	private int limit = 50;
+
+	/**
+	 * The sorted column: an issue attribute such as <code>pkey</code> or <code>created</code>, or a SLA data attribute
+	 * such as <code>duration</code> or <code>remaining</code> of the {@link #sla}. When <code>null</code>, the issues
+	 * are sorted by identifier.
+	 */
+	private String sort;
+
+	/**
+	 * When <code>true</code>, the order is descending.
+	 */
+	private boolean descending;
+
+	/**
+	 * The SLA index of the sorted SLA data attribute and of the breach filter. When <code>null</code>, the breach
+	 * filter considers all SLA.
+	 */
+	private Integer sla;
+
+	/**
+	 * The accepted statuses. May be <code>null</code>.
+	 */
+	private Set<Integer> statuses;
+
+	/**
+	 * The accepted types. May be <code>null</code>.
+	 */
+	private Set<Integer> types;
+
+	/**
+	 * The accepted priorities. May be <code>null</code>.
+	 */
+	private Set<Integer> priorities;
+
+	/**
+	 * The accepted assignees. May be <code>null</code>.
+	 */
+	private Set<String> assignees;
+
+	/**
+	 * When not <code>null</code>, only the issues having a SLA duration greater than its threshold (<code>true</code>)
+	 * or not (<code>false</code>) are accepted.
+	 */
+	private Boolean breached;
+}
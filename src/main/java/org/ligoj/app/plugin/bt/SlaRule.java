@@ -0,0 +1,178 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.BitSet;
+import java.util.Set;
+
+import org.ligoj.app.plugin.bt.model.IssueDetails;
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+
+import lombok.Getter;
+
+/**
+ * A compiled {@link Sla}: the start, stop and pause statuses are stored in a dense table indexed by the status
+ * identifier, and the type, priority and resolution filters in bit sets. Identifiers are positive numbers.
+ */
+public class SlaRule {
+
+	/**
+	 * No action for a status.
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * The status starts the SLA.
+	 */
+	public static final int START = 1;
+
+	/**
+	 * The status stops the SLA.
+	 */
+	public static final int STOP = 2;
+
+	/**
+	 * The status pauses the SLA.
+	 */
+	public static final int PAUSE = 4;
+
+	/**
+	 * The source SLA.
+	 */
+	@Getter
+	private final Sla sla;
+
+	/**
+	 * Combination of {@link #START}, {@link #STOP} and {@link #PAUSE} flags. Index is the status identifier.
+	 */
+	private final byte[] actions;
+
+	/**
+	 * Filtered types, <code>null</code> when there is no filter.
+	 */
+	private final BitSet types;
+
+	/**
+	 * Filtered priorities, <code>null</code> when there is no filter.
+	 */
+	private final BitSet priorities;
+
+	/**
+	 * Filtered resolutions, <code>null</code> when there is no filter.
+	 */
+	private final BitSet resolutions;
+
+	/**
+	 * Compile the given SLA.
+	 *
+	 * @param sla The SLA with resolved identifier sets.
+	 * @throws ValidationJsonException When an identifier is negative.
+	 */
+	public SlaRule(final Sla sla) {
+		this.sla = sla;
+		final int max = Math.max(getMax(sla.getStartAsSet()),
+				Math.max(getMax(sla.getStopAsSet()), getMax(sla.getPausedAsSet())));
+		this.actions = new byte[max + 1];
+		addAction(sla.getStartAsSet(), START, "start");
+		addAction(sla.getStopAsSet(), STOP, "stop");
+		addAction(sla.getPausedAsSet(), PAUSE, "pause");
+		this.types = toFilter(sla.getTypesAsSet(), "types");
+		this.priorities = toFilter(sla.getPrioritiesAsSet(), "priorities");
+		this.resolutions = toFilter(sla.getResolutionsAsSet(), "resolutions");
+	}
+
+	/**
+	 * Return the actions of the given status.
+	 *
+	 * @param status The status identifier.
+	 * @return The combination of {@link #START}, {@link #STOP} and {@link #PAUSE} flags. {@link #NONE} when this
+	 *         status is not managed by this SLA.
+	 */
+	public int getActions(final int status) {
+		return status >= 0 && status < actions.length ? actions[status] : NONE;
+	}
+
+	/**
+	 * Return the highest status identifier having an action.
+	 *
+	 * @return The highest status identifier having an action. <code>-1</code> when there is none.
+	 */
+	public int getMaxStatus() {
+		return actions.length - 1;
+	}
+
+	/**
+	 * Check the SLA can be applied for this issue.
+	 *
+	 * @param issue the current issue to check.
+	 * @return <code>true</code> if SLA can be applied to this issue.
+	 */
+	public boolean isApplicable(final IssueDetails issue) {
+		return isApplicable(types, issue.getType()) && isApplicable(priorities, issue.getPriority())
+				&& isApplicable(resolutions, issue.getResolution());
+	}
+
+	/**
+	 * Check the value against the filtered ones.
+	 *
+	 * @param filter     the filtered identifiers. May be <code>null</code>.
+	 * @param identifier the current issue value. May be <code>null</code>.
+	 * @return <code>true</code> there is no filtered identifiers or when the given identifier is in the filtered
+	 *         identifiers.
+	 */
+	private boolean isApplicable(final BitSet filter, final Integer identifier) {
+		return filter == null || identifier != null && isApplicable(filter, identifier.intValue());
+	}
+
+	/**
+	 * Check the value against the filtered ones.
+	 *
+	 * @param filter     the filtered identifiers. May be <code>null</code>.
+	 * @param identifier the current issue value.
+	 * @return <code>true</code> there is no filtered identifiers or when the given identifier is in the filtered
+	 *         identifiers.
+	 */
+	private boolean isApplicable(final BitSet filter, final int identifier) {
+		return filter == null || identifier >= 0 && filter.get(identifier);
+	}
+
+	/**
+	 * Add the action flag to the given statuses.
+	 */
+	private void addAction(final Set<Integer> statuses, final int action, final String property) {
+		checkIdentifiers(statuses, property);
+		statuses.forEach(s -> actions[s] = (byte) (actions[s] | action));
+	}
+
+	/**
+	 * Return the bit set of the given identifiers, or <code>null</code> when empty.
+	 */
+	private BitSet toFilter(final Set<Integer> identifiers, final String property) {
+		if (identifiers.isEmpty()) {
+			// No filter
+			return null;
+		}
+		checkIdentifiers(identifiers, property);
+		final BitSet filter = new BitSet();
+		identifiers.forEach(filter::set);
+		return filter;
+	}
+
+	/**
+	 * Check the given identifiers are positive or zero.
+	 */
+	private static void checkIdentifiers(final Set<Integer> identifiers, final String property) {
+		if (identifiers.stream().anyMatch(i -> i < 0)) {
+			throw ValidationJsonException.newValidationJsonException("PositiveOrZero", property);
+		}
+	}
+
+	/**
+	 * Return the highest identifier of the given set, or <code>-1</code>.
+	 */
+	private static int getMax(final Set<Integer> identifiers) {
+		return identifiers.stream().mapToInt(Integer::intValue).max().orElse(-1);
+	}
+}
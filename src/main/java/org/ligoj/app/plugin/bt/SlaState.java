@@ -0,0 +1,60 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The state of an SLA for one issue, advanced change after change.
+ */
+@Getter
+@Setter
+public class SlaState {
+
+	/**
+	 * The SLA data being computed.
+	 */
+	private SlaData data = new SlaData();
+
+	/**
+	 * The context used to shift the revised due date. Reset at the first pause. Not persisted: once reset, its cursor
+	 * is the revised due date.
+	 */
+	@JsonIgnore
+	private ComputationContext context;
+
+	/**
+	 * When <code>true</code>, the SLA has been started and not yet stopped.
+	 */
+	private boolean started;
+
+	/**
+	 * When <code>true</code>, the started SLA is paused.
+	 */
+	private boolean paused;
+
+	/**
+	 * Cumulated elapsed time of the issue when this SLA was started or resumed. The running duration is added to
+	 * {@link SlaData#getDuration()} only when the SLA is paused or stopped.
+	 */
+	private long runningSince;
+
+	/**
+	 * Index of the last change of the issue having triggered this SLA.
+	 */
+	private int trigger = -1;
+
+	/**
+	 * Indicate this SLA is started and not paused.
+	 *
+	 * @return <code>true</code> when the timer of this SLA is running.
+	 */
+	@JsonIgnore
+	public boolean isRunning() {
+		return started && !paused;
+	}
+}
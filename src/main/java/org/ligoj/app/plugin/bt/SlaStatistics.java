@@ -0,0 +1,75 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Statistics of a SLA for the issues of a priority and a type.
+ */
+@Getter
+@Setter
+public class SlaStatistics {
+
+	/**
+	 * The SLA index, within the SLA configurations.
+	 */
+	private int sla;
+
+	/**
+	 * The priority identifier. May be <code>null</code>.
+	 */
+	private Integer priority;
+
+	/**
+	 * The type identifier.
+	 */
+	private int type;
+
+	/**
+	 * Amount of issues having this SLA started.
+	 */
+	private long count;
+
+	/**
+	 * Median of the durations.
+	 */
+	private Long durationP50;
+
+	/**
+	 * 90th percentile of the durations.
+	 */
+	private Long durationP90;
+
+	/**
+	 * 99th percentile of the durations.
+	 */
+	private Long durationP99;
+
+	/**
+	 * Amount of issues having a revised due date.
+	 */
+	private long distanceCount;
+
+	/**
+	 * Median of the revised due date distances.
+	 */
+	private Long distanceP50;
+
+	/**
+	 * 90th percentile of the revised due date distances.
+	 */
+	private Long distanceP90;
+
+	/**
+	 * 99th percentile of the revised due date distances.
+	 */
+	private Long distanceP99;
+
+	/**
+	 * Ratio of issues having a duration greater than the threshold. <code>null</code> when the SLA has no threshold.
+	 */
+	private Double breachRatio;
+}
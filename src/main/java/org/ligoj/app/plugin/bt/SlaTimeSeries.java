@@ -0,0 +1,215 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.ligoj.bootstrap.core.DateUtils;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+
+/**
+ * Fold the SLA data of issues into the compliance of each SLA over time. The stopped SLA are counted in fixed-size
+ * bucket arrays, the bucket of a stop date is found by a binary search of the bucket starts. The memory is bounded by
+ * the amount of buckets, whatever the amount of issues. Two series of the same configuration can be merged.
+ */
+public class SlaTimeSeries implements Consumer<IssueSla> {
+
+	/**
+	 * Daily buckets.
+	 */
+	public static final String DAY = "day";
+
+	/**
+	 * Weekly buckets, starting on Monday.
+	 */
+	public static final String WEEK = "week";
+
+	/**
+	 * Monthly buckets.
+	 */
+	public static final String MONTH = "month";
+
+	/**
+	 * The maximal amount of buckets of a series.
+	 */
+	public static final int MAX_BUCKETS = 1000;
+
+	/**
+	 * The calendar field of each granularity.
+	 */
+	private static final Map<String, Integer> GRANULARITIES = Map.of(DAY, Calendar.DATE, WEEK,
+			Calendar.WEEK_OF_YEAR, MONTH, Calendar.MONTH);
+
+	/**
+	 * Threshold of each SLA. <code>0</code> means none.
+	 */
+	private final long[] thresholds;
+
+	/**
+	 * Start of each bucket, followed by the end of the last bucket.
+	 */
+	private final long[] bounds;
+
+	/**
+	 * Amount of stopped SLA by SLA, then by bucket.
+	 */
+	private final long[][] stopped;
+
+	/**
+	 * Amount of compliant SLA by SLA, then by bucket.
+	 */
+	private final long[][] compliant;
+
+	/**
+	 * Build an empty series.
+	 *
+	 * @param slas        the SLA configurations, in the order of the SLA data of each issue.
+	 * @param from        The start of the range, included. Rounded down to the start of its bucket.
+	 * @param to          The end of the range, excluded. The range must not be covered by more than
+	 *                    {@value #MAX_BUCKETS} buckets.
+	 * @param granularity The bucket granularity: {@link #DAY}, {@link #WEEK} or {@link #MONTH}.
+	 */
+	public SlaTimeSeries(final List<Sla> slas, final Date from, final Date to, final String granularity) {
+		ValidationJsonException.assertNotnull(from, "from");
+		ValidationJsonException.assertNotnull(to, "to");
+		if (!to.after(from)) {
+			throw ValidationJsonException.newValidationJsonException("Range", "to");
+		}
+		final Integer field = GRANULARITIES.get(granularity);
+		if (field == null) {
+			throw ValidationJsonException.newValidationJsonException("NotSupported", "granularity");
+		}
+		this.thresholds = slas.stream().mapToLong(Sla::getThreshold).toArray();
+		this.bounds = getBounds(from, to, field);
+		this.stopped = new long[thresholds.length][bounds.length - 1];
+		this.compliant = new long[thresholds.length][bounds.length - 1];
+	}
+
+	/**
+	 * Return a collector folding the issues into a new series.
+	 *
+	 * @param slas        the SLA configurations, in the order of the SLA data of each issue.
+	 * @param from        The start of the range, included.
+	 * @param to          The end of the range, excluded.
+	 * @param granularity The bucket granularity.
+	 * @return The collector, supporting the parallel streams.
+	 */
+	public static Collector<IssueSla, ?, SlaTimeSeries> collector(final List<Sla> slas, final Date from,
+			final Date to, final String granularity) {
+		return Collector.of(() -> new SlaTimeSeries(slas, from, to, granularity), SlaTimeSeries::accept,
+				SlaTimeSeries::add);
+	}
+
+	/**
+	 * Fold the SLA data of the given issue. Only the SLA stopped within the range are counted.
+	 */
+	@Override
+	public void accept(final IssueSla issue) {
+		final List<SlaData> data = issue.getData();
+		for (int sla = 0; sla < data.size(); sla++) {
+			final SlaData slaData = data.get(sla);
+			if (slaData != null && slaData.getStop() != null) {
+				final int bucket = getBucket(slaData.getStop().getTime());
+				if (bucket >= 0) {
+					stopped[sla][bucket]++;
+					if (thresholds[sla] > 0 && slaData.getDuration() <= thresholds[sla]) {
+						compliant[sla][bucket]++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merge the given series into this one.
+	 *
+	 * @param other The series of the same SLA configurations, range and granularity. Not updated.
+	 * @return This series.
+	 */
+	public SlaTimeSeries add(final SlaTimeSeries other) {
+		for (int sla = 0; sla < thresholds.length; sla++) {
+			for (int bucket = 0; bucket < bounds.length - 1; bucket++) {
+				stopped[sla][bucket] += other.stopped[sla][bucket];
+				compliant[sla][bucket] += other.compliant[sla][bucket];
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Return the compliance of each SLA.
+	 *
+	 * @return The compliance of each SLA, in the order of the SLA configurations.
+	 */
+	public List<SlaCompliance> getCompliances() {
+		final List<Date> starts = Arrays.stream(bounds, 0, bounds.length - 1).mapToObj(Date::new).toList();
+		final List<SlaCompliance> result = new ArrayList<>(thresholds.length);
+		for (int sla = 0; sla < thresholds.length; sla++) {
+			final SlaCompliance compliance = new SlaCompliance();
+			compliance.setSla(sla);
+			compliance.setStarts(starts);
+			compliance.setStopped(stopped[sla].clone());
+			compliance.setCompliant(compliant[sla].clone());
+			final Double[] ratios = new Double[starts.size()];
+			for (int bucket = 0; bucket < ratios.length; bucket++) {
+				if (thresholds[sla] > 0 && stopped[sla][bucket] > 0) {
+					ratios[bucket] = (double) compliant[sla][bucket] / stopped[sla][bucket];
+				}
+			}
+			compliance.setRatios(ratios);
+			result.add(compliance);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the bucket of the given time, or <code>-1</code> when out of the range.
+	 */
+	private int getBucket(final long time) {
+		if (time < bounds[0] || time >= bounds[bounds.length - 1]) {
+			return -1;
+		}
+		final int index = Arrays.binarySearch(bounds, time);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	/**
+	 * Return the start of each bucket covering the range, followed by the end of the last bucket. The range covered by
+	 * too many buckets is rejected before the buckets are built.
+	 */
+	private static long[] getBounds(final Date from, final Date to, final int field) {
+		final Calendar calendar = DateUtils.newCalendar();
+		calendar.setTime(from);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		if (field == Calendar.WEEK_OF_YEAR) {
+			// Back to the previous Monday
+			calendar.add(Calendar.DATE, -((calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7));
+		} else if (field == Calendar.MONTH) {
+			calendar.set(Calendar.DAY_OF_MONTH, 1);
+		}
+		final Calendar end = (Calendar) calendar.clone();
+		end.add(field, MAX_BUCKETS);
+		if (end.getTime().before(to)) {
+			throw ValidationJsonException.newValidationJsonException("Range", "to");
+		}
+		final List<Long> result = new ArrayList<>();
+		result.add(calendar.getTimeInMillis());
+		while (calendar.getTime().before(to)) {
+			calendar.add(field, 1);
+			result.add(calendar.getTimeInMillis());
+		}
+		return result.stream().mapToLong(Long::longValue).toArray();
+	}
+}
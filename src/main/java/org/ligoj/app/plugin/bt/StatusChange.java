@@ -3,7 +3,7 @@
  */
 package org.ligoj.app.plugin.bt;
 
-import org.ligoj.app.plugin.bt.model.ChangeItem;
+import java.util.Date;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -34,8 +34,13 @@ public class StatusChange {
 	private long snapshotTime;
 
 	/**
-	 * Related change.
+	 * Previous status identifier, as declared by the change. <code>null</code> for the creation of an issue.
 	 */
-	private ChangeItem change;
+	private Integer fromStatus;
+
+	/**
+	 * Date of the change.
+	 */
+	private Date created;
 
 }
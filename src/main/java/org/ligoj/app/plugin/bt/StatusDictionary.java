@@ -0,0 +1,101 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact index of status identifiers. Each new status gets the next index, so the dense vectors and matrices
+ * indexed by status are sized by the amount of distinct statuses, whatever the range of the status identifiers.
+ */
+public class StatusDictionary {
+
+	/**
+	 * Status identifiers by index. Only the first {@link #size} ones are used.
+	 */
+	private int[] statuses = new int[0];
+
+	/**
+	 * Amount of statuses.
+	 */
+	private int size;
+
+	/**
+	 * Index by status identifier.
+	 */
+	private final Map<Integer, Integer> indexes = new HashMap<>();
+
+	/**
+	 * Return the index of a status, added when not yet known.
+	 *
+	 * @param status The status identifier.
+	 * @return The index of this status.
+	 */
+	public int add(final int status) {
+		final Integer index = indexes.get(status);
+		if (index != null) {
+			return index;
+		}
+		if (size == statuses.length) {
+			statuses = Arrays.copyOf(statuses, Math.max(8, size * 2));
+		}
+		statuses[size] = status;
+		indexes.put(status, size);
+		return size++;
+	}
+
+	/**
+	 * Return the index of a status.
+	 *
+	 * @param status The status identifier.
+	 * @return The index of this status, or <code>-1</code> when not known.
+	 */
+	public int indexOf(final int status) {
+		return indexes.getOrDefault(status, -1);
+	}
+
+	/**
+	 * Return the status identifier of an index.
+	 *
+	 * @param index The index of the status.
+	 * @return The status identifier.
+	 */
+	public int getStatus(final int index) {
+		return statuses[index];
+	}
+
+	/**
+	 * Return the amount of statuses.
+	 *
+	 * @return The amount of statuses.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the status identifiers.
+	 *
+	 * @return The status identifiers by index.
+	 */
+	public int[] getStatuses() {
+		return Arrays.copyOf(statuses, size);
+	}
+
+	/**
+	 * Replace the status identifiers.
+	 *
+	 * @param statuses The status identifiers by index.
+	 */
+	public void setStatuses(final int[] statuses) {
+		this.statuses = new int[0];
+		this.size = 0;
+		indexes.clear();
+		for (final int status : statuses) {
+			add(status);
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import lombok.Getter;
+
+/**
+ * A hierarchical timer wheel. Each level has 64 slots, a slot of a level covers a whole turn of the previous level.
+ * A timer is stored in the lowest level covering its deadline, and moved to the lower levels as the time advances. So
+ * scheduling, cancelling and firing a timer cost a constant time, whatever the amount of timers.
+ * <p>
+ * The deadlines farther than the highest level are kept aside and placed again at each turn of the highest level. This
+ * wheel is not thread safe.
+ *
+ * @param <T> The timer value type.
+ */
+public class TimerWheel<T> {
+
+	/**
+	 * Bits of a slot index within a level.
+	 */
+	private static final int BITS = 6;
+
+	/**
+	 * Amount of slots of each level.
+	 */
+	private static final int SLOTS = 1 << BITS;
+
+	/**
+	 * Mask of a slot index within a level.
+	 */
+	private static final int MASK = SLOTS - 1;
+
+	/**
+	 * Amount of levels.
+	 */
+	private static final int LEVELS = 4;
+
+	/**
+	 * A scheduled timer.
+	 *
+	 * @param <T> The timer value type.
+	 */
+	public static class Timer<T> {
+
+		/**
+		 * The deadline tick.
+		 */
+		private final long tick;
+
+		/**
+		 * The timer value.
+		 */
+		@Getter
+		private final T value;
+
+		/**
+		 * When <code>true</code>, this timer will not fire.
+		 */
+		@Getter
+		private boolean cancelled;
+
+		private Timer(final long tick, final T value) {
+			this.tick = tick;
+			this.value = value;
+		}
+
+		/**
+		 * Cancel this timer. Nothing happens when this timer is already fired.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+	}
+
+	/**
+	 * Duration of a tick, in milliseconds.
+	 */
+	@Getter
+	private final long tickDuration;
+
+	/**
+	 * The current tick. All timers of the previous ticks are fired.
+	 */
+	private long currentTick;
+
+	/**
+	 * The slots of each level.
+	 */
+	private final List<List<List<Timer<T>>>> wheels = new ArrayList<>();
+
+	/**
+	 * The timers too far to be placed in the wheels.
+	 */
+	private List<Timer<T>> overflow = new ArrayList<>();
+
+	/**
+	 * The timers already due when scheduled, fired at the next advance.
+	 */
+	private List<Timer<T>> due = new ArrayList<>();
+
+	/**
+	 * Amount of scheduled timers, including the cancelled ones not yet removed.
+	 */
+	@Getter
+	private int size;
+
+	/**
+	 * Build an empty wheel.
+	 *
+	 * @param tickDuration Duration of a tick, in milliseconds.
+	 * @param now          The current time, in milliseconds since epoch.
+	 */
+	public TimerWheel(final long tickDuration, final long now) {
+		this.tickDuration = tickDuration;
+		this.currentTick = Math.floorDiv(now, tickDuration);
+		for (int level = 0; level < LEVELS; level++) {
+			final List<List<Timer<T>>> slots = new ArrayList<>(SLOTS);
+			for (int slot = 0; slot < SLOTS; slot++) {
+				slots.add(new ArrayList<>());
+			}
+			wheels.add(slots);
+		}
+	}
+
+	/**
+	 * Schedule a timer. The timer fires at the first advance reaching the tick of its deadline.
+	 *
+	 * @param deadline The deadline, in milliseconds since epoch.
+	 * @param value    The timer value.
+	 * @return The scheduled timer.
+	 */
+	public Timer<T> schedule(final long deadline, final T value) {
+		final Timer<T> timer = new Timer<>(Math.floorDiv(deadline + tickDuration - 1, tickDuration), value);
+		size++;
+		if (timer.tick <= currentTick) {
+			// Already due
+			due.add(timer);
+		} else {
+			place(timer);
+		}
+		return timer;
+	}
+
+	/**
+	 * Place the timer in the lowest level covering its deadline.
+	 */
+	private void place(final Timer<T> timer) {
+		final long delta = timer.tick - currentTick;
+		for (int level = 0; level < LEVELS; level++) {
+			if (delta < 1L << BITS * (level + 1)) {
+				wheels.get(level).get((int) (timer.tick >> BITS * level) & MASK).add(timer);
+				return;
+			}
+		}
+		overflow.add(timer);
+	}
+
+	/**
+	 * Advance the time and fire the timers having a deadline before the given time.
+	 *
+	 * @param now    The current time, in milliseconds since epoch.
+	 * @param expire The consumer of the fired timer values.
+	 */
+	public void advance(final long now, final Consumer<T> expire) {
+		fire(due, expire);
+		due = new ArrayList<>();
+		final long target = Math.floorDiv(now, tickDuration);
+		while (currentTick < target) {
+			if (size == 0) {
+				// Nothing to fire, jump to the target
+				currentTick = target;
+				return;
+			}
+			currentTick++;
+			cascade();
+			final List<Timer<T>> slot = wheels.getFirst().get((int) currentTick & MASK);
+			final List<Timer<T>> timers = new ArrayList<>(slot);
+			slot.clear();
+			fire(timers, expire);
+		}
+	}
+
+	/**
+	 * Move the timers of the higher levels to the lower levels at each turn.
+	 */
+	private void cascade() {
+		if ((currentTick & (1L << BITS * LEVELS) - 1) == 0) {
+			// Turn of the highest level, place again the far timers
+			final List<Timer<T>> timers = overflow;
+			overflow = new ArrayList<>();
+			timers.forEach(this::place);
+		}
+		for (int level = LEVELS - 1; level > 0; level--) {
+			if ((currentTick & (1L << BITS * level) - 1) == 0) {
+				// Turn of the lower level, this slot becomes current
+				final List<Timer<T>> slot = wheels.get(level).get((int) (currentTick >> BITS * level) & MASK);
+				final List<Timer<T>> timers = new ArrayList<>(slot);
+				slot.clear();
+				timers.forEach(this::place);
+			}
+		}
+	}
+
+	/**
+	 * Fire the given timers, except the cancelled ones.
+	 */
+	private void fire(final List<Timer<T>> timers, final Consumer<T> expire) {
+		for (final Timer<T> timer : timers) {
+			size--;
+			if (!timer.cancelled) {
+				timer.cancelled = true;
+				expire.accept(timer.value);
+			}
+		}
+	}
+}
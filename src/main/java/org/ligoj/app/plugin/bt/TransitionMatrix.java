@@ -0,0 +1,110 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The count of status transitions of all issues. The counts are stored in a dense square matrix, the first index is
+ * the previous status and the second index is the new status. The statuses are indexed by a {@link StatusDictionary},
+ * so the matrix grows with the amount of distinct statuses, not with their identifiers.
+ */
+public class TransitionMatrix {
+
+	/**
+	 * The index of the statuses in the matrix.
+	 */
+	private final StatusDictionary dictionary = new StatusDictionary();
+
+	/**
+	 * Transition counts. Indexes are the previous then the new status index, within {@link #getStatuses()}.
+	 */
+	@Getter
+	@Setter
+	private int[][] counts = new int[0][];
+
+	/**
+	 * Count a transition.
+	 *
+	 * @param from The previous status identifier.
+	 * @param to   The new status identifier.
+	 */
+	public void add(final int from, final int to) {
+		if (from < 0 || to < 0) {
+			// Not a status identifier
+			return;
+		}
+		final int fromIndex = dictionary.add(from);
+		final int toIndex = dictionary.add(to);
+		grow(dictionary.size());
+		counts[fromIndex][toIndex]++;
+	}
+
+	/**
+	 * Add the counts of another matrix to this one.
+	 *
+	 * @param other The matrix to merge. Not updated.
+	 */
+	public void add(final TransitionMatrix other) {
+		final int[] indexes = new int[other.counts.length];
+		for (int index = 0; index < indexes.length; index++) {
+			indexes[index] = dictionary.add(other.dictionary.getStatus(index));
+		}
+		grow(dictionary.size());
+		for (int from = 0; from < indexes.length; from++) {
+			for (int to = 0; to < indexes.length; to++) {
+				counts[indexes[from]][indexes[to]] += other.counts[from][to];
+			}
+		}
+	}
+
+	/**
+	 * Return the count of a transition.
+	 *
+	 * @param from The previous status identifier.
+	 * @param to   The new status identifier.
+	 * @return The count of this transition.
+	 */
+	public int getCount(final int from, final int to) {
+		final int fromIndex = dictionary.indexOf(from);
+		final int toIndex = dictionary.indexOf(to);
+		return fromIndex >= 0 && toIndex >= 0 && fromIndex < counts.length && toIndex < counts.length
+				? counts[fromIndex][toIndex]
+				: 0;
+	}
+
+	/**
+	 * Return the status identifiers of the matrix.
+	 *
+	 * @return The status identifiers by index of the counts.
+	 */
+	public int[] getStatuses() {
+		return dictionary.getStatuses();
+	}
+
+	/**
+	 * Set the status identifiers of the matrix.
+	 *
+	 * @param statuses The status identifiers by index of the counts.
+	 */
+	public void setStatuses(final int[] statuses) {
+		dictionary.setStatuses(statuses);
+	}
+
+	/**
+	 * Grow the matrix to the given size.
+	 */
+	private void grow(final int size) {
+		if (size > counts.length) {
+			final int[][] grown = new int[size][];
+			for (int from = 0; from < size; from++) {
+				grown[from] = from < counts.length ? Arrays.copyOf(counts[from], size) : new int[size];
+			}
+			counts = grown;
+		}
+	}
+}
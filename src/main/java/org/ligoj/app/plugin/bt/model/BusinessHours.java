@@ -4,6 +4,7 @@
 package org.ligoj.app.plugin.bt.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
@@ -12,6 +13,7 @@ import jakarta.validation.constraints.NotNull;
 import org.apache.commons.lang3.time.DateUtils;
 import org.hibernate.validator.constraints.Range;
 import org.ligoj.app.model.Configurable;
+import org.ligoj.app.plugin.bt.BusinessCalendarCache;
 import org.ligoj.bootstrap.core.model.AbstractPersistable;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -25,6 +27,7 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@EntityListeners(BusinessCalendarCache.class)
 @Table(name = "LIGOJ_BUSINESS_HOURS", uniqueConstraints = @UniqueConstraint(columnNames = { "configuration", "start" }))
 public class BusinessHours extends AbstractPersistable<Integer>
 		implements Comparable<BusinessHours>, Configurable<BugTrackerConfiguration, Integer> {
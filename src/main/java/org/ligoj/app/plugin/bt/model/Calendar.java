@@ -7,11 +7,13 @@ import java.util.List;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OrderBy;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 
+import org.ligoj.app.plugin.bt.BusinessCalendarCache;
 import org.ligoj.bootstrap.core.model.AbstractNamedEntity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -25,6 +27,7 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@EntityListeners(BusinessCalendarCache.class)
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = "name"), name = "LIGOJ_BT_CALENDAR")
 public class Calendar extends AbstractNamedEntity<Integer> {
 
@@ -6,12 +6,14 @@ package org.ligoj.app.plugin.bt.model;
 import java.util.Date;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.NotNull;
 
+import org.ligoj.app.plugin.bt.BusinessCalendarCache;
 import org.ligoj.bootstrap.core.model.AbstractNamedEntity;
 
 import lombok.Getter;
@@ -23,6 +25,7 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@EntityListeners(BusinessCalendarCache.class)
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = { "calendar", "date" }), name = "LIGOJ_BT_HOLIDAY")
 public class Holiday extends AbstractNamedEntity<Integer> {
 
@@ -3,14 +3,22 @@
  */
 package org.ligoj.app.plugin.bt;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.junit.jupiter.api.Assertions;
@@ -31,13 +39,16 @@ import org.ligoj.app.plugin.bt.dao.SlaRepository;
 import org.ligoj.app.plugin.bt.model.BugTrackerConfiguration;
 import org.ligoj.app.plugin.bt.model.BusinessHours;
 import org.ligoj.app.plugin.bt.model.Calendar;
+import org.ligoj.app.plugin.bt.model.ChangeItem;
 import org.ligoj.app.plugin.bt.model.Holiday;
 import org.ligoj.app.plugin.bt.model.Sla;
 import org.ligoj.app.resource.ServicePluginLocator;
 import org.ligoj.bootstrap.MatcherUtil;
 import org.ligoj.bootstrap.core.INamableBean;
+import org.ligoj.bootstrap.core.json.TableItem;
 import org.ligoj.bootstrap.core.resource.BusinessException;
 import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.orm.jpa.JpaObjectRetrievalFailureException;
@@ -45,6 +56,8 @@ import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
  * Test class of {@link BugTrackerResource}
  */
@@ -81,6 +94,9 @@ class BugTrackerResourceTest extends AbstractAppTest {
 	@Autowired
 	private IdentifierHelper identifierHelper;
 
+	@Autowired
+	private SlaMonitor slaMonitor;
+
 	private int subscription;
 
 	@BeforeEach
@@ -561,6 +577,299 @@ class BugTrackerResourceTest extends AbstractAppTest {
 
 	}
 
+	@Test
+	void exportSlaCsv() throws IOException {
+		final String[] lines = exportSla("csv").split("\n");
+		Assertions.assertEquals(3, lines.length);
+		Assertions.assertEquals("id;pkey;created;status;type;priority;resolution;reporter;assignee;dueDate;"
+				+ "Livraison.start;Livraison.stop;Livraison.duration;Livraison.revisedDueDate;"
+				+ "Livraison.revisedDueDateDistance;Livraison.remaining;Livraison.breach", lines[0]);
+		// The status of the issue is the one of its latest change
+		Assertions.assertEquals("1;\"P;1\";2014/07/21 09:00:00;6;1;;;;;;2014/07/21 09:00:00;2014/07/21 10:00:00;3600000;;;;",
+				lines[1]);
+		Assertions.assertTrue(lines[2].startsWith("2;P-2;2014/07/21 09:30:00;1;1;;;;;;2014/07/21 09:30:00;;"));
+	}
+
+	@Test
+	void exportSlaJson() throws IOException {
+		final SlaComputations computations = new ObjectMapper().readValue(exportSla("json"), SlaComputations.class);
+		Assertions.assertEquals(1, computations.getSlaConfigurations().size());
+		Assertions.assertEquals("Livraison", computations.getSlaConfigurations().getFirst().getName());
+		Assertions.assertEquals(2, computations.getIssues().size());
+		Assertions.assertEquals(3600000, computations.getIssues().getFirst().getData().getFirst().getDuration());
+	}
+
+	@Test
+	void exportSlaLazy() throws IOException {
+		final BugTrackerResource resource = newSlaResource();
+		final BugTrackerServicePlugin provider = resource.servicePluginLocator
+				.getResourceExpected("service:bt:jira:4", BugTrackerServicePlugin.class);
+		final Response response = resource.exportSla(subscription, "csv");
+
+		// The changes are not read until the export is written
+		Mockito.verify(provider, Mockito.never()).getChanges(ArgumentMatchers.anyInt(), ArgumentMatchers.any());
+		((StreamingOutput) response.getEntity()).write(new ByteArrayOutputStream());
+		Mockito.verify(provider).getChanges(ArgumentMatchers.eq(subscription), ArgumentMatchers.any());
+	}
+
+	@Test
+	void exportSlaFailure() throws IOException {
+		final BugTrackerResource resource = newSlaResource();
+		final BugTrackerServicePlugin provider = resource.servicePluginLocator
+				.getResourceExpected("service:bt:jira:4", BugTrackerServicePlugin.class);
+		Mockito.when(provider.getChanges(ArgumentMatchers.eq(subscription), ArgumentMatchers.any()))
+				.thenThrow(new IOException("read"));
+		final StreamingOutput output = (StreamingOutput) resource.exportSla(subscription, "json").getEntity();
+		Assertions.assertEquals("read",
+				Assertions.assertThrows(IOException.class, () -> output.write(new ByteArrayOutputStream())).getMessage());
+	}
+
+	@Test
+	void groupSla() throws IOException {
+		final SlaComputations computations = newSlaResource().groupSla(subscription, List.of("type", "assignee"));
+		Assertions.assertNull(computations.getIssues());
+		Assertions.assertEquals(1, computations.getGroups().size());
+		final SlaGroup group = computations.getGroups().getFirst();
+		Assertions.assertEquals(0, group.getSla());
+		Assertions.assertEquals(Arrays.asList(1, null), group.getKeys());
+		Assertions.assertEquals(2, group.getIssues());
+		Assertions.assertEquals(2, group.getCount());
+		Assertions.assertEquals(3600000, group.getDurationMin());
+	}
+
+	@Test
+	void aggregateSla() throws IOException {
+		final SlaComputations computations = newSlaResource().aggregateSla(subscription);
+		Assertions.assertNull(computations.getIssues());
+		Assertions.assertEquals(1, computations.getSlaConfigurations().size());
+		Assertions.assertEquals(1, computations.getStatistics().size());
+		final SlaStatistics statistics = computations.getStatistics().getFirst();
+		Assertions.assertEquals(0, statistics.getSla());
+		Assertions.assertEquals(1, statistics.getType());
+		Assertions.assertEquals(2, statistics.getCount());
+		Assertions.assertNotNull(statistics.getDurationP50());
+	}
+
+	@Test
+	void agingSla() throws IOException {
+		final SlaComputations computations = newSlaResource().agingSla(subscription, 10);
+		Assertions.assertNull(computations.getIssues());
+		Assertions.assertEquals(Set.of(1, 6), computations.getAging().keySet());
+		Assertions.assertEquals("P-2", computations.getAging().get(1).getFirst().getPkey());
+		Assertions.assertEquals("P;1", computations.getAging().get(6).getFirst().getPkey());
+	}
+
+	@Test
+	void agingSlaInvalidLimit() throws IOException {
+		final BugTrackerResource resource = newSlaResource();
+		MatcherUtil.assertThrows(
+				Assertions.assertThrows(ValidationJsonException.class, () -> resource.agingSla(subscription, 0)),
+				"limit", "Range");
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> resource.agingSla(subscription, Integer.MAX_VALUE - 2)), "limit", "Range");
+	}
+
+	@Test
+	void complianceSla() throws IOException {
+		final SlaComputations computations = newSlaResource().complianceSla(subscription,
+				getDate(2014, 7, 20).getTime(), getDate(2014, 7, 23).getTime(), "day");
+		Assertions.assertNull(computations.getIssues());
+		Assertions.assertEquals(1, computations.getCompliances().size());
+		final SlaCompliance compliance = computations.getCompliances().getFirst();
+		Assertions.assertEquals(3, compliance.getStarts().size());
+		Assertions.assertArrayEquals(new long[] { 0, 1, 0 }, compliance.getStopped());
+	}
+
+	@Test
+	void getSlaComputations() throws IOException {
+		final BugTrackerResource resource = newSlaResource();
+		final SlaComputations computations = resource.getSlaComputations(subscription);
+		Assertions.assertEquals(2, computations.getIssues().size());
+		Assertions.assertEquals(3600000, computations.getIssues().getFirst().getData().getFirst().getDuration());
+
+		// Cached computations, the changes are not read again
+		final SlaComputations cached = resource.getSlaComputations(subscription);
+		Assertions.assertEquals(2, cached.getIssues().size());
+		Assertions.assertEquals(3600000, cached.getIssues().getFirst().getData().getFirst().getDuration());
+		Mockito.verify(resource.servicePluginLocator.getResourceExpected("service:bt:jira:4",
+				BugTrackerServicePlugin.class)).getChanges(ArgumentMatchers.eq(subscription), ArgumentMatchers.any());
+	}
+
+	@Test
+	void submitSlaJob() throws IOException, InterruptedException {
+		final BugTrackerResource resource = newSlaResource();
+		final SlaJob job = resource.submitSlaJob(subscription);
+		Assertions.assertEquals(subscription, job.getSubscription());
+		final long timeout = System.currentTimeMillis() + 10000;
+		while (resource.getSlaJob(job.getId()).getCompleted() == null) {
+			Assertions.assertTrue(System.currentTimeMillis() < timeout, "Job not completed");
+			Thread.sleep(10);
+		}
+		Assertions.assertEquals(SlaJob.Status.DONE, job.getStatus());
+		Assertions.assertEquals(3, job.getChanges());
+		Assertions.assertEquals(2, job.getIssues());
+		final SlaComputations computations = resource.getSlaJobResult(job.getId());
+		Assertions.assertEquals(2, computations.getIssues().size());
+		Assertions.assertEquals(3600000, computations.getIssues().getFirst().getData().getFirst().getDuration());
+
+		// No effect on a completed job
+		Assertions.assertEquals(SlaJob.Status.DONE, resource.cancelSlaJob(job.getId()).getStatus());
+	}
+
+	@Test
+	void getSlaJobUnknown() {
+		Assertions.assertThrows(EntityNotFoundException.class, () -> resource.getSlaJob("any"));
+	}
+
+	@Test
+	void getClosestToBreach() throws IOException {
+		final List<IssueSla> issues = newSlaResource().getClosestToBreach(subscription, 0, 10);
+
+		// Only the second issue is running, and breached since a long time
+		Assertions.assertEquals(1, issues.size());
+		Assertions.assertEquals("P-2", issues.getFirst().getPkey());
+		Assertions.assertTrue(issues.getFirst().getData().getFirst().getRemaining() < 0);
+	}
+
+	@Test
+	void getClosestToBreachInvalidSla() throws IOException {
+		final BugTrackerResource resource = newSlaResource();
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> resource.getClosestToBreach(subscription, 1, 10)), "sla", "Range");
+	}
+
+	@Test
+	void querySla() throws IOException {
+		final BugTrackerResource resource = newSlaResource();
+		TableItem<IssueSla> page = resource.querySla(subscription, 0, 50, "pkey", true, null, List.of(), List.of(),
+				List.of(), List.of(), null);
+		Assertions.assertEquals(2, page.getRecordsTotal());
+		Assertions.assertEquals(2, page.getRecordsFiltered());
+		Assertions.assertEquals(List.of("P;1", "P-2"),
+				page.getData().stream().map(IssueSla::getPkey).toList());
+
+		// Filtered by status
+		page = resource.querySla(subscription, 0, 50, null, false, 0, List.of(1), null, null, null, null);
+		Assertions.assertEquals(2, page.getRecordsTotal());
+		Assertions.assertEquals(1, page.getRecordsFiltered());
+		Assertions.assertEquals("P-2", page.getData().getFirst().getPkey());
+	}
+
+	@Test
+	void querySlaInvalidSla() {
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> newSlaResource().querySla(subscription, 0, 50, null, false, 1, null, null, null, null, null)),
+				"sla", "Range");
+	}
+
+	@Test
+	void monitorSla() throws IOException {
+		final BugTrackerResource resource = newSlaResource();
+		resource.monitorSla(subscription);
+		try {
+			Assertions.assertTrue(slaMonitor.isMonitored(subscription));
+			Assertions.assertEquals(2, slaMonitor.getIssueCount(subscription));
+		} finally {
+			resource.unmonitorSla(subscription);
+		}
+		Assertions.assertFalse(slaMonitor.isMonitored(subscription));
+	}
+
+	/**
+	 * A change notified while the changes are read is not lost.
+	 */
+	@Test
+	void monitorSlaNotified() throws IOException {
+		final BugTrackerResource resource = newSlaResource();
+		final BugTrackerServicePlugin provider = resource.servicePluginLocator
+				.getResourceExpected("service:bt:jira:4", BugTrackerServicePlugin.class);
+		Mockito.when(provider.getChanges(ArgumentMatchers.eq(subscription), ArgumentMatchers.any())).thenAnswer(i -> {
+			slaMonitor.onStatusChange(subscription, newChangeItem(3, "P-3", 0, 1, getDate(2014, 7, 21, 10, 30, 0)));
+			return newSlaChanges(i.getArgument(1));
+		});
+		resource.monitorSla(subscription);
+		try {
+			Assertions.assertEquals(3, slaMonitor.getIssueCount(subscription));
+		} finally {
+			resource.unmonitorSla(subscription);
+		}
+	}
+
+	@Test
+	void monitorSlaFailure() throws IOException {
+		final BugTrackerResource resource = newSlaResource();
+		final BugTrackerServicePlugin provider = resource.servicePluginLocator
+				.getResourceExpected("service:bt:jira:4", BugTrackerServicePlugin.class);
+		Mockito.when(provider.getChanges(ArgumentMatchers.eq(subscription), ArgumentMatchers.any()))
+				.thenThrow(new IOException("read"));
+		Assertions.assertEquals("read",
+				Assertions.assertThrows(IOException.class, () -> resource.monitorSla(subscription)).getMessage());
+		Assertions.assertFalse(slaMonitor.isMonitored(subscription));
+	}
+
+	@Test
+	void groupSlaInvalidDimension() {
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> newSlaResource().groupSla(subscription, List.of("pkey"))), "by", "NotSupported");
+	}
+
+	/**
+	 * Export the SLA of two issues: the first one stopped after one business hour, the second one running.
+	 */
+	private String exportSla(final String format) throws IOException {
+		final Response response = newSlaResource().exportSla(subscription, format);
+		Assertions.assertTrue(response.getHeaderString("Content-Disposition").contains("sla-" + subscription + "." + format));
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		((StreamingOutput) response.getEntity()).write(output);
+		return output.toString(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Return a resource reading two issues: the first one stopped after one business hour, the second one running.
+	 */
+	private BugTrackerResource newSlaResource() throws IOException {
+		final BugTrackerResource resource = new BugTrackerResource();
+		applicationContext.getAutowireCapableBeanFactory().autowireBean(resource);
+		resource.servicePluginLocator = Mockito.mock(ServicePluginLocator.class);
+		final BugTrackerServicePlugin jiraMock = Mockito.mock(BugTrackerServicePlugin.class);
+		Mockito.when(jiraMock.getChanges(ArgumentMatchers.eq(subscription), ArgumentMatchers.any()))
+				.thenAnswer(i -> newSlaChanges(i.getArgument(1)));
+		Mockito.when(jiraMock.getLastChange(subscription))
+				.thenReturn(newChangeItem(1, "P;1", 1, 6, getDate(2014, 7, 21, 10, 0, 0)));
+		Mockito.when(resource.servicePluginLocator.getResourceExpected("service:bt:jira:4", BugTrackerServicePlugin.class))
+				.thenReturn(jiraMock);
+		return resource;
+	}
+
+	/**
+	 * Resolve the given SLA and return the changes of two issues: the first one stopped after one business hour, the
+	 * second one running.
+	 */
+	private Stream<ChangeItem> newSlaChanges(final List<Sla> slas) {
+		final Sla sla = slas.getFirst();
+		sla.setStartAsSet(Set.of(1));
+		sla.setStopAsSet(Set.of(6));
+		sla.setPausedAsSet(Set.of(5));
+		sla.setTypesAsSet(Collections.emptySet());
+		sla.setPrioritiesAsSet(Collections.emptySet());
+		sla.setResolutionsAsSet(Collections.emptySet());
+		return Stream.of(newChangeItem(1, "P;1", 0, 1, getDate(2014, 7, 21, 9, 0, 0)),
+				newChangeItem(2, "P-2", 0, 1, getDate(2014, 7, 21, 9, 30, 0)),
+				newChangeItem(1, "P;1", 1, 6, getDate(2014, 7, 21, 10, 0, 0)));
+	}
+
+	private ChangeItem newChangeItem(final int id, final String pkey, final int from, final int to, final Date created) {
+		final ChangeItem change = new ChangeItem();
+		change.setId(id);
+		change.setPkey(pkey);
+		change.setFromStatus(from);
+		change.setToStatus(to);
+		change.setStatus(to);
+		change.setType(1);
+		change.setCreated(created);
+		return change;
+	}
+
 	@Test
 	void getInstalledEntities() {
 		Assertions.assertTrue(resource.getInstalledEntities().contains(Holiday.class));
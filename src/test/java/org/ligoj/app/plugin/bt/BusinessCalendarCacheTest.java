@@ -0,0 +1,103 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import jakarta.transaction.Transactional;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.ligoj.app.AbstractAppTest;
+import org.ligoj.app.model.Node;
+import org.ligoj.app.model.Project;
+import org.ligoj.app.model.Subscription;
+import org.ligoj.app.plugin.bt.dao.BugTrackerConfigurationRepository;
+import org.ligoj.app.plugin.bt.dao.HolidayRepository;
+import org.ligoj.app.plugin.bt.model.BugTrackerConfiguration;
+import org.ligoj.app.plugin.bt.model.BusinessHours;
+import org.ligoj.app.plugin.bt.model.Calendar;
+import org.ligoj.app.plugin.bt.model.Holiday;
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Test class of {@link BusinessCalendarCache}
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(locations = "classpath:/META-INF/spring/application-context-test.xml")
+@Rollback
+@Transactional
+class BusinessCalendarCacheTest extends AbstractAppTest {
+
+	@Autowired
+	private BusinessCalendarCache cache;
+
+	@Autowired
+	private BugTrackerConfigurationRepository repository;
+
+	@Autowired
+	private HolidayRepository holidayRepository;
+
+	private BugTrackerConfiguration configuration;
+
+	@BeforeEach
+	void prepareData() throws IOException {
+		persistSystemEntities();
+		persistEntities("csv", new Class<?>[] { Calendar.class, Holiday.class, Node.class, Project.class,
+				Subscription.class, BugTrackerConfiguration.class, BusinessHours.class, Sla.class },
+				StandardCharsets.UTF_8);
+		em.flush();
+		em.clear();
+		configuration = repository.findAll().getFirst();
+	}
+
+	@Test
+	void get() {
+		final BusinessCalendar calendar = cache.get(configuration);
+		Assertions.assertSame(calendar, cache.get(configuration));
+
+		// Another configuration of the same calendar and business hours
+		final BugTrackerConfiguration other = new BugTrackerConfiguration();
+		other.setCalendar(configuration.getCalendar());
+		other.setBusinessHours(configuration.getBusinessHours());
+		Assertions.assertSame(calendar, cache.get(other));
+	}
+
+	@Test
+	void getInvalidateHoliday() {
+		final BusinessCalendar calendar = cache.get(configuration);
+		final Holiday holiday = new Holiday();
+		holiday.setCalendar(configuration.getCalendar());
+		holiday.setName("Day off");
+		holiday.setDate(getDate(2030, 1, 2));
+		holidayRepository.saveAndFlush(holiday);
+		em.refresh(configuration.getCalendar());
+		final BusinessCalendar updated = cache.get(configuration);
+		Assertions.assertNotSame(calendar, updated);
+		Assertions.assertSame(updated, cache.get(configuration));
+	}
+
+	@Test
+	void getInvalidateBusinessHours() {
+		final BusinessCalendar calendar = cache.get(configuration);
+		configuration.getBusinessHours().getFirst().setEnd(DateUtils.MILLIS_PER_HOUR * 20);
+		em.flush();
+		Assertions.assertNotSame(calendar, cache.get(configuration));
+	}
+
+	@Test
+	void invalidate() {
+		final BusinessCalendar calendar = cache.get(configuration);
+		BusinessCalendarCache.invalidate();
+		Assertions.assertNotSame(calendar, cache.get(configuration));
+	}
+}
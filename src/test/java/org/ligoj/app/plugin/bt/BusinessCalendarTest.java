@@ -0,0 +1,93 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.bt.model.BusinessHours;
+import org.ligoj.bootstrap.AbstractDataGeneratorTest;
+
+/**
+ * Test class of {@link BusinessCalendar}
+ */
+class BusinessCalendarTest extends AbstractDataGeneratorTest {
+
+	@Test
+	void getBusinessTimeNoHoliday() {
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+		// 2014/03/01 = Sat, 2014/03/03 = Mon
+		Assertions.assertEquals(5 * DateUtils.MILLIS_PER_DAY,
+				calendar.getBusinessTime(getDate(2014, 3, 1), getDate(2014, 3, 8)));
+		Assertions.assertEquals(DateUtils.MILLIS_PER_HOUR,
+				calendar.getBusinessTime(getDate(2014, 3, 1), getDate(2014, 3, 3, 1, 0, 0)));
+		Assertions.assertEquals(0, calendar.getBusinessTime(getDate(2014, 3, 8), getDate(2014, 3, 1)));
+	}
+
+	@Test
+	void getBusinessTimeHolidays() {
+		final List<Date> holidays = new ArrayList<>();
+		holidays.add(getDate(2014, 3, 4));
+		holidays.add(getDate(2014, 3, 8));
+		holidays.add(getDate(2014, 3, 11));
+		final BusinessCalendar calendar = new BusinessCalendar(holidays, newRanges(9, 12, 14, 18));
+
+		// Inside the indexed span
+		Assertions.assertEquals(7 * 5 * DateUtils.MILLIS_PER_HOUR,
+				calendar.getBusinessTime(getDate(2014, 3, 3), getDate(2014, 3, 11, 23, 0, 0)));
+
+		// Across the indexed span : 2 holidays
+		Assertions.assertEquals(7 * (10 - 2) * DateUtils.MILLIS_PER_HOUR + 3 * DateUtils.MILLIS_PER_HOUR,
+				calendar.getBusinessTime(getDate(2014, 2, 28, 9, 0, 0), getDate(2014, 3, 14, 12, 0, 0)));
+
+		// Outside the indexed span
+		Assertions.assertEquals(7 * 5 * DateUtils.MILLIS_PER_HOUR,
+				calendar.getBusinessTime(getDate(2014, 2, 3), getDate(2014, 2, 10)));
+		Assertions.assertEquals(7 * 5 * DateUtils.MILLIS_PER_HOUR,
+				calendar.getBusinessTime(getDate(2015, 2, 2), getDate(2015, 2, 9)));
+	}
+
+	@Test
+	void getBusinessTimeWithinRanges() {
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), newRanges(9, 12, 14, 18));
+		Assertions.assertEquals(0, calendar.getBusinessTime(getDate(2014, 3, 3, 12, 0, 0), getDate(2014, 3, 3, 14, 0, 0)));
+		Assertions.assertEquals(2 * DateUtils.MILLIS_PER_HOUR,
+				calendar.getBusinessTime(getDate(2014, 3, 3, 11, 0, 0), getDate(2014, 3, 3, 15, 0, 0)));
+	}
+
+	@Test
+	void isBusinessDay() {
+		final List<Date> holidays = new ArrayList<>();
+		holidays.add(getDate(2014, 3, 4));
+		final BusinessCalendar calendar = new BusinessCalendar(holidays, new ArrayList<>());
+		final long monday = getDate(2014, 3, 3).toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+		Assertions.assertTrue(calendar.isBusinessDay(monday));
+		Assertions.assertFalse(calendar.isBusinessDay(monday + 1));
+		Assertions.assertTrue(calendar.isBusinessDay(monday + 2));
+		Assertions.assertFalse(calendar.isBusinessDay(monday + 5));
+		Assertions.assertFalse(calendar.isBusinessDay(monday - 1));
+		Assertions.assertTrue(calendar.isHoliday(monday + 1));
+		Assertions.assertFalse(calendar.isHoliday(monday));
+		Assertions.assertFalse(calendar.isHoliday(monday + 365));
+	}
+
+	/**
+	 * Return a list of business hours ranges.
+	 */
+	private List<BusinessHours> newRanges(final int... businessHoursCouples) {
+		final List<BusinessHours> ranges = new ArrayList<>();
+		for (int i = 0; i < businessHoursCouples.length; i += 2) {
+			final BusinessHours range = new BusinessHours();
+			range.setStart(businessHoursCouples[i] * DateUtils.MILLIS_PER_HOUR);
+			range.setEnd(businessHoursCouples[i + 1] * DateUtils.MILLIS_PER_HOUR);
+			ranges.add(range);
+		}
+		return ranges;
+	}
+}
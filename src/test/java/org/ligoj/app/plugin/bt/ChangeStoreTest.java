@@ -0,0 +1,88 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.bt.model.ChangeItem;
+
+/**
+ * Test class of {@link ChangeStore}
+ */
+class ChangeStoreTest {
+
+	@Test
+	void add() {
+		final ChangeStore store = new ChangeStore(0);
+		final int[] created = new int[1];
+		for (int index = 0; index < 100; index++) {
+			store.add(newChangeItem(index % 3, index, index + 1), index * 10L, c -> {
+				created[0]++;
+				final IssueStatus issue = new IssueStatus();
+				issue.setId(c.getId());
+				issue.setStatus(c.getToStatus());
+				return issue;
+			}, (i, c) -> i.setStatus(c.getToStatus()));
+		}
+		Assertions.assertEquals(100, store.size());
+		Assertions.assertEquals(3, store.getIssueCount());
+		Assertions.assertEquals(3, created[0]);
+
+		// The issue attributes are the ones of the latest change
+		Assertions.assertEquals(100, store.getIssue(0).getStatus());
+		Assertions.assertEquals(98, store.getIssue(1).getStatus());
+
+		// Changes of the second issue
+		Assertions.assertEquals(1, store.getIssue(1).getId());
+		int change = store.getFirst(1);
+		Assertions.assertEquals(1, change);
+		Assertions.assertEquals(1, store.getIssueIndex(change));
+		Assertions.assertEquals(1, store.getFromStatus(change));
+		Assertions.assertEquals(2, store.getStatus(change));
+		Assertions.assertEquals(1, store.getCreated(change));
+		Assertions.assertEquals(10, store.getSnapshotTime(change));
+		int count = 0;
+		for (; change != ChangeStore.NONE; change = store.getNext(change)) {
+			Assertions.assertEquals(count * 3 + 1, change);
+			count++;
+		}
+		Assertions.assertEquals(33, count);
+	}
+
+	@Test
+	void newStatusChange() {
+		final ChangeStore store = new ChangeStore(10);
+		final int change = store.add(newChangeItem(5, 1, 2), 3, c -> new IssueStatus(), (i, c) -> {
+		});
+		final StatusChange statusChange = store.newStatusChange(change);
+		Assertions.assertEquals(1, statusChange.getFromStatus());
+		Assertions.assertEquals(2, statusChange.getStatus());
+		Assertions.assertEquals(new Date(1), statusChange.getCreated());
+		Assertions.assertEquals(3, statusChange.getSnapshotTime());
+		Assertions.assertEquals(0, statusChange.getElapsedtime());
+	}
+
+	@Test
+	void newStatusChangeNoFromStatus() {
+		final ChangeStore store = new ChangeStore(10);
+		final ChangeItem item = newChangeItem(5, 1, 2);
+		item.setFromStatus(null);
+		final int change = store.add(item, 3, c -> new IssueStatus(), (i, c) -> {
+		});
+		Assertions.assertEquals(ChangeStore.NONE, store.getFromStatus(change));
+		Assertions.assertNull(store.newStatusChange(change).getFromStatus());
+		Assertions.assertEquals(2, store.newStatusChange(change).getStatus());
+	}
+
+	private ChangeItem newChangeItem(final int id, final int from, final int to) {
+		final ChangeItem change = new ChangeItem();
+		change.setId(id);
+		change.setFromStatus(from);
+		change.setToStatus(to);
+		change.setCreated(new Date(from));
+		return change;
+	}
+}
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.junit.jupiter.api.Assertions;
@@ -98,6 +99,21 @@ class ComputationContextTest extends AbstractDataGeneratorTest {
 		Assertions.assertEquals(getDate(2014, 3, 4), context.getCursor());
 	}
 
+	@Test
+	void resetBackwardHoliday() {
+		final List<Date> holidays = new ArrayList<>();
+		holidays.add(getDate(2014, 3, 4));
+		holidays.add(getDate(2014, 3, 5));
+		holidays.add(getDate(2015, 3, 4));
+		final ComputationContext context = new ComputationContext(holidays, new ArrayList<>());
+		context.reset(getDate(2015, 3, 4));
+		Assertions.assertEquals(getDate(2015, 3, 5), context.getCursor());
+
+		// Holidays before the previous cursor are still considered
+		context.reset(getDate(2014, 3, 4));
+		Assertions.assertEquals(getDate(2014, 3, 6), context.getCursor());
+	}
+
 	@Test
 	void moveForwardOnWeekHoliday() {
 		final List<Date> holidays = new ArrayList<>();
@@ -255,6 +271,43 @@ class ComputationContextTest extends AbstractDataGeneratorTest {
 		});
 	}
 
+	@Test
+	void moveForwardSameAsDayByDay() {
+		final List<Date> holidays = new ArrayList<>();
+		holidays.add(getDate(2014, 3, 4));
+		holidays.add(getDate(2014, 5, 1));
+		holidays.add(getDate(2014, 12, 25));
+		holidays.add(getDate(2015, 1, 1));
+		final ComputationContext context = new ComputationContext(holidays, newRanges(0, 2, 9, 12, 14, 18, 22, 24));
+		final ComputationContext reference = new ComputationContext(holidays, newRanges(0, 2, 9, 12, 14, 18, 22, 24));
+		Date lastDate = getDate(2013, 12, 20);
+		context.reset(lastDate);
+		reference.reset(lastDate);
+		final Random random = new Random(1);
+		for (int i = 2000; i-- > 0;) {
+			// Some dates are before the previous one
+			lastDate = new Date(lastDate.getTime() + (long) ((3 * DateUtils.MILLIS_PER_DAY) * (random.nextDouble() - 0.1)));
+			Assertions.assertEquals(reference.moveForwardDayByDay(lastDate), context.moveForward(lastDate));
+			Assertions.assertEquals(reference.getCursor(), context.getCursor());
+			Assertions.assertEquals(reference.getCursorTime(), context.getCursorTime());
+		}
+	}
+
+	@Test
+	void sharedCalendar() {
+		final List<Date> holidays = new ArrayList<>();
+		holidays.add(getDate(2014, 3, 4));
+		final BusinessCalendar calendar = new BusinessCalendar(holidays, newRanges(9, 12, 14, 18));
+		final List<Long> deltas = IntStream.range(0, 100).parallel().mapToObj(i -> {
+			final ComputationContext context = new ComputationContext(calendar);
+			context.reset(getDate(2014, 3, 3));
+			return context.moveForward(getDate(2014, 3, 5 + i % 2, 10, 0, 0));
+		}).toList();
+		for (int i = 0; i < deltas.size(); i++) {
+			Assertions.assertEquals((i % 2 == 0 ? 8 : 15) * DateUtils.MILLIS_PER_HOUR, deltas.get(i).longValue());
+		}
+	}
+
 	@Test
 	void resetNightBusinessHour() {
 		final ComputationContext context = new ComputationContext(new ArrayList<>(), newRanges(0, 10, 22, 24));
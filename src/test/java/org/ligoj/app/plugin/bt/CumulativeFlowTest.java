@@ -0,0 +1,106 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.bootstrap.AbstractDataGeneratorTest;
+
+/**
+ * {@link CumulativeFlow} test class.
+ */
+class CumulativeFlowTest extends AbstractDataGeneratorTest {
+
+	@Test
+	void empty() {
+		final CumulativeFlow flow = new CumulativeFlow();
+		Assertions.assertNull(flow.getStart());
+		Assertions.assertEquals(0, flow.getCounts().length);
+		Assertions.assertEquals(0, flow.getCount(0, 1));
+	}
+
+	@Test
+	void add() {
+		final CumulativeFlow flow = new CumulativeFlow();
+		flow.add(getDate(2014, 7, 21, 10, 0, 0), -1, 1);
+		flow.add(getDate(2014, 7, 21, 11, 0, 0), -1, 1);
+		flow.add(getDate(2014, 7, 21, 12, 0, 0), 1, 2);
+		Assertions.assertEquals(getDate(2014, 7, 21), flow.getStart());
+		Assertions.assertEquals(1, flow.getCounts().length);
+		Assertions.assertEquals(1, flow.getCount(0, 1));
+		Assertions.assertEquals(1, flow.getCount(0, 2));
+
+		// Days without change keep the counts of the previous day
+		flow.add(getDate(2014, 7, 24, 0, 0, 0), 2, 6);
+		Assertions.assertEquals(4, flow.getCounts().length);
+		Assertions.assertArrayEquals(new int[] { 1, 2, 6 }, flow.getStatuses());
+		Assertions.assertArrayEquals(new int[] { 1, 1 }, flow.getCounts()[1]);
+		Assertions.assertArrayEquals(new int[] { 1, 1 }, flow.getCounts()[2]);
+		Assertions.assertEquals(0, flow.getCount(3, 2));
+		Assertions.assertEquals(1, flow.getCount(3, 6));
+		Assertions.assertEquals(0, flow.getCount(4, 6));
+		Assertions.assertEquals(0, flow.getCount(3, -1));
+	}
+
+	@Test
+	void addLargeIdentifiers() {
+		final CumulativeFlow flow = new CumulativeFlow();
+		flow.add(getDate(2014, 7, 21, 10, 0, 0), -1, 10001);
+		flow.add(getDate(2014, 7, 21, 11, 0, 0), 10001, 10006);
+		Assertions.assertArrayEquals(new int[] { 0, 1 }, flow.getCounts()[0]);
+		Assertions.assertEquals(1, flow.getCount(0, 10006));
+		Assertions.assertEquals(0, flow.getCount(0, 10001));
+	}
+
+	@Test
+	void extendTo() {
+		final CumulativeFlow flow = new CumulativeFlow();
+		flow.extendTo(getDate(2014, 7, 24));
+		Assertions.assertEquals(0, flow.getCounts().length);
+
+		flow.add(getDate(2014, 7, 21, 10, 0, 0), -1, 1);
+		flow.extendTo(getDate(2014, 7, 20));
+		Assertions.assertEquals(1, flow.getCounts().length);
+
+		// The last counts run until the given date
+		flow.extendTo(getDate(2014, 7, 24, 10, 0, 0));
+		Assertions.assertEquals(4, flow.getCounts().length);
+		Assertions.assertEquals(1, flow.getCount(3, 1));
+	}
+
+	@Test
+	void addManyDays() {
+		final CumulativeFlow flow = new CumulativeFlow();
+		flow.add(getDate(2014, 1, 1), -1, 1);
+		flow.add(getDate(2014, 12, 31), 1, 2);
+		Assertions.assertEquals(365, flow.getCounts().length);
+		Assertions.assertEquals(1, flow.getCount(363, 1));
+		Assertions.assertEquals(0, flow.getCount(364, 1));
+		Assertions.assertEquals(1, flow.getCount(364, 2));
+	}
+
+	@Test
+	void copy() {
+		final CumulativeFlow flow = new CumulativeFlow();
+		flow.add(getDate(2014, 7, 21, 10, 0, 0), -1, 1);
+		final CumulativeFlow copy = flow.copy();
+		copy.add(getDate(2014, 7, 21, 11, 0, 0), 1, 2);
+		copy.add(getDate(2014, 7, 22, 11, 0, 0), -1, 1);
+
+		// The copied flow is not updated
+		Assertions.assertEquals(1, flow.getCounts().length);
+		Assertions.assertArrayEquals(new int[] { 1 }, flow.getCounts()[0]);
+		Assertions.assertEquals(2, copy.getCounts().length);
+		Assertions.assertArrayEquals(new int[] { 1, 1 }, copy.getCounts()[1]);
+
+		// Resume a copy of a persisted flow
+		final CumulativeFlow restored = new CumulativeFlow();
+		restored.setStart(copy.getStart());
+		restored.setStatuses(copy.getStatuses());
+		restored.setCounts(copy.getCounts());
+		restored.add(getDate(2014, 7, 23, 11, 0, 0), 2, 6);
+		Assertions.assertEquals(3, restored.getCounts().length);
+		Assertions.assertEquals(1, restored.getCount(2, 6));
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class of {@link DurationHistogram}
+ */
+class DurationHistogramTest {
+
+	@Test
+	void getPercentileEmpty() {
+		final DurationHistogram histogram = new DurationHistogram();
+		Assertions.assertNull(histogram.getPercentile(50));
+		Assertions.assertEquals(0, histogram.getCount());
+	}
+
+	@Test
+	void getPercentileExact() {
+		final DurationHistogram histogram = new DurationHistogram();
+		for (int value = 1; value <= 50; value++) {
+			histogram.record(value);
+		}
+		Assertions.assertEquals(50, histogram.getCount());
+		Assertions.assertEquals(1, histogram.getMin());
+		Assertions.assertEquals(50, histogram.getMax());
+		Assertions.assertEquals(1, histogram.getPercentile(0));
+		Assertions.assertEquals(25, histogram.getPercentile(50));
+		Assertions.assertEquals(45, histogram.getPercentile(90));
+		Assertions.assertEquals(50, histogram.getPercentile(100));
+	}
+
+	@Test
+	void getPercentileNegative() {
+		final DurationHistogram histogram = new DurationHistogram();
+		histogram.record(-60);
+		histogram.record(-10);
+		histogram.record(0);
+		histogram.record(20);
+		histogram.record(-100000);
+		Assertions.assertEquals(-100000, histogram.getPercentile(10));
+		Assertions.assertEquals(-60, histogram.getPercentile(40));
+		Assertions.assertEquals(-10, histogram.getPercentile(60));
+		Assertions.assertEquals(0, histogram.getPercentile(80));
+		Assertions.assertEquals(20, histogram.getPercentile(100));
+	}
+
+	@Test
+	void getPercentileAccuracy() {
+		final DurationHistogram histogram = new DurationHistogram();
+		final DurationHistogram part1 = new DurationHistogram();
+		final DurationHistogram part2 = new DurationHistogram();
+		final Random random = new Random(1);
+		final long[] values = new long[10000];
+		for (int index = 0; index < values.length; index++) {
+			values[index] = (long) (Math.exp(random.nextDouble() * 20));
+			histogram.record(values[index]);
+			(index % 2 == 0 ? part1 : part2).record(values[index]);
+		}
+		Arrays.sort(values);
+		for (final double percentile : new double[] { 1, 50, 90, 99, 99.9 }) {
+			final long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+			final long actual = histogram.getPercentile(percentile);
+			Assertions.assertTrue(actual <= expected && actual >= expected * 0.96, percentile + ":" + actual);
+		}
+
+		// Merged histograms are the same
+		final DurationHistogram merged = new DurationHistogram();
+		merged.add(part1);
+		merged.add(part2);
+		merged.add(new DurationHistogram());
+		Assertions.assertEquals(histogram.getCount(), merged.getCount());
+		Assertions.assertEquals(histogram.getMin(), merged.getMin());
+		Assertions.assertEquals(histogram.getMax(), merged.getMax());
+		Assertions.assertEquals(histogram.getPercentile(90), merged.getPercentile(90));
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link IssueAging} test class.
+ */
+class IssueAgingTest {
+
+	@Test
+	void getOldestEmpty() {
+		Assertions.assertTrue(new IssueAging(2).getOldest().isEmpty());
+	}
+
+	@Test
+	void getOldest() {
+		final IssueAging aging = new IssueAging(2);
+		aging.accept(newIssueSla(1, 2, 100));
+		aging.accept(newIssueSla(2, 2, 300));
+		aging.accept(newIssueSla(3, 2, 200));
+		aging.accept(newIssueSla(4, 3, 50));
+		final Map<Integer, List<IssueSla>> oldest = aging.getOldest();
+		Assertions.assertEquals(2, oldest.size());
+		Assertions.assertEquals(List.of(2, 3), oldest.get(2).stream().map(IssueSla::getId).toList());
+		Assertions.assertEquals(List.of(4), oldest.get(3).stream().map(IssueSla::getId).toList());
+	}
+
+	@Test
+	void getOldestSameAge() {
+		final IssueAging aging = new IssueAging(2);
+		aging.accept(newIssueSla(3, 2, 100));
+		aging.accept(newIssueSla(1, 2, 100));
+		aging.accept(newIssueSla(2, 2, 100));
+		Assertions.assertEquals(List.of(1, 2), aging.getOldest().get(2).stream().map(IssueSla::getId).toList());
+	}
+
+	@Test
+	void acceptResolved() {
+		final IssueAging aging = new IssueAging(2);
+		final IssueSla issue = newIssueSla(1, 6, 100);
+		issue.setResolution(1);
+		aging.accept(issue);
+		Assertions.assertTrue(aging.getOldest().isEmpty());
+	}
+
+	@Test
+	void acceptNoLimit() {
+		final IssueAging aging = new IssueAging(0);
+		aging.accept(newIssueSla(1, 2, 100));
+		Assertions.assertTrue(aging.getOldest().getOrDefault(2, List.of()).isEmpty());
+	}
+
+	@Test
+	void acceptLargeLimit() {
+		final IssueAging aging = new IssueAging(Integer.MAX_VALUE - 2);
+		aging.accept(newIssueSla(1, 2, 100));
+		aging.accept(newIssueSla(2, 2, 200));
+		Assertions.assertEquals(2, aging.getOldest().get(2).size());
+	}
+
+	@Test
+	void collector() {
+		final IssueAging aging = Stream.of(newIssueSla(1, 2, 100), newIssueSla(2, 2, 400), newIssueSla(3, 2, 300),
+				newIssueSla(4, 2, 200)).parallel().collect(IssueAging.collector(3));
+		Assertions.assertEquals(List.of(2, 3, 4), aging.getOldest().get(2).stream().map(IssueSla::getId).toList());
+	}
+
+	@Test
+	void add() {
+		final IssueAging aging = new IssueAging(2);
+		aging.accept(newIssueSla(1, 2, 100));
+		final IssueAging other = new IssueAging(2);
+		other.accept(newIssueSla(2, 2, 300));
+		other.accept(newIssueSla(3, 2, 200));
+		aging.add(other);
+		Assertions.assertEquals(List.of(2, 3), aging.getOldest().get(2).stream().map(IssueSla::getId).toList());
+
+		// The merged aging is not updated
+		Assertions.assertEquals(2, other.getOldest().get(2).size());
+	}
+
+	private IssueSla newIssueSla(final int id, final int status, final long age) {
+		final IssueSla issue = new IssueSla();
+		issue.setId(id);
+		issue.setCurrentStatus(status);
+		issue.setAge(age);
+		return issue;
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.bt.model.Sla;
+
+/**
+ * Test class of {@link SlaAggregator}
+ */
+class SlaAggregatorTest {
+
+	@Test
+	void getStatistics() {
+		final List<Sla> slas = newSlas();
+		final SlaAggregator aggregator = new SlaAggregator(slas);
+		for (int index = 1; index <= 10; index++) {
+			aggregator.accept(newIssue(1, 2, newData(index * 10, -index), null));
+		}
+		aggregator.accept(newIssue(null, 2, newData(50, null), newData(5, null)));
+		aggregator.accept(newIssue(null, 2, new SlaData(), null));
+
+		final List<SlaStatistics> statistics = aggregator.getStatistics();
+		Assertions.assertEquals(3, statistics.size());
+		final SlaStatistics first = statistics.getFirst();
+		Assertions.assertEquals(0, first.getSla());
+		Assertions.assertNull(first.getPriority());
+		Assertions.assertEquals(2, first.getType());
+		Assertions.assertEquals(1, first.getCount());
+		Assertions.assertEquals(50, first.getDurationP50());
+		Assertions.assertEquals(0, first.getDistanceCount());
+		Assertions.assertNull(first.getDistanceP50());
+		Assertions.assertEquals(1d, first.getBreachRatio());
+
+		final SlaStatistics second = statistics.get(1);
+		Assertions.assertEquals(0, second.getSla());
+		Assertions.assertEquals(1, second.getPriority());
+		Assertions.assertEquals(10, second.getCount());
+		Assertions.assertEquals(50, second.getDurationP50());
+		Assertions.assertEquals(90, second.getDurationP90());
+		Assertions.assertEquals(100, second.getDurationP99());
+		Assertions.assertEquals(10, second.getDistanceCount());
+		Assertions.assertEquals(-6, second.getDistanceP50());
+		Assertions.assertEquals(-2, second.getDistanceP90());
+		Assertions.assertEquals(-1, second.getDistanceP99());
+		Assertions.assertEquals(0.6d, second.getBreachRatio());
+
+		// No threshold
+		final SlaStatistics third = statistics.get(2);
+		Assertions.assertEquals(1, third.getSla());
+		Assertions.assertEquals(1, third.getCount());
+		Assertions.assertNull(third.getBreachRatio());
+	}
+
+	@Test
+	void collector() {
+		final List<Sla> slas = newSlas();
+		final List<IssueSla> issues = IntStream.range(0, 1000)
+				.mapToObj(i -> newIssue(i % 3, i % 2, newData(i * 100L, null), null)).toList();
+		final SlaAggregator sequential = new SlaAggregator(slas);
+		issues.forEach(sequential);
+		final List<SlaStatistics> parallel = issues.parallelStream().collect(SlaAggregator.collector(slas))
+				.getStatistics();
+		Assertions.assertEquals(6, parallel.size());
+		for (int index = 0; index < parallel.size(); index++) {
+			final SlaStatistics expected = sequential.getStatistics().get(index);
+			Assertions.assertEquals(expected.getPriority(), parallel.get(index).getPriority());
+			Assertions.assertEquals(expected.getType(), parallel.get(index).getType());
+			Assertions.assertEquals(expected.getCount(), parallel.get(index).getCount());
+			Assertions.assertEquals(expected.getDurationP90(), parallel.get(index).getDurationP90());
+			Assertions.assertEquals(expected.getBreachRatio(), parallel.get(index).getBreachRatio());
+		}
+	}
+
+	private List<Sla> newSlas() {
+		final List<Sla> slas = new ArrayList<>();
+		slas.add(new Sla());
+		slas.add(new Sla());
+		slas.getFirst().setThreshold(40);
+		return slas;
+	}
+
+	private SlaData newData(final long duration, final Integer distance) {
+		final SlaData data = new SlaData();
+		data.setStart(new Date());
+		data.setDuration(duration);
+		data.setRevisedDueDateDistance(distance == null ? null : distance.longValue());
+		return data;
+	}
+
+	private IssueSla newIssue(final Integer priority, final int type, final SlaData first, final SlaData second) {
+		final IssueSla issue = new IssueSla();
+		issue.setPriority(priority);
+		issue.setType(type);
+		final List<SlaData> data = new ArrayList<>();
+		data.add(first);
+		data.add(second);
+		issue.setData(data);
+		return issue;
+	}
+}
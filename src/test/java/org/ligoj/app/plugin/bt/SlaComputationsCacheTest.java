@@ -0,0 +1,313 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.function.FailableFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.model.Subscription;
+import org.ligoj.app.plugin.bt.model.BugTrackerConfiguration;
+import org.ligoj.app.plugin.bt.model.Calendar;
+import org.ligoj.app.plugin.bt.model.ChangeItem;
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.ligoj.bootstrap.AbstractDataGeneratorTest;
+
+/**
+ * Test class of {@link SlaComputationsCache}
+ */
+class SlaComputationsCacheTest extends AbstractDataGeneratorTest {
+
+	private final SlaComputationsCache cache = new SlaComputationsCache();
+
+	private final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+
+	/**
+	 * Amount of reads of the changes.
+	 */
+	private final AtomicInteger reads = new AtomicInteger();
+
+	@BeforeEach
+	void setupAutoWired() {
+		cache.processor = new SlaProcessor();
+		cache.processor.identifierHelper = new IdentifierHelper();
+	}
+
+	@Test
+	void get() throws Exception {
+		final BugTrackerConfiguration configuration = newConfiguration(1);
+		final List<ChangeItem> changes = newChanges();
+		final SlaComputations first = cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		Assertions.assertEquals(1, reads.get());
+		Assertions.assertEquals(1, first.getIssues().size());
+
+		// Same configuration and changes, the running SLA continues until now
+		final SlaComputations second = cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		Assertions.assertEquals(1, reads.get());
+		Assertions.assertNotSame(first, second);
+		Assertions.assertEquals(1, second.getIssues().size());
+		final SlaData data = second.getIssues().getFirst().getData().getFirst();
+		Assertions.assertNull(data.getStop());
+		Assertions.assertTrue(data.getDuration() >= first.getIssues().getFirst().getData().getFirst().getDuration());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 0), data.getStart());
+	}
+
+	@Test
+	void getNewChange() throws Exception {
+		final BugTrackerConfiguration configuration = newConfiguration(1);
+		final List<ChangeItem> changes = newChanges();
+		cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		changes.add(newChangeItem(2, 6, getDate(2014, 7, 21, 0, 0, 4)));
+		final SlaComputations process = cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		Assertions.assertEquals(2, reads.get());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 4),
+				process.getIssues().getFirst().getData().getFirst().getStop());
+	}
+
+	/**
+	 * A newer change only folds the changes after the watermark, and the entry of the subscription is replaced.
+	 */
+	@Test
+	void getNewChangeAdvance() throws Exception {
+		final BugTrackerConfiguration configuration = newConfiguration(1);
+		final List<ChangeItem> changes = newChanges();
+		cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		final ChangeItem other = newChangeItem(1, 2, getDate(2014, 7, 21, 0, 0, 5));
+		other.setId(2);
+		changes.add(other);
+		changes.add(newChangeItem(2, 6, getDate(2014, 7, 21, 0, 0, 6)));
+		final SlaComputations advanced = cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		Assertions.assertEquals(1, cache.size());
+		Assertions.assertEquals(2, reads.get());
+
+		// Same result than a full computation
+		final SlaComputations full = cache.processor.process(calendar, changes, configuration.getSlas());
+		Assertions.assertEquals(2, advanced.getIssues().size());
+		for (int index = 0; index < 2; index++) {
+			final SlaData expected = full.getIssues().get(index).getData().getFirst();
+			final SlaData actual = advanced.getIssues().get(index).getData().getFirst();
+			Assertions.assertEquals(expected.getStart(), actual.getStart());
+			Assertions.assertEquals(expected.getStop(), actual.getStop());
+			if (expected.getStop() != null) {
+				Assertions.assertEquals(expected.getDuration(), actual.getDuration());
+			}
+		}
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 6),
+				advanced.getIssues().getFirst().getData().getFirst().getStop());
+		Assertions.assertNull(advanced.getIssues().get(1).getData().getFirst().getStop());
+
+		// Cached again
+		cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		Assertions.assertEquals(2, reads.get());
+		Assertions.assertEquals(1, cache.size());
+	}
+
+	/**
+	 * A change older than the cached one replaces the entry with a full computation.
+	 */
+	@Test
+	void getOlderChange() throws Exception {
+		final BugTrackerConfiguration configuration = newConfiguration(1);
+		final List<ChangeItem> changes = newChanges();
+		cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		final List<ChangeItem> older = changes.subList(0, 2);
+		final SlaComputations process = cache.get(configuration, calendar, older.getLast(), s -> read(older));
+		Assertions.assertEquals(2, reads.get());
+		Assertions.assertEquals(1, cache.size());
+		final SlaData data = process.getIssues().getFirst().getData().getFirst();
+		Assertions.assertNull(data.getStop());
+		Assertions.assertEquals(
+				cache.processor.process(calendar, older, configuration.getSlas()).getIssues().getFirst().getData()
+						.getFirst().getDuration(),
+				data.getDuration());
+	}
+
+	@Test
+	void getNewConfiguration() throws Exception {
+		final BugTrackerConfiguration configuration = newConfiguration(1);
+		final List<ChangeItem> changes = newChanges();
+		cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		configuration.getSlas().getFirst().setThreshold(1000);
+		cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		Assertions.assertEquals(2, reads.get());
+		Assertions.assertEquals(1, cache.size());
+
+		// Another subscription
+		cache.get(newConfiguration(2), calendar, changes.getLast(), s -> read(changes));
+		Assertions.assertEquals(3, reads.get());
+		Assertions.assertEquals(2, cache.size());
+	}
+
+	@Test
+	void getNoLastChange() throws Exception {
+		final BugTrackerConfiguration configuration = newConfiguration(1);
+		final List<ChangeItem> changes = newChanges();
+		cache.get(configuration, calendar, null, s -> read(changes));
+		cache.get(configuration, calendar, null, s -> read(changes));
+		Assertions.assertEquals(2, reads.get());
+	}
+
+	@Test
+	void getEvicted() throws Exception {
+		cache.setMaxSize(1);
+		Assertions.assertEquals(1, cache.getMaxSize());
+		final List<ChangeItem> changes = newChanges();
+		cache.get(newConfiguration(1), calendar, changes.getLast(), s -> read(changes));
+		cache.get(newConfiguration(2), calendar, changes.getLast(), s -> read(changes));
+		cache.get(newConfiguration(2), calendar, changes.getLast(), s -> read(changes));
+		Assertions.assertEquals(2, reads.get());
+
+		// The first subscription has been evicted
+		cache.get(newConfiguration(1), calendar, changes.getLast(), s -> read(changes));
+		Assertions.assertEquals(3, reads.get());
+	}
+
+	@Test
+	void clear() throws Exception {
+		final BugTrackerConfiguration configuration = newConfiguration(1);
+		final List<ChangeItem> changes = newChanges();
+		cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		cache.clear();
+		cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		Assertions.assertEquals(2, reads.get());
+	}
+
+	/**
+	 * Concurrent callers share the same running computation.
+	 */
+	@Test
+	void getConcurrent() throws Exception {
+		final BugTrackerConfiguration configuration = newConfiguration(1);
+		final List<ChangeItem> changes = newChanges();
+		final CountDownLatch release = new CountDownLatch(1);
+		final FailableFunction<List<Sla>, Stream<ChangeItem>, IOException> blocking = s -> {
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return read(changes);
+		};
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<SlaComputations>> results = new ArrayList<>();
+			for (int index = 0; index < 4; index++) {
+				results.add(executor.submit(() -> cache.get(configuration, calendar, null, blocking)));
+			}
+			Thread.sleep(200);
+			release.countDown();
+			for (final Future<SlaComputations> result : results) {
+				Assertions.assertEquals(1, result.get().getIssues().size());
+			}
+			Assertions.assertEquals(1, reads.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void getFailure() throws Exception {
+		final BugTrackerConfiguration configuration = newConfiguration(1);
+		final List<ChangeItem> changes = newChanges();
+		Assertions.assertThrows(IOException.class, () -> cache.get(configuration, calendar, changes.getLast(), s -> {
+			throw new IOException("Unreachable");
+		}));
+
+		// The failure is not cached
+		cache.get(configuration, calendar, changes.getLast(), s -> read(changes));
+		Assertions.assertEquals(1, reads.get());
+	}
+
+	@Test
+	void getFailureConcurrent() throws Exception {
+		final BugTrackerConfiguration configuration = newConfiguration(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final FailableFunction<List<Sla>, Stream<ChangeItem>, IOException> failing = s -> {
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			reads.incrementAndGet();
+			throw new IOException("Unreachable");
+		};
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final Future<SlaComputations> first = executor.submit(() -> cache.get(configuration, calendar, null, failing));
+			final Future<SlaComputations> second = executor.submit(() -> cache.get(configuration, calendar, null, failing));
+			Thread.sleep(200);
+			release.countDown();
+			Assertions.assertInstanceOf(IOException.class,
+					Assertions.assertThrows(ExecutionException.class, first::get).getCause());
+			Assertions.assertInstanceOf(IOException.class,
+					Assertions.assertThrows(ExecutionException.class, second::get).getCause());
+			Assertions.assertEquals(1, reads.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private Stream<ChangeItem> read(final List<ChangeItem> changes) {
+		reads.incrementAndGet();
+		return new ArrayList<>(changes).stream();
+	}
+
+	private List<ChangeItem> newChanges() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newChangeItem(1, 2, getDate(2014, 7, 21, 0, 0, 0)));
+		changes.add(newChangeItem(2, 3, getDate(2014, 7, 21, 0, 0, 2)));
+		changes.add(newChangeItem(3, 2, getDate(2014, 7, 21, 0, 0, 3)));
+		return changes;
+	}
+
+	private ChangeItem newChangeItem(final int from, final int to, final Date created) {
+		final ChangeItem change = new ChangeItem();
+		change.setId(1);
+		change.setFromStatus(from);
+		change.setToStatus(to);
+		change.setStatus(to);
+		change.setType(1);
+		change.setCreated(created);
+		return change;
+	}
+
+	private BugTrackerConfiguration newConfiguration(final int subscription) {
+		final BugTrackerConfiguration configuration = new BugTrackerConfiguration();
+		final Subscription entity = new Subscription();
+		entity.setId(subscription);
+		configuration.setSubscription(entity);
+		final Calendar calendarEntity = new Calendar();
+		calendarEntity.setId(1);
+		configuration.setCalendar(calendarEntity);
+		configuration.setBusinessHours(new ArrayList<>());
+		final Sla sla = new Sla();
+		sla.setName("SLA");
+		sla.setStart("Open");
+		sla.setStartAsSet(Set.of(2));
+		sla.setStop("Closed");
+		sla.setStopAsSet(Set.of(6));
+		sla.setPause("Paused");
+		sla.setPausedAsSet(Set.of(3));
+		sla.setPrioritiesAsSet(Set.of());
+		sla.setResolutionsAsSet(Set.of());
+		sla.setTypesAsSet(Set.of());
+		final List<Sla> slas = new ArrayList<>();
+		slas.add(sla);
+		configuration.setSlas(slas);
+		return configuration;
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.ligoj.bootstrap.MatcherUtil;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+
+/**
+ * Test class of {@link SlaGroupBy}
+ */
+class SlaGroupByTest {
+
+	@Test
+	void getGroupsEmpty() {
+		Assertions.assertTrue(new SlaGroupBy(newSlas(), List.of("assignee")).getGroups().isEmpty());
+	}
+
+	@Test
+	void getGroups() {
+		final SlaGroupBy groupBy = new SlaGroupBy(newSlas(), List.of("assignee"));
+		groupBy.accept(newIssue("user1", 1, newData(10), null));
+		groupBy.accept(newIssue("user1", 2, newData(50), newData(5)));
+		groupBy.accept(newIssue("user0", 1, newData(20), null));
+		groupBy.accept(newIssue(null, 1, null, null));
+		groupBy.accept(newIssue(null, 1, new SlaData(), newData(7)));
+
+		final List<SlaGroup> groups = groupBy.getGroups();
+		Assertions.assertEquals(4, groups.size());
+		final SlaGroup first = groups.getFirst();
+		Assertions.assertEquals(0, first.getSla());
+		Assertions.assertEquals(List.of("user0"), first.getKeys());
+		Assertions.assertEquals(1, first.getIssues());
+		Assertions.assertEquals(1, first.getCount());
+
+		final SlaGroup second = groups.get(1);
+		Assertions.assertEquals(List.of("user1"), second.getKeys());
+		Assertions.assertEquals(2, second.getIssues());
+		Assertions.assertEquals(2, second.getCount());
+		Assertions.assertEquals(10, second.getDurationMin());
+		Assertions.assertEquals(50, second.getDurationMax());
+		Assertions.assertEquals(30, second.getDurationAverage());
+		Assertions.assertEquals(1, second.getBreached());
+		Assertions.assertEquals(0.5d, second.getBreachRatio());
+
+		// No threshold, null values first
+		final SlaGroup third = groups.get(2);
+		Assertions.assertEquals(1, third.getSla());
+		Assertions.assertEquals(Arrays.asList((Object) null), third.getKeys());
+		Assertions.assertEquals(2, third.getIssues());
+		Assertions.assertEquals(1, third.getCount());
+		Assertions.assertEquals(7, third.getDurationAverage());
+		Assertions.assertNull(third.getBreachRatio());
+		Assertions.assertEquals(List.of("user1"), groups.get(3).getKeys());
+	}
+
+	@Test
+	void getGroupsTwoDimensions() {
+		final SlaGroupBy groupBy = new SlaGroupBy(newSlas(), List.of("type", "priority"));
+		groupBy.accept(newIssue("user1", 2, newData(10), null));
+		groupBy.accept(newIssue("user1", 1, newData(50), null));
+		groupBy.accept(newIssue("user0", 1, newData(20), null));
+		final List<SlaGroup> groups = groupBy.getGroups();
+		Assertions.assertEquals(2, groups.size());
+		Assertions.assertEquals(List.of(1, 1), groups.getFirst().getKeys());
+		Assertions.assertEquals(2, groups.getFirst().getCount());
+		Assertions.assertEquals(List.of(2, 1), groups.get(1).getKeys());
+	}
+
+	@Test
+	void collector() {
+		final List<Sla> slas = newSlas();
+		final List<String> dimensions = List.of("assignee", "type");
+		final List<IssueSla> issues = IntStream.range(0, 1000)
+				.mapToObj(i -> newIssue("user" + i % 50, i % 3, newData(i * 100L), newData(i))).toList();
+		final SlaGroupBy sequential = new SlaGroupBy(slas, dimensions);
+		issues.forEach(sequential);
+		final List<SlaGroup> expected = sequential.getGroups();
+		final List<SlaGroup> parallel = issues.parallelStream().collect(SlaGroupBy.collector(slas, dimensions))
+				.getGroups();
+		Assertions.assertEquals(300, parallel.size());
+		for (int index = 0; index < parallel.size(); index++) {
+			Assertions.assertEquals(expected.get(index).getSla(), parallel.get(index).getSla());
+			Assertions.assertEquals(expected.get(index).getKeys(), parallel.get(index).getKeys());
+			Assertions.assertEquals(expected.get(index).getIssues(), parallel.get(index).getIssues());
+			Assertions.assertEquals(expected.get(index).getCount(), parallel.get(index).getCount());
+			Assertions.assertEquals(expected.get(index).getDurationMin(), parallel.get(index).getDurationMin());
+			Assertions.assertEquals(expected.get(index).getDurationMax(), parallel.get(index).getDurationMax());
+			Assertions.assertEquals(expected.get(index).getDurationAverage(),
+					parallel.get(index).getDurationAverage());
+			Assertions.assertEquals(expected.get(index).getBreached(), parallel.get(index).getBreached());
+		}
+	}
+
+	@Test
+	void invalidDimension() {
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> new SlaGroupBy(newSlas(), List.of("pkey"))), "by", "NotSupported");
+	}
+
+	@Test
+	void invalidDimensions() {
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> new SlaGroupBy(newSlas(), List.of())), "by", "Size");
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> new SlaGroupBy(newSlas(), List.of("type", "priority", "status"))), "by", "Size");
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> new SlaGroupBy(newSlas(), null)), "by", "Size");
+	}
+
+	private List<Sla> newSlas() {
+		final List<Sla> slas = new ArrayList<>();
+		slas.add(new Sla());
+		slas.add(new Sla());
+		slas.getFirst().setThreshold(40);
+		return slas;
+	}
+
+	private SlaData newData(final long duration) {
+		final SlaData data = new SlaData();
+		data.setStart(new Date());
+		data.setDuration(duration);
+		return data;
+	}
+
+	private IssueSla newIssue(final String assignee, final int type, final SlaData first, final SlaData second) {
+		final IssueSla issue = new IssueSla();
+		issue.setAssignee(assignee);
+		issue.setType(type);
+		issue.setPriority(1);
+		final List<SlaData> data = new ArrayList<>();
+		data.add(first);
+		data.add(second);
+		issue.setData(data);
+		return issue;
+	}
+}
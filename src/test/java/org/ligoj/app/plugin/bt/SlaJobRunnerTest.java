@@ -0,0 +1,296 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang3.function.FailableFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ligoj.bootstrap.core.resource.BusinessException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import jakarta.persistence.EntityNotFoundException;
+
+/**
+ * Test class of {@link SlaJobRunner}
+ */
+class SlaJobRunnerTest {
+
+	private final SlaJobRunner runner = new SlaJobRunner();
+
+	@BeforeEach
+	void start() {
+		runner.start();
+	}
+
+	@AfterEach
+	void stop() {
+		runner.stop();
+	}
+
+	@Test
+	void submit() throws InterruptedException {
+		final SlaComputations computations = new SlaComputations();
+		final SlaJob job = runner.submit(1, progress -> {
+			progress.addChange();
+			progress.addIssue();
+			return computations;
+		});
+		Assertions.assertEquals(1, job.getSubscription());
+		Assertions.assertNotNull(job.getSubmitted());
+		Assertions.assertSame(job, runner.get(job.getId()));
+
+		await(job);
+		Assertions.assertEquals(SlaJob.Status.DONE, job.getStatus());
+		Assertions.assertEquals(1, job.getChanges());
+		Assertions.assertEquals(1, job.getIssues());
+		Assertions.assertNull(job.getError());
+		Assertions.assertSame(computations, runner.getResult(job.getId()));
+
+		// No effect on a completed job
+		runner.cancel(job.getId());
+		Assertions.assertEquals(SlaJob.Status.DONE, job.getStatus());
+	}
+
+	@Test
+	void submitFailure() throws InterruptedException {
+		final SlaJob job = runner.submit(1, progress -> {
+			throw new IOException("Unreachable");
+		});
+		await(job);
+		Assertions.assertEquals(SlaJob.Status.FAILED, job.getStatus());
+		Assertions.assertEquals("Unreachable", job.getError());
+		final String id = job.getId();
+		Assertions.assertThrows(BusinessException.class, () -> runner.getResult(id));
+	}
+
+	@Test
+	void submitSecurityContext() throws InterruptedException {
+		final AtomicReference<String> user = new AtomicReference<>();
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("junit", null));
+		try {
+			await(runner.submit(1, progress -> {
+				user.set(SecurityContextHolder.getContext().getAuthentication().getName());
+				return new SlaComputations();
+			}));
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+		Assertions.assertEquals("junit", user.get());
+	}
+
+	@Test
+	void submitLimit() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<SlaJob> pending = new ArrayList<>();
+		for (int index = 0; index < SlaJobRunner.MAX_PENDING; index++) {
+			pending.add(runner.submit(1, progress -> {
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return new SlaComputations();
+			}));
+		}
+		Assertions.assertThrows(BusinessException.class, () -> runner.submit(2, progress -> new SlaComputations()));
+		release.countDown();
+		for (final SlaJob job : pending) {
+			await(job);
+		}
+
+		// Accepted once the pending jobs are completed
+		await(runner.submit(2, progress -> new SlaComputations()));
+	}
+
+	@Test
+	void cancelRunning() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final SlaJob job = runner.submit(1, progress -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			while (true) {
+				progress.checkCancelled();
+				progress.addChange();
+				Thread.onSpinWait();
+			}
+		});
+		started.await();
+		Assertions.assertEquals(SlaJob.Status.RUNNING, job.getStatus());
+		final String id = job.getId();
+		Assertions.assertThrows(BusinessException.class, () -> runner.getResult(id));
+
+		// Cancelling until the job stops
+		runner.cancel(id);
+		Assertions.assertEquals(SlaJob.Status.CANCELLING, job.getStatus());
+		Assertions.assertNull(job.getCompleted());
+		release.countDown();
+		await(job);
+		Assertions.assertEquals(SlaJob.Status.CANCELLED, job.getStatus());
+		Assertions.assertTrue(job.getProgress().isCancelled());
+		Assertions.assertThrows(BusinessException.class, () -> runner.getResult(id));
+	}
+
+	@Test
+	void cancelQueued() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final FailableFunction<SlaProgress, SlaComputations, IOException> blocking = progress -> {
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new SlaComputations();
+		};
+		final List<SlaJob> running = new ArrayList<>();
+		for (int index = 0; index < SlaJobRunner.THREADS; index++) {
+			running.add(runner.submit(1, blocking));
+		}
+		final AtomicBoolean started = new AtomicBoolean();
+		final SlaJob queued = runner.submit(1, progress -> {
+			started.set(true);
+			return new SlaComputations();
+		});
+		Assertions.assertEquals(SlaJob.Status.QUEUED, queued.getStatus());
+
+		// Cancelled immediately, never started
+		runner.cancel(queued.getId());
+		Assertions.assertEquals(SlaJob.Status.CANCELLED, queued.getStatus());
+		Assertions.assertNotNull(queued.getCompleted());
+		release.countDown();
+		for (final SlaJob job : running) {
+			await(job);
+			Assertions.assertEquals(SlaJob.Status.DONE, job.getStatus());
+		}
+		Assertions.assertFalse(started.get());
+	}
+
+	@Test
+	void getUnknown() {
+		Assertions.assertThrows(EntityNotFoundException.class, () -> runner.get("any"));
+		Assertions.assertThrows(EntityNotFoundException.class, () -> runner.cancel("any"));
+	}
+
+	@Test
+	void purge() throws InterruptedException {
+		final SlaJob job = runner.submit(1, progress -> new SlaComputations());
+		await(job);
+
+		// Completed after this time, kept
+		runner.purge(job.getCompleted().getTime());
+		Assertions.assertSame(job, runner.get(job.getId()));
+
+		runner.purge(job.getCompleted().getTime() + 1);
+		final String id = job.getId();
+		Assertions.assertEquals("service:bt:sla-job-expired",
+				Assertions.assertThrows(BusinessException.class, () -> runner.get(id)).getMessage());
+		Assertions.assertThrows(BusinessException.class, () -> runner.getResult(id));
+
+		// Forgotten after another retention
+		runner.purge(System.currentTimeMillis() + 1);
+		Assertions.assertThrows(EntityNotFoundException.class, () -> runner.get(id));
+	}
+
+	@Test
+	void evict() throws InterruptedException {
+		final List<SlaJob> completed = new ArrayList<>();
+		for (int index = 0; index < 3; index++) {
+			final SlaJob job = runner.submit(1, progress -> new SlaComputations());
+			await(job);
+			runner.getResult(job.getId());
+			completed.add(job);
+			Thread.sleep(2);
+		}
+		final SlaJob other = runner.submit(2, progress -> new SlaComputations());
+		await(other);
+
+		// Only the oldest completed job of this subscription is removed
+		runner.evict(1, 2);
+		final String id = completed.getFirst().getId();
+		Assertions.assertThrows(BusinessException.class, () -> runner.get(id));
+		Assertions.assertSame(completed.get(1), runner.get(completed.get(1).getId()));
+		Assertions.assertSame(completed.get(2), runner.get(completed.get(2).getId()));
+		Assertions.assertSame(other, runner.get(other.getId()));
+	}
+
+	@Test
+	void completeEvict() throws InterruptedException {
+		final List<SlaJob> completed = new ArrayList<>();
+		for (int index = 0; index <= SlaJobRunner.MAX_RETAINED; index++) {
+			final SlaJob job = runner.submit(1, progress -> new SlaComputations());
+			await(job);
+			runner.getResult(job.getId());
+			completed.add(job);
+			Thread.sleep(2);
+		}
+
+		// The oldest completed job is removed by the completion of a new one
+		final String id = completed.getFirst().getId();
+		Assertions.assertThrows(BusinessException.class, () -> runner.get(id));
+		Assertions.assertSame(completed.getLast(), runner.get(completed.getLast().getId()));
+	}
+
+	/**
+	 * The results not yet fetched are kept beyond the retained amount, the failed jobs are not.
+	 */
+	@Test
+	void evictNotFetched() throws InterruptedException {
+		final List<SlaJob> completed = new ArrayList<>();
+		for (int index = 0; index < 3; index++) {
+			final SlaJob job = runner.submit(1, progress -> new SlaComputations());
+			await(job);
+			completed.add(job);
+			Thread.sleep(2);
+		}
+		final SlaJob failed = runner.submit(1, progress -> {
+			throw new IOException("Unreachable");
+		});
+		await(failed);
+		Thread.sleep(2);
+		final SlaJob last = runner.submit(1, progress -> new SlaComputations());
+		await(last);
+		runner.getResult(last.getId());
+
+		runner.evict(1, 0);
+		for (final SlaJob job : completed) {
+			Assertions.assertSame(job, runner.get(job.getId()));
+			Assertions.assertNotNull(runner.getResult(job.getId()));
+		}
+		final String id = failed.getId();
+		Assertions.assertThrows(BusinessException.class, () -> runner.get(id));
+		final String lastId = last.getId();
+		Assertions.assertThrows(BusinessException.class, () -> runner.get(lastId));
+
+		// Fetched now
+		runner.evict(1, 1);
+		Assertions.assertSame(completed.getLast(), runner.get(completed.getLast().getId()));
+		final String first = completed.getFirst().getId();
+		Assertions.assertThrows(BusinessException.class, () -> runner.get(first));
+	}
+
+	/**
+	 * Wait for the completion of the given job.
+	 */
+	private void await(final SlaJob job) throws InterruptedException {
+		final long timeout = System.currentTimeMillis() + 10000;
+		while (job.getCompleted() == null) {
+			Assertions.assertTrue(System.currentTimeMillis() < timeout, "Job not completed");
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.bt.model.ChangeItem;
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.apache.commons.lang3.time.DateUtils;
+
+/**
+ * Test class of {@link SlaMonitor}
+ */
+class SlaMonitorTest {
+
+	private static final long THRESHOLD = 60000;
+
+	private final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+
+	private final List<SlaBreach> breaches = new ArrayList<>();
+
+	private SlaMonitor monitor;
+
+	private long now;
+
+	@BeforeEach
+	void setup() {
+		monitor = new SlaMonitor();
+		monitor.processor = new SlaProcessor();
+		monitor.addListener(breaches::add);
+		now = System.currentTimeMillis();
+	}
+
+	@AfterEach
+	void stop() {
+		monitor.stop();
+	}
+
+	@Test
+	void onStatusChange() {
+		monitor.monitor(1, calendar, newSla(), null);
+		Assertions.assertTrue(monitor.isMonitored(1));
+		monitor.onStatusChange(1, newChangeItem(10, 1, 2, now - 10000));
+		monitor.advance(now);
+		Assertions.assertTrue(breaches.isEmpty());
+		Assertions.assertEquals(1, monitor.getIssueCount(1));
+		Assertions.assertEquals(1, monitor.getBreachCount(1));
+
+		// Weekends are not business days
+		monitor.advance(now + 4 * DateUtils.MILLIS_PER_DAY);
+		Assertions.assertEquals(1, breaches.size());
+		final SlaBreach breach = breaches.getFirst();
+		Assertions.assertEquals(1, breach.getSubscription());
+		Assertions.assertEquals(10, breach.getId());
+		Assertions.assertEquals("P-10", breach.getPkey());
+		Assertions.assertEquals(0, breach.getSla());
+		Assertions.assertTrue(breach.getBreach().getTime() >= now - 10000 + THRESHOLD);
+
+		// Fired only once, and forgotten
+		Assertions.assertEquals(0, monitor.getBreachCount(1));
+		monitor.advance(now + 8 * DateUtils.MILLIS_PER_DAY);
+		Assertions.assertEquals(1, breaches.size());
+	}
+
+	@Test
+	void onStatusChangeResolved() {
+		monitor.monitor(1, calendar, newSla(), null);
+		monitor.onStatusChange(1, newChangeItem(10, 1, 2, now - 10000));
+		Assertions.assertEquals(1, monitor.getBreachCount(1));
+
+		// Resolved issue, the state and the breach are dropped
+		final ChangeItem resolved = newChangeItem(10, 2, 4, now - 5000);
+		resolved.setResolution(1);
+		monitor.onStatusChange(1, resolved);
+		Assertions.assertEquals(0, monitor.getIssueCount(1));
+		Assertions.assertEquals(0, monitor.getBreachCount(1));
+		monitor.advance(now + 4 * DateUtils.MILLIS_PER_DAY);
+		Assertions.assertTrue(breaches.isEmpty());
+	}
+
+	@Test
+	void onStatusChangePaused() {
+		monitor.monitor(1, calendar, newSla(), null);
+		monitor.onStatusChange(1, newChangeItem(10, 1, 2, now - 10000));
+		monitor.onStatusChange(1, newChangeItem(11, 1, 2, now - 9000));
+		monitor.onStatusChange(1, newChangeItem(10, 2, 3, now - 5000));
+		monitor.advance(now + 4 * DateUtils.MILLIS_PER_DAY);
+
+		// Only the running issue is breached
+		Assertions.assertEquals(1, breaches.size());
+		Assertions.assertEquals(11, breaches.getFirst().getId());
+
+		// Resumed issue, the breach is rescheduled
+		monitor.onStatusChange(1, newChangeItem(10, 3, 2, now - 4000));
+		monitor.advance(now + 8 * DateUtils.MILLIS_PER_DAY);
+		Assertions.assertEquals(2, breaches.size());
+		Assertions.assertEquals(10, breaches.getLast().getId());
+	}
+
+	@Test
+	void onStatusChangeStopped() {
+		monitor.monitor(1, calendar, newSla(), null);
+		monitor.onStatusChange(1, newChangeItem(10, 1, 2, now - 10000));
+		monitor.onStatusChange(1, newChangeItem(10, 2, 6, now - 5000));
+		monitor.advance(now + 4 * DateUtils.MILLIS_PER_DAY);
+		Assertions.assertTrue(breaches.isEmpty());
+	}
+
+	@Test
+	void onStatusChangeNotMonitored() {
+		monitor.monitor(1, calendar, newSla(), null);
+		monitor.onStatusChange(2, newChangeItem(10, 1, 2, now - 10000));
+		monitor.advance(now + 4 * DateUtils.MILLIS_PER_DAY);
+		Assertions.assertTrue(breaches.isEmpty());
+		Assertions.assertFalse(monitor.isMonitored(2));
+		Assertions.assertEquals(0, monitor.getIssueCount(2));
+		Assertions.assertEquals(0, monitor.getBreachCount(2));
+	}
+
+	@Test
+	void unmonitor() {
+		monitor.monitor(1, calendar, newSla(), null);
+		monitor.onStatusChange(1, newChangeItem(10, 1, 2, now - 10000));
+		monitor.unmonitor(1);
+		Assertions.assertFalse(monitor.isMonitored(1));
+		monitor.advance(now + 4 * DateUtils.MILLIS_PER_DAY);
+		Assertions.assertTrue(breaches.isEmpty());
+	}
+
+	@Test
+	void monitorCheckpoint() {
+		final SlaCheckpoint checkpoint = new SlaCheckpoint();
+		monitor.processor.identifierHelper = new IdentifierHelper();
+		monitor.processor.process(calendar, List.of(newChangeItem(10, 1, 2, now - 10000)).iterator(), newSla(),
+				checkpoint);
+		monitor.monitor(1, calendar, newSla(), checkpoint);
+		monitor.advance(now + 4 * DateUtils.MILLIS_PER_DAY);
+		Assertions.assertEquals(1, breaches.size());
+		Assertions.assertEquals(10, breaches.getFirst().getId());
+	}
+
+	@Test
+	void monitorCheckpointResolved() {
+		final SlaCheckpoint checkpoint = new SlaCheckpoint();
+		monitor.processor.identifierHelper = new IdentifierHelper();
+		final ChangeItem resolved = newChangeItem(11, 1, 2, now - 9000);
+		resolved.setResolution(1);
+		monitor.processor.process(calendar, List.of(newChangeItem(10, 1, 2, now - 10000), resolved).iterator(),
+				newSla(), checkpoint);
+		monitor.monitor(1, calendar, newSla(), checkpoint);
+		Assertions.assertEquals(1, monitor.getIssueCount(1));
+		monitor.advance(now + 4 * DateUtils.MILLIS_PER_DAY);
+		Assertions.assertEquals(1, breaches.size());
+		Assertions.assertEquals(10, breaches.getFirst().getId());
+	}
+
+	/**
+	 * The changes notified between the registration and the monitoring are replayed, only after the watermark.
+	 */
+	@Test
+	void register() {
+		monitor.register(1, calendar);
+		Assertions.assertTrue(monitor.isMonitored(1));
+
+		// Changes notified while the initial state is computed
+		final ChangeItem folded = newChangeItem(10, 1, 2, now - 10000);
+		monitor.onStatusChange(1, folded);
+		monitor.onStatusChange(1, newChangeItem(12, 1, 2, now - 10000));
+		monitor.onStatusChange(1, newChangeItem(11, 1, 2, now - 5000));
+		Assertions.assertEquals(0, monitor.getIssueCount(1));
+		Assertions.assertEquals(0, monitor.getBreachCount(1));
+
+		final SlaCheckpoint checkpoint = new SlaCheckpoint();
+		monitor.processor.identifierHelper = new IdentifierHelper();
+		monitor.processor.process(calendar, List.of(folded).iterator(), newSla(), checkpoint);
+		monitor.monitor(1, calendar, newSla(), checkpoint);
+
+		// The change of the issue 12 is at the watermark and with a greater identifier, so not folded
+		Assertions.assertEquals(3, monitor.getIssueCount(1));
+		Assertions.assertEquals(3, monitor.getBreachCount(1));
+
+		// Notified changes are not buffered anymore
+		final ChangeItem resolved = newChangeItem(11, 2, 6, now - 4000);
+		resolved.setResolution(1);
+		monitor.onStatusChange(1, resolved);
+		Assertions.assertEquals(2, monitor.getIssueCount(1));
+		monitor.advance(now + 4 * DateUtils.MILLIS_PER_DAY);
+		Assertions.assertEquals(2, breaches.size());
+	}
+
+	/**
+	 * The changes already folded in the checkpoint are not replayed.
+	 */
+	@Test
+	void registerFolded() {
+		monitor.register(1, calendar);
+		final ChangeItem created = newChangeItem(10, 1, 2, now - 10000);
+		final ChangeItem resolved = newChangeItem(10, 2, 6, now - 5000);
+		resolved.setResolution(1);
+		monitor.onStatusChange(1, created);
+		monitor.onStatusChange(1, resolved);
+		monitor.onStatusChange(1, newChangeItem(9, 1, 2, now - 8000));
+
+		final SlaCheckpoint checkpoint = new SlaCheckpoint();
+		monitor.processor.identifierHelper = new IdentifierHelper();
+		monitor.processor.process(calendar, List.of(created, resolved).iterator(), newSla(), checkpoint);
+		monitor.monitor(1, calendar, newSla(), checkpoint);
+		Assertions.assertEquals(0, monitor.getIssueCount(1));
+		Assertions.assertEquals(0, monitor.getBreachCount(1));
+	}
+
+	/**
+	 * A registration with another calendar is replaced, and its buffered changes are dropped.
+	 */
+	@Test
+	void registerReplaced() {
+		monitor.register(1, calendar);
+		monitor.onStatusChange(1, newChangeItem(10, 1, 2, now - 10000));
+		monitor.monitor(1, new BusinessCalendar(new ArrayList<>(), new ArrayList<>()), newSla(), null);
+		Assertions.assertEquals(0, monitor.getIssueCount(1));
+		monitor.onStatusChange(1, newChangeItem(11, 1, 2, now - 5000));
+		Assertions.assertEquals(1, monitor.getIssueCount(1));
+	}
+
+	@Test
+	void unmonitorRegistered() {
+		monitor.register(1, calendar);
+		monitor.unmonitor(1);
+		Assertions.assertFalse(monitor.isMonitored(1));
+		monitor.onStatusChange(1, newChangeItem(10, 1, 2, now - 10000));
+		monitor.monitor(1, calendar, newSla(), null);
+		Assertions.assertEquals(0, monitor.getIssueCount(1));
+	}
+
+	@Test
+	void start() {
+		monitor.start();
+		monitor.monitor(1, calendar, newSla(), null);
+		monitor.onStatusChange(1, newChangeItem(10, 1, 2, now - 10000));
+		Assertions.assertTrue(breaches.isEmpty());
+	}
+
+	private ChangeItem newChangeItem(final int id, final int from, final int to, final long created) {
+		final ChangeItem changeItem = new ChangeItem();
+		changeItem.setId(id);
+		changeItem.setPkey("P-" + id);
+		changeItem.setCreated(new Date(created));
+		changeItem.setFromStatus(from);
+		changeItem.setToStatus(to);
+		changeItem.setStatus(to);
+		changeItem.setType(1);
+		return changeItem;
+	}
+
+	/**
+	 * Start : 2, Pause : 3, Stop : 6
+	 */
+	private List<Sla> newSla() {
+		final Sla sla = new Sla();
+		sla.setStartAsSet(Set.of(2));
+		sla.setPausedAsSet(Set.of(3));
+		sla.setStopAsSet(Set.of(6));
+		sla.setTypesAsSet(Collections.emptySet());
+		sla.setPrioritiesAsSet(Collections.emptySet());
+		sla.setResolutionsAsSet(Collections.emptySet());
+		sla.setThreshold(THRESHOLD);
+		return new ArrayList<>(List.of(sla));
+	}
+}
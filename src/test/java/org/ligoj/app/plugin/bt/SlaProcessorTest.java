@@ -3,11 +3,19 @@
  */
 package org.ligoj.app.plugin.bt;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.junit.jupiter.api.Assertions;
@@ -16,6 +24,11 @@ import org.junit.jupiter.api.Test;
 import org.ligoj.app.plugin.bt.model.ChangeItem;
 import org.ligoj.app.plugin.bt.model.Sla;
 import org.ligoj.bootstrap.AbstractDataGeneratorTest;
+import org.ligoj.bootstrap.MatcherUtil;
+import org.ligoj.bootstrap.core.json.TableItem;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * {@link SlaProcessor} test class.
@@ -97,6 +110,42 @@ class SlaProcessorTest extends AbstractDataGeneratorTest {
 		Assertions.assertEquals(4000, process.getIssues().getFirst().getData().getFirst().getDuration());
 	}
 
+	/**
+	 * The creation change has no origin status, and a later change without origin status is accepted from the
+	 * current status.
+	 */
+	@Test
+	void processNoFromStatus() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newChangeItem(null, 1, 0)); // Creation
+		changes.add(newChangeItem(1, 2, 1)); // Start [2s]
+		changes.add(newChangeItem(null, 6, 2)); // Stop
+
+		final SlaComputations process = processor.process(new ArrayList<>(), changes, new ArrayList<>(), newSla());
+		Assertions.assertEquals(1, process.getIssues().size());
+		Assertions.assertEquals(2000, process.getIssues().getFirst().getData().getFirst().getDuration());
+		Assertions.assertEquals(1, process.getTransitions().getCount(1, 2));
+		Assertions.assertEquals(1, process.getTransitions().getCount(2, 6));
+	}
+
+	/**
+	 * The changes without origin status are accepted by the parallel computation.
+	 */
+	@Test
+	void processNoFromStatusParallel() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newChangeItem(null, 1, 0)); // Creation
+		changes.add(newChangeItem(1, 2, 1)); // Start [2s]
+		changes.add(newChangeItem(null, 6, 2)); // Stop
+
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+		final SlaComputations process = processor.process(calendar, changes, newSla(), ForkJoinPool.commonPool());
+		Assertions.assertEquals(1, process.getIssues().size());
+		Assertions.assertEquals(2000, process.getIssues().getFirst().getData().getFirst().getDuration());
+		Assertions.assertEquals(1, process.getTransitions().getCount(1, 2));
+		Assertions.assertEquals(1, process.getTransitions().getCount(2, 6));
+	}
+
 	/**
 	 * The due date is after all changes and would be shifted with all paused durations.
 	 */
@@ -251,6 +300,693 @@ class SlaProcessorTest extends AbstractDataGeneratorTest {
 		Assertions.assertTrue(slaData.getRevisedDueDateDistance() < -47800000000L);
 	}
 
+	/**
+	 * Several SLA sharing the same changes are computed as if they were alone.
+	 */
+	@Test
+	void processSeveralSlas() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		final Date dueDate = getDate(2014, 7, 21, 0, 0, 5);
+		changes.add(newChangeItem(1, 3, 0, dueDate)); // Ignored pause since timer is not started
+		changes.add(newChangeItem(3, 2, 1, dueDate)); // Start [2s]
+		changes.add(newChangeItem(2, 3, 2, dueDate)); // Pause
+		changes.add(newChangeItem(3, 4, 3, dueDate)); // Restart [2s]
+		changes.add(newChangeItem(4, 5, 4, dueDate)); // Pause
+		changes.add(newChangeItem(5, 7, 5, dueDate)); // Ignored, continue pause
+		changes.add(newChangeItem(7, 6, 6, dueDate)); // Stopped
+
+		final List<Sla> slas = newSla();
+		slas.addAll(newSla());
+		final Sla sla = slas.get(1);
+		sla.getStartAsSet().add(5);
+		sla.getPausedAsSet().remove(5);
+		sla.getStopAsSet().add(7);
+		slas.addAll(newSla());
+		slas.get(2).getTypesAsSet().add(2);
+
+		final SlaComputations process = processor.process(new ArrayList<>(), changes, new ArrayList<>(), slas);
+		Assertions.assertEquals(1, process.getIssues().size());
+		Assertions.assertEquals(3, process.getSlaConfigurations().size());
+		final List<SlaData> data = process.getIssues().getFirst().getData();
+		Assertions.assertEquals(3, data.size());
+
+		// Pause : 3, 5, Start : 2, 4, Stop : 6
+		Assertions.assertEquals(4000, data.getFirst().getDuration());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 7), data.getFirst().getRevisedDueDate());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 12), data.getFirst().getStop());
+
+		// Pause : 3, Start : 2, 4, 5, Stop : 6, 7
+		Assertions.assertEquals(6000, data.get(1).getDuration());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 7), data.get(1).getRevisedDueDate());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 10), data.get(1).getStop());
+
+		// Not applicable type
+		Assertions.assertNull(data.get(2));
+	}
+
+	/**
+	 * Issues computed in parallel have the same SLA data and order than the sequential computation.
+	 */
+	@Test
+	void processParallel() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		final Date dueDate = getDate(2014, 7, 21, 0, 0, 9);
+		for (int shift = 0; shift < 8; shift++) {
+			for (int issue = 0; issue < 50; issue++) {
+				// Each issue has its own workflow, always stopped at the end
+				final ChangeItem change = newChangeItem(shift == 0 ? 1 : toStatus(issue, shift - 1),
+						toStatus(issue, shift), shift, dueDate);
+				change.setId(issue);
+
+				// The attributes of the issue change with its workflow, the last ones are kept
+				change.setPriority(1 + (issue + shift) % 3);
+				change.setType(1 + (issue * shift) % 2);
+				change.setResolution(shift == 7 ? 1 + issue % 4 : null);
+				changes.add(change);
+			}
+		}
+		final List<Sla> slas = newSla();
+		slas.addAll(newSla());
+		slas.get(1).getStartAsSet().add(5);
+		slas.get(1).setResolutionsAsSet(Set.of(4));
+
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+		final SlaComputations sequential = processor.process(calendar, changes, slas);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final SlaComputations parallel = processor.process(calendar, changes, slas, pool);
+			Assertions.assertEquals(50, parallel.getIssues().size());
+			for (int issue = 0; issue < 50; issue++) {
+				final IssueSla expected = sequential.getIssues().get(issue);
+				final IssueSla actual = parallel.getIssues().get(issue);
+				Assertions.assertEquals(issue, actual.getId());
+				Assertions.assertEquals(6, actual.getStatus());
+				Assertions.assertEquals(1 + issue % 4, actual.getResolution());
+				Assertions.assertEquals(expected.getStatus(), actual.getStatus());
+				Assertions.assertEquals(expected.getResolution(), actual.getResolution());
+				Assertions.assertEquals(expected.getPriority(), actual.getPriority());
+				Assertions.assertEquals(expected.getType(), actual.getType());
+				Assertions.assertEquals(expected.getStatusCounter(), actual.getStatusCounter());
+
+				// The time of the last status runs until now
+				Assertions.assertEquals(getTimeInStatus(expected, 6), getTimeInStatus(actual, 6));
+				// The second SLA only applies to the issues resolved as 4
+				Assertions.assertEquals(issue % 4 == 3, actual.getData().get(1) != null);
+				for (int sla = 0; sla < 2; sla++) {
+					if (expected.getData().get(sla) == null) {
+						Assertions.assertNull(actual.getData().get(sla));
+						continue;
+					}
+					Assertions.assertEquals(expected.getData().get(sla).getDuration(), actual.getData().get(sla).getDuration());
+					Assertions.assertEquals(expected.getData().get(sla).getStart(), actual.getData().get(sla).getStart());
+					Assertions.assertEquals(expected.getData().get(sla).getStop(), actual.getData().get(sla).getStop());
+					Assertions.assertEquals(expected.getData().get(sla).getRevisedDueDate(),
+							actual.getData().get(sla).getRevisedDueDate());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Changes read from a stream give the same SLA data than a list.
+	 */
+	@Test
+	void processStream() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		final Date dueDate = getDate(2014, 7, 21, 0, 0, 5);
+		changes.add(newChangeItem(1, 2, 0, dueDate)); // Start [2s]
+		changes.add(newChangeItem(2, 3, 1, dueDate)); // Pause, fixed to 4 by the next change [2s]
+		changes.add(newChangeItem(4, 4, 2, dueDate)); // Broken transition, continue [2s]
+		changes.add(newChangeItem(4, 6, 3, dueDate)); // Stopped
+
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+		final SlaComputations process = processor.process(calendar, changes.stream(), newSla());
+		Assertions.assertEquals(1, process.getIssues().size());
+		Assertions.assertEquals(1, process.getSlaConfigurations().size());
+		final IssueSla issue = process.getIssues().getFirst();
+		Assertions.assertEquals(2, issue.getStatusCounter().get(4));
+		Assertions.assertEquals(1, issue.getStatusCounter().get(6));
+		final SlaData data = issue.getData().getFirst();
+		Assertions.assertEquals(6000, data.getDuration());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 0), data.getStart());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 6), data.getStop());
+		Assertions.assertEquals(-1000, data.getRevisedDueDateDistance());
+	}
+
+	/**
+	 * The progress counts the folded changes and the completed issues.
+	 */
+	@Test
+	void processProgress() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newChangeItem(1, 2, 0)); // Start
+		changes.add(newChangeItem(2, 3, 1)); // Pause
+		changes.add(newChangeItem(3, 6, 2)); // Stop
+
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+		final SlaProgress progress = new SlaProgress();
+		final SlaComputations process = processor.process(calendar, changes.iterator(), newSla(), null, progress);
+		Assertions.assertEquals(1, process.getIssues().size());
+		Assertions.assertEquals(3, progress.getChanges());
+		Assertions.assertEquals(1, progress.getIssues());
+		Assertions.assertFalse(progress.isCancelled());
+	}
+
+	/**
+	 * A cancelled computation stops before the next change.
+	 */
+	@Test
+	void processCancelled() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newChangeItem(1, 2, 0)); // Start
+		changes.add(newChangeItem(2, 6, 1)); // Stop
+
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+		final SlaProgress progress = new SlaProgress();
+		final Iterator<ChangeItem> iterator = changes.iterator();
+		final List<Sla> slas = newSla();
+		progress.cancel();
+		Assertions.assertThrows(CancellationException.class,
+				() -> processor.process(calendar, iterator, slas, null, progress));
+		Assertions.assertEquals(0, progress.getChanges());
+		Assertions.assertEquals(0, progress.getIssues());
+	}
+
+	/**
+	 * A computation resumed from a persisted checkpoint gives the same SLA data than a full computation.
+	 */
+	@Test
+	void processCheckpoint() throws IOException {
+		final List<ChangeItem> changes = new ArrayList<>();
+		final Date dueDate = getDate(2014, 7, 21, 0, 0, 5);
+		changes.add(newChangeItem(1, 2, 0, dueDate)); // Start [2s]
+		changes.add(newChangeItem(2, 3, 1, dueDate)); // Pause
+		changes.add(newChangeItem(3, 5, 2, dueDate)); // Continue pause
+		changes.add(newChangeItem(5, 4, 3, dueDate)); // Restart [2s]
+		changes.add(newChangeItem(4, 6, 4, dueDate)); // Stopped
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+
+		// First run
+		final SlaCheckpoint checkpoint = new SlaCheckpoint();
+		final SlaComputations first = processor.process(calendar, changes.subList(0, 3).iterator(), newSla(), checkpoint);
+		Assertions.assertNull(first.getIssues().getFirst().getData().getFirst().getStop());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 4), checkpoint.getWatermark());
+		Assertions.assertEquals(4000, checkpoint.getCumulatedElapsed());
+		Assertions.assertEquals(1, checkpoint.getIssues().size());
+
+		// Second run from the persisted checkpoint
+		final ObjectMapper mapper = new ObjectMapper();
+		final SlaCheckpoint persisted = mapper.readValue(mapper.writeValueAsString(checkpoint), SlaCheckpoint.class);
+		final SlaComputations process = processor.process(calendar, changes.subList(3, 5).iterator(), newSla(),
+				persisted);
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 8), persisted.getWatermark());
+		Assertions.assertEquals(1, process.getIssues().size());
+		final IssueSla issue = process.getIssues().getFirst();
+		Assertions.assertEquals(5, issue.getStatusCounter().size());
+		final SlaData data = issue.getData().getFirst();
+		Assertions.assertEquals(4000, data.getDuration());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 0), data.getStart());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 8), data.getStop());
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 9), data.getRevisedDueDate());
+		Assertions.assertEquals(-1000, data.getRevisedDueDateDistance());
+	}
+
+	/**
+	 * The changes created at the watermark are given again when resumed: only the ones of the issues after the
+	 * watermark are processed.
+	 */
+	@Test
+	void processCheckpointSameDate() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newIssueChangeItem(1, 1, 2, getDate(2014, 7, 21, 0, 0, 0))); // Start
+		changes.add(newIssueChangeItem(1, 2, 6, getDate(2014, 7, 21, 0, 0, 2))); // Stop [2s]
+		changes.add(newIssueChangeItem(2, 1, 2, getDate(2014, 7, 21, 0, 0, 2))); // Start
+		changes.add(newIssueChangeItem(2, 2, 6, getDate(2014, 7, 21, 0, 0, 5))); // Stop [3s]
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+
+		// First run, until the first change created at 2s
+		final SlaCheckpoint checkpoint = new SlaCheckpoint();
+		processor.process(calendar, changes.subList(0, 2).iterator(), newSla(), checkpoint);
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 2), checkpoint.getWatermark());
+		Assertions.assertEquals(1, checkpoint.getWatermarkIssue());
+
+		// Second run, from the changes created at 2s
+		final SlaComputations process = processor.process(calendar, changes.subList(1, 4).iterator(), newSla(),
+				checkpoint);
+		Assertions.assertEquals(getDate(2014, 7, 21, 0, 0, 5), checkpoint.getWatermark());
+		Assertions.assertEquals(2, checkpoint.getWatermarkIssue());
+		Assertions.assertEquals(2, process.getIssues().size());
+		Assertions.assertEquals(1, process.getIssues().get(0).getStatusCounter().get(6));
+		Assertions.assertEquals(2000, process.getIssues().get(0).getData().getFirst().getDuration());
+		Assertions.assertEquals(3000, process.getIssues().get(1).getData().getFirst().getDuration());
+		Assertions.assertEquals(2, process.getTransitions().getCount(2, 6));
+	}
+
+	/**
+	 * The issue attributes are updated by the changes of a resumed computation, and the SLA applicability follows
+	 * them.
+	 */
+	@Test
+	void processCheckpointDetails() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newIssueChangeItem(1, 1, 2, getDate(2014, 7, 21, 0, 0, 0))); // Start
+		changes.add(newIssueChangeItem(1, 2, 6, getDate(2014, 7, 21, 0, 0, 2))); // Stop [2s]
+		changes.get(0).setResolution(null);
+		changes.get(1).setResolution(4);
+		final List<Sla> slas = newSla();
+		slas.getFirst().setResolutionsAsSet(Set.of(4));
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+
+		// First run, not resolved issue
+		final SlaCheckpoint checkpoint = new SlaCheckpoint();
+		final SlaComputations first = processor.process(calendar, changes.subList(0, 1).iterator(), slas,
+				checkpoint);
+		Assertions.assertNull(first.getIssues().getFirst().getResolution());
+		Assertions.assertNull(first.getIssues().getFirst().getData().getFirst());
+
+		// Second run, resolved issue
+		final SlaComputations process = processor.process(calendar, changes.subList(1, 2).iterator(), slas,
+				checkpoint);
+		final IssueSla issue = process.getIssues().getFirst();
+		Assertions.assertEquals(4, issue.getResolution());
+		Assertions.assertEquals(2000, issue.getData().getFirst().getDuration());
+		Assertions.assertEquals(4, checkpoint.getIssues().getFirst().getIssue().getResolution());
+	}
+
+	/**
+	 * Business time spent in each status, per issue and for all issues.
+	 */
+	@Test
+	void processTimeInStatus() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newIssueChangeItem(1, 1, 2, getDate(2014, 7, 21, 0, 0, 0)));
+		changes.add(newIssueChangeItem(2, 1, 3, getDate(2014, 7, 21, 0, 0, 1)));
+		changes.add(newIssueChangeItem(1, 2, 3, getDate(2014, 7, 21, 0, 0, 2)));
+		changes.add(newIssueChangeItem(1, 3, 2, getDate(2014, 7, 21, 0, 0, 5)));
+		changes.add(newIssueChangeItem(2, 3, 6, getDate(2014, 7, 21, 0, 0, 11)));
+		changes.add(newIssueChangeItem(1, 2, 6, getDate(2014, 7, 21, 0, 0, 12)));
+
+		final SlaComputations process = processor.process(new ArrayList<>(), changes, new ArrayList<>(), newSla());
+		final Map<Integer, Long> first = process.getIssues().getFirst().getTimeInStatus();
+		Assertions.assertEquals(Set.of(2, 3, 6), first.keySet());
+		Assertions.assertEquals(9000, first.get(2));
+		Assertions.assertEquals(3000, first.get(3));
+		Assertions.assertTrue(first.get(6) > 0);
+		final Map<Integer, Long> second = process.getIssues().get(1).getTimeInStatus();
+		Assertions.assertEquals(10000, second.get(3));
+
+		// Sum of all issues
+		final Map<Integer, Long> all = process.getTimeInStatus();
+		Assertions.assertEquals(Set.of(2, 3, 6), all.keySet());
+		Assertions.assertEquals(9000, all.get(2));
+		Assertions.assertEquals(13000, all.get(3));
+		Assertions.assertEquals(first.get(6) + second.get(6), all.get(6));
+	}
+
+	/**
+	 * Only the visited statuses are stored, whatever the range of the status identifiers.
+	 */
+	@Test
+	void processTimeInStatusLargeIdentifiers() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newIssueChangeItem(1, 10001, 10002, getDate(2014, 7, 21, 0, 0, 0)));
+		changes.add(newIssueChangeItem(1, 10002, 10006, getDate(2014, 7, 21, 0, 0, 2)));
+
+		final SlaComputations process = processor.process(new ArrayList<>(), changes, new ArrayList<>(), newSla());
+		final Map<Integer, Long> timeInStatus = process.getIssues().getFirst().getTimeInStatus();
+		Assertions.assertEquals(Set.of(10002, 10006), timeInStatus.keySet());
+		Assertions.assertEquals(2000, timeInStatus.get(10002));
+		Assertions.assertEquals(Set.of(10002, 10006), process.getTimeInStatus().keySet());
+	}
+
+	/**
+	 * Return the time spent in the statuses lower than the given one.
+	 */
+	private Map<Integer, Long> getTimeInStatus(final IssueSla issue, final int max) {
+		return issue.getTimeInStatus().entrySet().stream().filter(e -> e.getKey() < max)
+				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+	}
+
+	/**
+	 * Status transitions of all issues, and rework loops of each issue.
+	 */
+	@Test
+	void processTransitions() throws IOException {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newIssueChangeItem(1, 1, 2, getDate(2014, 7, 21, 0, 0, 0)));
+		changes.add(newIssueChangeItem(2, 1, 3, getDate(2014, 7, 21, 0, 0, 1)));
+		changes.add(newIssueChangeItem(1, 2, 3, getDate(2014, 7, 21, 0, 0, 2)));
+		changes.add(newIssueChangeItem(1, 3, 2, getDate(2014, 7, 21, 0, 0, 5))); // Back to 2
+		changes.add(newIssueChangeItem(2, 3, 6, getDate(2014, 7, 21, 0, 0, 11)));
+		changes.add(newIssueChangeItem(1, 2, 3, getDate(2014, 7, 21, 0, 0, 12))); // Back to 3
+		changes.add(newIssueChangeItem(1, 3, 6, getDate(2014, 7, 21, 0, 0, 13)));
+		final List<Sla> slas = newSla();
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+
+		final SlaComputations process = processor.process(calendar, changes, slas);
+		final TransitionMatrix transitions = process.getTransitions();
+		Assertions.assertEquals(2, transitions.getCount(2, 3));
+		Assertions.assertEquals(1, transitions.getCount(3, 2));
+		Assertions.assertEquals(2, transitions.getCount(3, 6));
+		Assertions.assertEquals(0, transitions.getCount(1, 2));
+		Assertions.assertEquals(2, process.getIssues().getFirst().getLoops());
+		Assertions.assertEquals(0, process.getIssues().get(1).getLoops());
+
+		// Same transitions in parallel
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			final SlaComputations parallel = processor.process(calendar, changes, slas, pool);
+			Assertions.assertArrayEquals(transitions.getStatuses(), parallel.getTransitions().getStatuses());
+			Assertions.assertArrayEquals(transitions.getCounts(), parallel.getTransitions().getCounts());
+			Assertions.assertEquals(2, parallel.getIssues().getFirst().getLoops());
+		} finally {
+			pool.shutdown();
+		}
+
+		// Same transitions resumed from a persisted checkpoint
+		final SlaCheckpoint checkpoint = new SlaCheckpoint();
+		processor.process(calendar, changes.subList(0, 4).iterator(), slas, checkpoint);
+		final ObjectMapper mapper = new ObjectMapper();
+		final SlaCheckpoint persisted = mapper.readValue(mapper.writeValueAsString(checkpoint), SlaCheckpoint.class);
+		final SlaComputations resumed = processor.process(calendar, changes.subList(4, 7).iterator(), slas,
+				persisted);
+		Assertions.assertArrayEquals(transitions.getStatuses(), resumed.getTransitions().getStatuses());
+		Assertions.assertArrayEquals(transitions.getCounts(), resumed.getTransitions().getCounts());
+		Assertions.assertEquals(2, resumed.getIssues().getFirst().getLoops());
+	}
+
+	/**
+	 * Daily work in progress of each status.
+	 */
+	@Test
+	void processFlow() throws IOException {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newIssueChangeItem(1, 1, 2, getDate(2014, 7, 21, 10, 0, 0)));
+		changes.add(newIssueChangeItem(1, 2, 3, getDate(2014, 7, 21, 11, 0, 0)));
+		changes.add(newIssueChangeItem(2, 1, 2, getDate(2014, 7, 22, 10, 0, 0)));
+		changes.add(newIssueChangeItem(1, 3, 6, getDate(2014, 7, 23, 10, 0, 0)));
+		changes.add(newIssueChangeItem(2, 2, 6, getDate(2014, 7, 25, 10, 0, 0)));
+		final List<Sla> slas = newSla();
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+
+		final SlaComputations process = processor.process(calendar, changes, slas);
+		final CumulativeFlow flow = process.getFlow();
+		Assertions.assertEquals(getDate(2014, 7, 21), flow.getStart());
+		Assertions.assertArrayEquals(new int[] { 2, 3, 6 }, flow.getStatuses());
+		Assertions.assertArrayEquals(new int[] { 0, 1 }, flow.getCounts()[0]);
+		Assertions.assertArrayEquals(new int[] { 1, 1 }, flow.getCounts()[1]);
+		Assertions.assertArrayEquals(new int[] { 1, 0, 1 }, flow.getCounts()[2]);
+		Assertions.assertArrayEquals(new int[] { 1, 0, 1 }, flow.getCounts()[3]);
+		Assertions.assertArrayEquals(new int[] { 0, 0, 2 }, flow.getCounts()[4]);
+
+		// The last counts run until today
+		final int[][] counts = flow.getCounts();
+		Assertions.assertTrue(counts.length > 5);
+		Assertions.assertArrayEquals(new int[] { 0, 0, 2 }, counts[counts.length - 1]);
+		Assertions.assertEquals(DateUtils.truncate(new Date(), Calendar.DATE),
+				DateUtils.addDays(flow.getStart(), counts.length - 1));
+
+		// Same flow in parallel
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			final SlaComputations parallel = processor.process(calendar, changes, slas, pool);
+			Assertions.assertArrayEquals(flow.getStatuses(), parallel.getFlow().getStatuses());
+			Assertions.assertArrayEquals(flow.getCounts(), parallel.getFlow().getCounts());
+		} finally {
+			pool.shutdown();
+		}
+
+		// Same flow resumed from a persisted checkpoint
+		final SlaCheckpoint checkpoint = new SlaCheckpoint();
+		processor.process(calendar, changes.subList(0, 3).iterator(), slas, checkpoint);
+		final ObjectMapper mapper = new ObjectMapper();
+		final SlaCheckpoint persisted = mapper.readValue(mapper.writeValueAsString(checkpoint), SlaCheckpoint.class);
+		final SlaComputations resumed = processor.process(calendar, changes.subList(3, 5).iterator(), slas,
+				persisted);
+		Assertions.assertEquals(flow.getStart(), resumed.getFlow().getStart());
+		Assertions.assertArrayEquals(flow.getStatuses(), resumed.getFlow().getStatuses());
+		Assertions.assertArrayEquals(flow.getCounts(), resumed.getFlow().getCounts());
+	}
+
+	/**
+	 * Oldest open issues of each status, without issue.
+	 */
+	@Test
+	void aging() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newIssueChangeItem(1, 1, 2, getDate(2014, 7, 21, 0, 0, 0)));
+		changes.add(newIssueChangeItem(2, 1, 2, getDate(2014, 7, 21, 0, 0, 1)));
+		changes.add(newIssueChangeItem(3, 1, 2, getDate(2014, 7, 21, 0, 0, 2)));
+		changes.add(newIssueChangeItem(4, 1, 2, getDate(2014, 7, 21, 0, 0, 3)));
+		changes.add(newIssueChangeItem(1, 2, 3, getDate(2014, 7, 21, 0, 0, 4)));
+		changes.add(newIssueChangeItem(4, 2, 6, getDate(2014, 7, 21, 0, 0, 5)));
+		changes.stream().filter(c -> c.getId() != 4).forEach(c -> c.setResolution(null));
+
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+		final SlaComputations process = processor.aging(calendar, changes.iterator(), newSla(), 1);
+		Assertions.assertNull(process.getIssues());
+		final Map<Integer, List<IssueSla>> aging = process.getAging();
+		Assertions.assertEquals(Set.of(2, 3), aging.keySet());
+
+		// The resolved issue 4 is ignored, the issue 2 is older than the issue 3 in the status 2
+		Assertions.assertEquals(1, aging.get(2).size());
+		final IssueSla issue = aging.get(2).getFirst();
+		Assertions.assertEquals(2, issue.getId());
+		Assertions.assertEquals(2, issue.getCurrentStatus());
+		Assertions.assertEquals(issue.getTimeInStatus().get(2), issue.getAge());
+		Assertions.assertEquals(1, aging.get(3).getFirst().getId());
+		Assertions.assertTrue(aging.get(2).getFirst().getAge() > aging.get(3).getFirst().getAge());
+	}
+
+	/**
+	 * Statistics of the SLA data, without issue.
+	 */
+	@Test
+	void aggregate() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		changes.add(newIssueChangeItem(1, 1, 2, getDate(2014, 7, 21, 0, 0, 0)));
+		changes.add(newIssueChangeItem(2, 1, 2, getDate(2014, 7, 21, 0, 0, 0)));
+		changes.add(newIssueChangeItem(1, 2, 6, getDate(2014, 7, 21, 0, 0, 10)));
+		changes.add(newIssueChangeItem(2, 2, 6, getDate(2014, 7, 21, 0, 0, 20)));
+		final List<Sla> slas = newSla();
+		slas.getFirst().setThreshold(15 * DateUtils.MILLIS_PER_SECOND);
+
+		final BusinessCalendar calendar = new BusinessCalendar(new ArrayList<>(), new ArrayList<>());
+		final SlaComputations process = processor.aggregate(calendar, changes.iterator(), slas);
+		Assertions.assertNull(process.getIssues());
+		Assertions.assertEquals(1, process.getSlaConfigurations().size());
+		Assertions.assertEquals(1, process.getStatistics().size());
+		final SlaStatistics statistics = process.getStatistics().getFirst();
+		Assertions.assertEquals(0, statistics.getSla());
+		Assertions.assertEquals(1, statistics.getPriority());
+		Assertions.assertEquals(1, statistics.getType());
+		Assertions.assertEquals(2, statistics.getCount());
+		Assertions.assertEquals(10 * DateUtils.MILLIS_PER_SECOND, statistics.getDurationP50());
+		Assertions.assertTrue(statistics.getDurationP99() > 19 * DateUtils.MILLIS_PER_SECOND);
+		Assertions.assertTrue(statistics.getDurationP99() <= 20 * DateUtils.MILLIS_PER_SECOND);
+		Assertions.assertEquals(0.5d, statistics.getBreachRatio());
+	}
+
+	/**
+	 * Business time left before the threshold, and the breach forecast of the running SLA.
+	 */
+	@Test
+	void processThreshold() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		final Date recent = new Date(System.currentTimeMillis() - DateUtils.MILLIS_PER_MINUTE);
+		changes.add(newIssueChangeItem(1, 1, 2, getDate(2014, 7, 21))); // Started long ago, breached
+		changes.add(newIssueChangeItem(2, 1, 2, getDate(2014, 7, 21))); // Paused
+		changes.add(newIssueChangeItem(2, 2, 3, getDate(2014, 7, 21, 0, 0, 2)));
+		changes.add(newIssueChangeItem(3, 1, 2, getDate(2014, 7, 21))); // Stopped
+		changes.add(newIssueChangeItem(3, 2, 6, getDate(2014, 7, 21, 0, 0, 2)));
+		changes.add(newIssueChangeItem(4, 1, 1, getDate(2014, 7, 21))); // Not started
+		changes.add(newIssueChangeItem(5, 1, 2, recent)); // Recently started
+		final List<Sla> slas = newSla();
+		slas.getFirst().setThreshold(7 * DateUtils.MILLIS_PER_DAY);
+
+		final SlaComputations process = processor.process(new ArrayList<>(), changes, new ArrayList<>(), slas);
+		Assertions.assertEquals(5, process.getIssues().size());
+		final SlaData breached = process.getIssues().getFirst().getData().getFirst();
+		Assertions.assertTrue(breached.getRemaining() < 0);
+		Assertions.assertNull(breached.getBreach());
+		final SlaData paused = process.getIssues().get(1).getData().getFirst();
+		Assertions.assertEquals(7 * DateUtils.MILLIS_PER_DAY - 2000, paused.getRemaining());
+		Assertions.assertNull(paused.getBreach());
+		Assertions.assertNull(process.getIssues().get(2).getData().getFirst().getRemaining());
+		Assertions.assertNull(process.getIssues().get(3).getData().getFirst().getRemaining());
+		final SlaData running = process.getIssues().get(4).getData().getFirst();
+		Assertions.assertTrue(running.getRemaining() > 6 * DateUtils.MILLIS_PER_DAY);
+		Assertions.assertTrue(running.getRemaining() <= 7 * DateUtils.MILLIS_PER_DAY);
+
+		// 7 business days, including at least one week-end
+		Assertions.assertTrue(running.getBreach().getTime() - recent.getTime() > 8 * DateUtils.MILLIS_PER_DAY);
+
+		// No threshold
+		slas.getFirst().setThreshold(0);
+		Assertions.assertNull(processor.process(new ArrayList<>(), changes, new ArrayList<>(), slas).getIssues().get(4)
+				.getData().getFirst().getRemaining());
+	}
+
+	@Test
+	void getClosestToBreach() {
+		final List<ChangeItem> changes = new ArrayList<>();
+		for (int issue = 0; issue < 20; issue++) {
+			// Each issue started one hour after the previous one
+			changes.add(newIssueChangeItem(issue, 1, 2, getDate(2014, 7, 21, issue, 0, 0)));
+		}
+		changes.add(newIssueChangeItem(20, 1, 1, getDate(2014, 7, 21, 21, 0, 0))); // Not started
+		final List<Sla> slas = newSla();
+		slas.getFirst().setThreshold(DateUtils.MILLIS_PER_DAY);
+
+		final SlaComputations process = processor.process(new ArrayList<>(), changes, new ArrayList<>(), slas);
+		final List<IssueSla> closest = processor.getClosestToBreach(process, 0, 3);
+		Assertions.assertEquals(3, closest.size());
+		Assertions.assertEquals(0, closest.getFirst().getId());
+		Assertions.assertEquals(1, closest.get(1).getId());
+		Assertions.assertEquals(2, closest.get(2).getId());
+		Assertions.assertEquals(20, processor.getClosestToBreach(process, 0, 100).size());
+		Assertions.assertEquals(0, processor.getClosestToBreach(process, 0, 0).size());
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> processor.getClosestToBreach(process, -1, 3)), "sla", "Range");
+	}
+
+	@Test
+	void query() {
+		final SlaComputations computations = newComputations(1000);
+		final SlaQuery query = new SlaQuery();
+		query.setOffset(10);
+		query.setLimit(20);
+		query.setSort("pkey");
+		query.setDescending(true);
+		final TableItem<IssueSla> page = processor.query(computations, query);
+		Assertions.assertEquals(1000, page.getRecordsTotal());
+		Assertions.assertEquals(1000, page.getRecordsFiltered());
+		final List<IssueSla> expected = computations.getIssues().stream()
+				.sorted(Comparator.comparing(IssueSla::getPkey).reversed().thenComparing(IssueSla::getId)).skip(10)
+				.limit(20).toList();
+		Assertions.assertEquals(expected, page.getData());
+
+		// Default order
+		query.setSort(null);
+		query.setDescending(false);
+		Assertions.assertEquals(10, processor.query(computations, query).getData().getFirst().getId());
+
+		// Out of range
+		query.setOffset(2000);
+		Assertions.assertEquals(0, processor.query(computations, query).getData().size());
+	}
+
+	@Test
+	void queryDataColumn() {
+		final SlaComputations computations = newComputations(1000);
+		final SlaQuery query = new SlaQuery();
+		query.setSort("duration");
+		query.setSla(0);
+		query.setLimit(5);
+		final List<IssueSla> page = processor.query(computations, query).getData();
+		final List<IssueSla> expected = computations.getIssues().stream()
+				.sorted(Comparator.comparing((IssueSla i) -> i.getData().getFirst().getDuration())
+						.thenComparing(IssueSla::getId))
+				.limit(5).toList();
+		Assertions.assertEquals(expected, page);
+	}
+
+	@Test
+	void queryInvalidColumn() {
+		final SlaComputations computations = newComputations(10);
+		final SlaQuery query = new SlaQuery();
+		query.setSort("any");
+		MatcherUtil.assertThrows(
+				Assertions.assertThrows(ValidationJsonException.class, () -> processor.query(computations, query)),
+				"sort", "NotSupported");
+		query.setSort("duration");
+		Assertions.assertThrows(ValidationJsonException.class, () -> processor.query(computations, query));
+	}
+
+	@Test
+	void queryInvalidSla() {
+		final SlaComputations computations = newComputations(10);
+		final SlaQuery query = new SlaQuery();
+		query.setSla(computations.getSlaConfigurations().size());
+		MatcherUtil.assertThrows(
+				Assertions.assertThrows(ValidationJsonException.class, () -> processor.query(computations, query)),
+				"sla", "Range");
+		query.setSla(-1);
+		query.setSort("duration");
+		MatcherUtil.assertThrows(
+				Assertions.assertThrows(ValidationJsonException.class, () -> processor.query(computations, query)),
+				"sla", "Range");
+	}
+
+	@Test
+	void queryFilters() {
+		final SlaComputations computations = newComputations(1000);
+		final SlaQuery query = new SlaQuery();
+		query.setLimit(1000);
+		query.setStatuses(Set.of(1, 2));
+		query.setTypes(Set.of(1));
+		query.setPriorities(Set.of(2));
+		query.setAssignees(Set.of("user0"));
+		query.setBreached(true);
+		final TableItem<IssueSla> page = processor.query(computations, query);
+		final List<IssueSla> expected = computations.getIssues().stream()
+				.filter(i -> i.getStatus() >= 1 && i.getStatus() <= 2 && i.getType() == 1
+						&& Integer.valueOf(2).equals(i.getPriority())
+						&& "user0".equals(i.getAssignee()) && i.getData().getFirst().getDuration() > 500)
+				.toList();
+		Assertions.assertFalse(expected.isEmpty());
+		Assertions.assertEquals(expected.size(), page.getRecordsFiltered());
+		Assertions.assertEquals(expected, page.getData());
+
+		// Not breached on the given SLA
+		query.setBreached(false);
+		query.setSla(0);
+		Assertions.assertTrue(processor.query(computations, query).getData().stream()
+				.allMatch(i -> i.getData().getFirst().getDuration() <= 500));
+	}
+
+	/**
+	 * Return computations of issues with various attributes and one SLA having a threshold of 500ms.
+	 */
+	private SlaComputations newComputations(final int count) {
+		final SlaComputations computations = new SlaComputations();
+		computations.setSlaConfigurations(processor.toSlaConfiguration(newSla()));
+		computations.getSlaConfigurations().getFirst().setThreshold(500);
+		final List<IssueSla> issues = new ArrayList<>();
+		for (int id = 0; id < count; id++) {
+			final IssueSla issue = new IssueSla();
+			issue.setId(id);
+			issue.setPkey("P-" + id % 97);
+			issue.setStatus(id % 5);
+			issue.setType(id % 3);
+			issue.setPriority(id % 7 == 0 ? null : id % 4);
+			issue.setAssignee("user" + id % 2);
+			final SlaData data = new SlaData();
+			data.setDuration(id * 37 % 1000);
+			issue.setData(List.of(data));
+			issues.add(issue);
+		}
+		computations.setIssues(issues);
+		return computations;
+	}
+
+	// Add a status change of an issue
+	private ChangeItem newIssueChangeItem(final int id, final int from, final int to, final Date created) {
+		final ChangeItem changeItem = newChangeItem(from, to, 0, null);
+		changeItem.setId(id);
+		changeItem.setCreated(created);
+		return changeItem;
+	}
+
+	/**
+	 * Return the new status of the given issue at the given change: started and paused statuses, finally stopped.
+	 */
+	private int toStatus(final int issue, final int shift) {
+		return shift == 7 ? 6 : 2 + (issue + shift) % 4;
+	}
+
 	/**
 	 * New SLA configuration
 	 * <br>
@@ -288,7 +1024,7 @@ class SlaProcessorTest extends AbstractDataGeneratorTest {
 	}
 
 	// Add a status change
-	private ChangeItem newChangeItem(final int from, final int to, final int shift, final Date dueDate) {
+	private ChangeItem newChangeItem(final Integer from, final int to, final int shift, final Date dueDate) {
 		final ChangeItem changeItem = new ChangeItem();
 		changeItem.setCreated(getDate(2014, 7, 21, 0, 0, shift * 2));
 		changeItem.setFromStatus(from);
@@ -302,7 +1038,7 @@ class SlaProcessorTest extends AbstractDataGeneratorTest {
 	}
 
 	// Add a status change
-	private ChangeItem newChangeItem(final int from, final int to, final int shift) {
+	private ChangeItem newChangeItem(final Integer from, final int to, final int shift) {
 		return newChangeItem(from, to, shift, null);
 	}
 
@@ -0,0 +1,96 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.bt.model.IssueDetails;
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.ligoj.bootstrap.MatcherUtil;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+
+/**
+ * Test class of {@link SlaRule}
+ */
+class SlaRuleTest {
+
+	@Test
+	void getActions() {
+		final SlaRule rule = new SlaRule(newSla(Set.of(1, 3), Set.of(3, 5), Set.of(2)));
+		Assertions.assertEquals(SlaRule.START, rule.getActions(1));
+		Assertions.assertEquals(SlaRule.PAUSE, rule.getActions(2));
+		Assertions.assertEquals(SlaRule.START | SlaRule.STOP, rule.getActions(3));
+		Assertions.assertEquals(SlaRule.STOP, rule.getActions(5));
+		Assertions.assertEquals(SlaRule.NONE, rule.getActions(4));
+		Assertions.assertEquals(SlaRule.NONE, rule.getActions(0));
+		Assertions.assertEquals(SlaRule.NONE, rule.getActions(6));
+		Assertions.assertEquals(SlaRule.NONE, rule.getActions(-1));
+		Assertions.assertEquals(5, rule.getMaxStatus());
+	}
+
+	@Test
+	void getActionsEmpty() {
+		final SlaRule rule = new SlaRule(newSla(Collections.emptySet(), Collections.emptySet(), Collections.emptySet()));
+		Assertions.assertEquals(SlaRule.NONE, rule.getActions(0));
+		Assertions.assertEquals(-1, rule.getMaxStatus());
+	}
+
+	@Test
+	void newSlaRuleNegativeStatus() {
+		final Sla sla = newSla(Set.of(1), Set.of(-2), Collections.emptySet());
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class, () -> new SlaRule(sla)),
+				"stop", "PositiveOrZero");
+	}
+
+	@Test
+	void newSlaRuleNegativeType() {
+		final Sla sla = newSla(Set.of(1), Set.of(2), Collections.emptySet());
+		sla.setTypesAsSet(Set.of(-1));
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class, () -> new SlaRule(sla)),
+				"types", "PositiveOrZero");
+	}
+
+	@Test
+	void isApplicableNoFilter() {
+		final SlaRule rule = new SlaRule(newSla(Set.of(1), Set.of(2), Collections.emptySet()));
+		Assertions.assertTrue(rule.isApplicable(newIssue(1, null, null)));
+		Assertions.assertTrue(rule.isApplicable(newIssue(1, 2, 3)));
+	}
+
+	@Test
+	void isApplicable() {
+		final Sla sla = newSla(Set.of(1), Set.of(2), Collections.emptySet());
+		sla.setTypesAsSet(Set.of(1, 2));
+		sla.setPrioritiesAsSet(Set.of(3));
+		sla.setResolutionsAsSet(Set.of(4));
+		final SlaRule rule = new SlaRule(sla);
+		Assertions.assertTrue(rule.isApplicable(newIssue(2, 3, 4)));
+		Assertions.assertFalse(rule.isApplicable(newIssue(3, 3, 4)));
+		Assertions.assertFalse(rule.isApplicable(newIssue(1, 2, 4)));
+		Assertions.assertFalse(rule.isApplicable(newIssue(1, null, 4)));
+		Assertions.assertFalse(rule.isApplicable(newIssue(1, 3, null)));
+	}
+
+	private Sla newSla(final Set<Integer> start, final Set<Integer> stop, final Set<Integer> pause) {
+		final Sla sla = new Sla();
+		sla.setStartAsSet(start);
+		sla.setStopAsSet(stop);
+		sla.setPausedAsSet(pause);
+		sla.setTypesAsSet(Collections.emptySet());
+		sla.setPrioritiesAsSet(Collections.emptySet());
+		sla.setResolutionsAsSet(Collections.emptySet());
+		return sla;
+	}
+
+	private IssueDetails newIssue(final int type, final Integer priority, final Integer resolution) {
+		final IssueDetails issue = new IssueDetails();
+		issue.setType(type);
+		issue.setPriority(priority);
+		issue.setResolution(resolution);
+		return issue;
+	}
+}
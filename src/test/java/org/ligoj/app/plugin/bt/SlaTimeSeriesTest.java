@@ -0,0 +1,148 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.bt.model.Sla;
+import org.ligoj.bootstrap.AbstractDataGeneratorTest;
+import org.ligoj.bootstrap.MatcherUtil;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+
+/**
+ * Test class of {@link SlaTimeSeries}
+ */
+class SlaTimeSeriesTest extends AbstractDataGeneratorTest {
+
+	@Test
+	void getCompliancesDay() {
+		final SlaTimeSeries series = new SlaTimeSeries(newSlas(), getDate(2014, 7, 21, 10, 0, 0),
+				getDate(2014, 7, 24), SlaTimeSeries.DAY);
+		series.accept(newIssue(getDate(2014, 7, 21, 0, 0, 0), 10, null)); // First bucket
+		series.accept(newIssue(getDate(2014, 7, 21, 23, 59, 59), 50, getDate(2014, 7, 23))); // First bucket, breached
+		series.accept(newIssue(getDate(2014, 7, 23, 12, 0, 0), 40, null)); // Last bucket, compliant
+		series.accept(newIssue(getDate(2014, 7, 24), 10, null)); // Out of range
+		series.accept(newIssue(getDate(2014, 7, 20, 23, 0, 0), 10, null)); // Out of range
+		series.accept(newIssue(null, 10, null)); // Running
+
+		final List<SlaCompliance> compliances = series.getCompliances();
+		Assertions.assertEquals(2, compliances.size());
+		final SlaCompliance first = compliances.getFirst();
+		Assertions.assertEquals(0, first.getSla());
+		Assertions.assertEquals(List.of(getDate(2014, 7, 21), getDate(2014, 7, 22), getDate(2014, 7, 23)),
+				first.getStarts());
+		Assertions.assertArrayEquals(new long[] { 2, 0, 1 }, first.getStopped());
+		Assertions.assertArrayEquals(new long[] { 1, 0, 1 }, first.getCompliant());
+		Assertions.assertArrayEquals(new Double[] { 0.5d, null, 1d }, first.getRatios());
+
+		// No threshold
+		final SlaCompliance second = compliances.get(1);
+		Assertions.assertEquals(1, second.getSla());
+		Assertions.assertArrayEquals(new long[] { 0, 0, 1 }, second.getStopped());
+		Assertions.assertArrayEquals(new Double[] { null, null, null }, second.getRatios());
+	}
+
+	@Test
+	void getCompliancesWeek() {
+		// 2014/07/23 is a Wednesday
+		final SlaTimeSeries series = new SlaTimeSeries(newSlas(), getDate(2014, 7, 23), getDate(2014, 8, 4),
+				SlaTimeSeries.WEEK);
+		series.accept(newIssue(getDate(2014, 7, 21), 10, null));
+		series.accept(newIssue(getDate(2014, 8, 3, 23, 0, 0), 10, null));
+		final SlaCompliance compliance = series.getCompliances().getFirst();
+		Assertions.assertEquals(List.of(getDate(2014, 7, 21), getDate(2014, 7, 28)), compliance.getStarts());
+		Assertions.assertArrayEquals(new long[] { 1, 1 }, compliance.getStopped());
+	}
+
+	@Test
+	void getCompliancesMonth() {
+		final SlaTimeSeries series = new SlaTimeSeries(newSlas(), getDate(2014, 1, 15), getDate(2014, 3, 2),
+				SlaTimeSeries.MONTH);
+		series.accept(newIssue(getDate(2014, 3, 31), 10, null));
+		final SlaCompliance compliance = series.getCompliances().getFirst();
+		Assertions.assertEquals(List.of(getDate(2014, 1, 1), getDate(2014, 2, 1), getDate(2014, 3, 1)),
+				compliance.getStarts());
+		Assertions.assertArrayEquals(new long[] { 0, 0, 1 }, compliance.getStopped());
+	}
+
+	@Test
+	void collector() {
+		final List<Sla> slas = newSlas();
+		final Date from = getDate(2014, 1, 1);
+		final Date to = getDate(2015, 1, 1);
+		final List<IssueSla> issues = IntStream.range(0, 1000)
+				.mapToObj(i -> newIssue(new Date(from.getTime() + i * 3600000L * 8), i % 80, null)).toList();
+		final SlaTimeSeries sequential = new SlaTimeSeries(slas, from, to, SlaTimeSeries.WEEK);
+		issues.forEach(sequential);
+		final SlaCompliance expected = sequential.getCompliances().getFirst();
+		final SlaCompliance parallel = issues.parallelStream()
+				.collect(SlaTimeSeries.collector(slas, from, to, SlaTimeSeries.WEEK)).getCompliances().getFirst();
+		Assertions.assertEquals(1000, Arrays.stream(parallel.getStopped()).sum());
+		Assertions.assertArrayEquals(expected.getStopped(), parallel.getStopped());
+		Assertions.assertArrayEquals(expected.getCompliant(), parallel.getCompliant());
+	}
+
+	@Test
+	void invalid() {
+		final List<Sla> slas = newSlas();
+		final Date date = getDate(2014, 1, 1);
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> new SlaTimeSeries(slas, null, date, SlaTimeSeries.DAY)), "from", "NotNull");
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> new SlaTimeSeries(slas, date, null, SlaTimeSeries.DAY)), "to", "NotNull");
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> new SlaTimeSeries(slas, date, date, SlaTimeSeries.DAY)), "to", "Range");
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> new SlaTimeSeries(slas, date, getDate(2014, 2, 1), "year")), "granularity", "NotSupported");
+	}
+
+	@Test
+	void invalidTooManyBuckets() {
+		final List<Sla> slas = newSlas();
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> new SlaTimeSeries(slas, new Date(0), new Date(Long.MAX_VALUE), SlaTimeSeries.DAY)), "to",
+				"Range");
+		final Date from = getDate(2014, 1, 1);
+		final Date to = DateUtils.addDays(from, SlaTimeSeries.MAX_BUCKETS + 1);
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> new SlaTimeSeries(slas, from, to, SlaTimeSeries.DAY)), "to", "Range");
+
+		// The maximal amount of buckets is accepted
+		final SlaTimeSeries series = new SlaTimeSeries(slas, from, DateUtils.addDays(from, SlaTimeSeries.MAX_BUCKETS),
+				SlaTimeSeries.DAY);
+		Assertions.assertEquals(SlaTimeSeries.MAX_BUCKETS, series.getCompliances().getFirst().getStarts().size());
+	}
+
+	private List<Sla> newSlas() {
+		final List<Sla> slas = new ArrayList<>();
+		slas.add(new Sla());
+		slas.add(new Sla());
+		slas.getFirst().setThreshold(40);
+		return slas;
+	}
+
+	private IssueSla newIssue(final Date stop, final long duration, final Date secondStop) {
+		final IssueSla issue = new IssueSla();
+		final List<SlaData> data = new ArrayList<>();
+		data.add(newData(stop, duration));
+		data.add(secondStop == null ? null : newData(secondStop, duration));
+		issue.setData(data);
+		return issue;
+	}
+
+	private SlaData newData(final Date stop, final long duration) {
+		final SlaData data = new SlaData();
+		data.setStart(new Date(0));
+		data.setStop(stop);
+		data.setDuration(duration);
+		return data;
+	}
+}
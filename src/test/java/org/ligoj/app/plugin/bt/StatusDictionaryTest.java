@@ -0,0 +1,46 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link StatusDictionary} test class.
+ */
+class StatusDictionaryTest {
+
+	@Test
+	void add() {
+		final StatusDictionary dictionary = new StatusDictionary();
+		Assertions.assertEquals(0, dictionary.add(10006));
+		Assertions.assertEquals(1, dictionary.add(10001));
+		Assertions.assertEquals(0, dictionary.add(10006));
+		Assertions.assertEquals(2, dictionary.size());
+		Assertions.assertEquals(10001, dictionary.getStatus(1));
+		Assertions.assertEquals(1, dictionary.indexOf(10001));
+		Assertions.assertEquals(-1, dictionary.indexOf(10002));
+		Assertions.assertArrayEquals(new int[] { 10006, 10001 }, dictionary.getStatuses());
+	}
+
+	@Test
+	void addGrow() {
+		final StatusDictionary dictionary = new StatusDictionary();
+		for (int status = 0; status < 20; status++) {
+			Assertions.assertEquals(status, dictionary.add(status * 1000));
+		}
+		Assertions.assertEquals(20, dictionary.size());
+		Assertions.assertEquals(19000, dictionary.getStatus(19));
+	}
+
+	@Test
+	void setStatuses() {
+		final StatusDictionary dictionary = new StatusDictionary();
+		dictionary.add(1);
+		dictionary.setStatuses(new int[] { 10002, 10001 });
+		Assertions.assertEquals(-1, dictionary.indexOf(1));
+		Assertions.assertEquals(1, dictionary.indexOf(10001));
+		Assertions.assertEquals(2, dictionary.add(1));
+	}
+}
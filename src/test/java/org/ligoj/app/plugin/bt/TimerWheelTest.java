@@ -0,0 +1,82 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class of {@link TimerWheel}
+ */
+class TimerWheelTest {
+
+	@Test
+	void advance() {
+		final TimerWheel<Long> wheel = new TimerWheel<>(10, 1000);
+		final long[] deadlines = { 1001, 1011, 1630, 1640, 1641, 41950, 41960, 2622430, 2622440, 167773150,
+				167773160, 167773170 };
+		for (final long deadline : deadlines) {
+			wheel.schedule(deadline, deadline);
+		}
+		Assertions.assertEquals(deadlines.length, wheel.getSize());
+		final List<Long> fired = new ArrayList<>();
+		for (final long deadline : deadlines) {
+			// Not yet reached
+			wheel.advance(deadline - 1, fired::add);
+			Assertions.assertFalse(fired.contains(deadline));
+
+			// Fired at the tick of the deadline
+			wheel.advance(Math.floorDiv(deadline + 9, 10) * 10, fired::add);
+			Assertions.assertEquals(deadline, fired.getLast());
+		}
+		Assertions.assertEquals(deadlines.length, fired.size());
+		Assertions.assertEquals(0, wheel.getSize());
+	}
+
+	@Test
+	void advanceJump() {
+		final TimerWheel<Integer> wheel = new TimerWheel<>(10, 0);
+		wheel.schedule(50, 1);
+		wheel.schedule(5000, 2);
+		wheel.schedule(700000, 3);
+		final List<Integer> fired = new ArrayList<>();
+		wheel.advance(1000000, fired::add);
+		Assertions.assertEquals(List.of(1, 2, 3), fired);
+
+		// Empty wheel jumps to the target
+		wheel.advance(1000000000000000L, fired::add);
+		wheel.schedule(1000000000000010L, 4);
+		wheel.advance(1000000000000010L, fired::add);
+		Assertions.assertEquals(List.of(1, 2, 3, 4), fired);
+	}
+
+	@Test
+	void cancel() {
+		final TimerWheel<Integer> wheel = new TimerWheel<>(10, 0);
+		final TimerWheel.Timer<Integer> timer = wheel.schedule(100, 1);
+		wheel.schedule(100, 2);
+		Assertions.assertFalse(timer.isCancelled());
+		timer.cancel();
+		Assertions.assertTrue(timer.isCancelled());
+		Assertions.assertEquals(1, timer.getValue());
+		final List<Integer> fired = new ArrayList<>();
+		wheel.advance(100, fired::add);
+		Assertions.assertEquals(List.of(2), fired);
+		Assertions.assertEquals(0, wheel.getSize());
+	}
+
+	@Test
+	void scheduleDue() {
+		final TimerWheel<Integer> wheel = new TimerWheel<>(10, 1000);
+		wheel.schedule(500, 1);
+		wheel.schedule(1000, 2);
+		final List<Integer> fired = new ArrayList<>();
+		wheel.advance(1000, fired::add);
+		Assertions.assertEquals(List.of(1, 2), fired);
+		Assertions.assertEquals(10, wheel.getTickDuration());
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.bt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link TransitionMatrix} test class.
+ */
+class TransitionMatrixTest {
+
+	@Test
+	void getCountEmpty() {
+		final TransitionMatrix matrix = new TransitionMatrix();
+		Assertions.assertEquals(0, matrix.getCount(1, 2));
+		Assertions.assertEquals(0, matrix.getCount(-1, 2));
+		Assertions.assertEquals(0, matrix.getCounts().length);
+	}
+
+	@Test
+	void add() {
+		final TransitionMatrix matrix = new TransitionMatrix();
+		matrix.add(1, 2);
+		matrix.add(1, 2);
+		matrix.add(5, 1);
+		Assertions.assertEquals(3, matrix.getCounts().length);
+		Assertions.assertArrayEquals(new int[] { 1, 2, 5 }, matrix.getStatuses());
+		Assertions.assertEquals(2, matrix.getCount(1, 2));
+		Assertions.assertEquals(1, matrix.getCount(5, 1));
+		Assertions.assertEquals(0, matrix.getCount(2, 1));
+		Assertions.assertEquals(0, matrix.getCount(1, 10));
+	}
+
+	@Test
+	void addNegative() {
+		final TransitionMatrix matrix = new TransitionMatrix();
+		matrix.add(-1, 2);
+		matrix.add(2, -1);
+		Assertions.assertEquals(0, matrix.getCounts().length);
+	}
+
+	@Test
+	void addMatrix() {
+		final TransitionMatrix matrix = new TransitionMatrix();
+		matrix.add(1, 2);
+		final TransitionMatrix other = new TransitionMatrix();
+		other.add(1, 2);
+		other.add(7, 3);
+		matrix.add(other);
+		Assertions.assertEquals(4, matrix.getCounts().length);
+		Assertions.assertArrayEquals(new int[] { 1, 2, 7, 3 }, matrix.getStatuses());
+		Assertions.assertEquals(2, matrix.getCount(1, 2));
+		Assertions.assertEquals(1, matrix.getCount(7, 3));
+
+		// The merged matrix is not updated
+		Assertions.assertEquals(1, other.getCount(1, 2));
+
+		// Merge a smaller matrix
+		final TransitionMatrix small = new TransitionMatrix();
+		small.add(0, 1);
+		matrix.add(small);
+		Assertions.assertEquals(5, matrix.getCounts().length);
+		Assertions.assertEquals(1, matrix.getCount(0, 1));
+		Assertions.assertEquals(2, matrix.getCount(1, 2));
+	}
+
+	@Test
+	void addLargeIdentifiers() {
+		final TransitionMatrix matrix = new TransitionMatrix();
+		matrix.add(10001, 10002);
+		matrix.add(10002, 10006);
+		Assertions.assertEquals(3, matrix.getCounts().length);
+		Assertions.assertEquals(1, matrix.getCount(10001, 10002));
+		Assertions.assertEquals(1, matrix.getCount(10002, 10006));
+		Assertions.assertEquals(0, matrix.getCount(10006, 10001));
+	}
+
+	@Test
+	void setStatuses() {
+		final TransitionMatrix matrix = new TransitionMatrix();
+		matrix.setStatuses(new int[] { 10001, 10002 });
+		matrix.setCounts(new int[][] { { 0, 3 }, { 0, 0 } });
+		Assertions.assertEquals(3, matrix.getCount(10001, 10002));
+		matrix.add(10002, 10001);
+		Assertions.assertEquals(1, matrix.getCount(10002, 10001));
+		Assertions.assertEquals(2, matrix.getCounts().length);
+	}
+}